@@ -0,0 +1,125 @@
+package com.carpark.demo;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingRequestWrapper;
+
+import javax.annotation.PreDestroy;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Record API requests for replay by the load test (see LoadGenerator in tests).
+ * Enabled by setting carpark.access-log.path, e.g. --carpark.access-log.path=access.log
+ *
+ * One line per request, tab separated:
+ * start time (epoch millis), method, path with query, status, latency (microseconds), request body.
+ * Line breaks in body are replaced by spaces, which is the same JSON.
+ *
+ * Requests only queue their line, flush() writes queued lines with one flush of the file,
+ * so requests neither wait for the disk nor for each other.
+ *
+ * carpark.access-log.flush-interval-ms – delay between writes
+ * carpark.access-log.max-pending       – lines waiting for write before new ones are dropped
+ *
+ * Metrics: carpark.access-log.dropped
+ */
+@Component
+@ConditionalOnProperty(name = "carpark.access-log.path")
+class AccessLogRecorder extends OncePerRequestFilter {
+    private static final Logger log = LoggerFactory.getLogger(AccessLogRecorder.class);
+
+    private final ConcurrentLinkedQueue<String> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    //Guarded by this
+    private final BufferedWriter writer;
+    private final int maxPending;
+    private final Counter dropped;
+
+    AccessLogRecorder(@Value("${carpark.access-log.path}") String path,
+                      @Value("${carpark.access-log.max-pending:100000}") int maxPending,
+                      MeterRegistry registry) throws IOException {
+        Path file = Paths.get(path);
+        this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        this.maxPending = maxPending;
+        this.dropped = registry.counter("carpark.access-log.dropped");
+    }
+
+    //Warm-up requests are not real traffic, they are not replayed
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return !(path.startsWith("/drivers") || path.startsWith("/vehicles") || path.startsWith("/parking"))
+                || WarmupRunner.isWarmup(request);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        ContentCachingRequestWrapper cached = new ContentCachingRequestWrapper(request);
+        long startedMillis = System.currentTimeMillis();
+        long started = System.nanoTime();
+        try {
+            chain.doFilter(cached, response);
+        } finally {
+            long latencyMicros = (System.nanoTime() - started) / 1000;
+            String uri = request.getQueryString() != null
+                    ? request.getRequestURI() + "?" + request.getQueryString()
+                    : request.getRequestURI();
+            String body = new String(cached.getContentAsByteArray(), StandardCharsets.UTF_8)
+                    .replace('\r', ' ').replace('\n', ' ').replace('\t', ' ');
+            String line = startedMillis + "\t" + request.getMethod() + "\t" + uri + "\t"
+                    + response.getStatus() + "\t" + latencyMicros + "\t" + body;
+            if (pending.incrementAndGet() > maxPending) {
+                pending.decrementAndGet();
+                dropped.increment();
+            } else {
+                queue.add(line);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${carpark.access-log.flush-interval-ms:200}")
+    synchronized void flush() {
+        int lines = 0;
+        String line;
+        try {
+            while ((line = queue.poll()) != null) {
+                lines++;
+                writer.write(line);
+                writer.newLine();
+            }
+            //Lines written so far are complete on disk even if the application is killed
+            writer.flush();
+        } catch (IOException e) {
+            log.error("Could not write access log", e);
+        } finally {
+            pending.addAndGet(-lines);
+        }
+    }
+
+    @PreDestroy
+    synchronized void close() throws IOException {
+        flush();
+        writer.close();
+    }
+}
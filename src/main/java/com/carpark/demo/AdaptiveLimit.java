@@ -0,0 +1,95 @@
+package com.carpark.demo;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrency limit which follows latency, in the style of the gradient algorithm of TCP Vegas.
+ *
+ * Every completed request is a sample. A slow moving average of latency is the baseline,
+ * gradient = baseline / latency of the sample, limited to [0.5, 1]. The new limit is
+ * limit * gradient + sqrt(limit): while latency stays at baseline the limit grows by the
+ * square root, when latency goes up the limit shrinks in proportion. Failed requests
+ * (server errors) cut the limit multiplicatively, as in AIMD.
+ * The limit only grows while at least half of it is used, otherwise idle periods would raise
+ * it to the maximum and the first burst after them would not be limited at all.
+ *
+ * Acquiring is a compare-and-set on the number of requests in flight, only samples are synchronized.
+ */
+class AdaptiveLimit {
+    //Weight of one sample in the baseline latency, about the last 100 samples
+    private static final double BASELINE_WEIGHT = 0.01;
+    private static final double BACKOFF = 0.9;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final int minLimit;
+    private final int maxLimit;
+    private final double smoothing;
+
+    private volatile int limit;
+
+    //Guarded by this
+    private double estimatedLimit;
+    private double baselineNanos;
+
+    AdaptiveLimit(int initialLimit, int minLimit, int maxLimit, double smoothing) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.smoothing = smoothing;
+        this.estimatedLimit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.limit = (int) estimatedLimit;
+    }
+
+    /**
+     * Take a slot if fewer than limit requests are in flight. Every successful acquire
+     * should be followed by exactly one release.
+     */
+    boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    void release(long latencyNanos, boolean failed) {
+        int inFlightBefore = inFlight.getAndDecrement();
+        sample(latencyNanos, inFlightBefore, failed);
+    }
+
+    //True when all slots are taken
+    boolean saturated() {
+        return inFlight.get() >= limit;
+    }
+
+    int getLimit() {
+        return limit;
+    }
+
+    int getInFlight() {
+        return inFlight.get();
+    }
+
+    private synchronized void sample(long latencyNanos, int inFlightBefore, boolean failed) {
+        if (failed) {
+            estimatedLimit = Math.max(minLimit, estimatedLimit * BACKOFF);
+            limit = (int) estimatedLimit;
+            return;
+        }
+
+        double latency = Math.max(1, latencyNanos);
+        baselineNanos = baselineNanos == 0 ? latency : baselineNanos * (1 - BASELINE_WEIGHT) + latency * BASELINE_WEIGHT;
+
+        double gradient = Math.max(0.5, Math.min(1.0, baselineNanos / latency));
+        double newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+        if (newLimit > estimatedLimit && inFlightBefore * 2 < estimatedLimit) {
+            return;
+        }
+        estimatedLimit = estimatedLimit * (1 - smoothing) + newLimit * smoothing;
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, estimatedLimit));
+        limit = (int) estimatedLimit;
+    }
+}
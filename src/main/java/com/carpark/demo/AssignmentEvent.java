@@ -0,0 +1,44 @@
+package com.carpark.demo;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+/**
+ * Change of vehicle driver. driverId is null when driver was unassigned,
+ * previousDriverId is null when vehicle had no driver before.
+ */
+class AssignmentEvent {
+    private final long vehicleId;
+    private final Long driverId;
+    private final Long previousDriverId;
+    private final Instant changedAt;
+
+    AssignmentEvent(long vehicleId, Long driverId, Long previousDriverId, Instant changedAt) {
+        this.vehicleId = vehicleId;
+        this.driverId = driverId;
+        this.previousDriverId = previousDriverId;
+        this.changedAt = changedAt;
+    }
+
+    public long getVehicleId() {
+        return vehicleId;
+    }
+
+    public Long getDriverId() {
+        return driverId;
+    }
+
+    public Long getPreviousDriverId() {
+        return previousDriverId;
+    }
+
+    public Instant getChangedAt() {
+        return changedAt;
+    }
+
+    //History is partitioned by UTC day of change
+    static LocalDate day(Instant at) {
+        return at.atZone(ZoneOffset.UTC).toLocalDate();
+    }
+}
@@ -0,0 +1,22 @@
+package com.carpark.demo;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Append-only storage of assignment events partitioned by day (see AssignmentEvent.day).
+ * Queries only read partitions of days in the requested range.
+ */
+interface AssignmentHistory {
+    void append(List<AssignmentEvent> events);
+
+    //Events of vehicle with from <= changedAt < to, oldest first
+    List<AssignmentEvent> byVehicle(long vehicleId, Instant from, Instant to);
+
+    //Events where driver was assigned or unassigned with from <= changedAt < to, oldest first
+    List<AssignmentEvent> byDriver(long driverId, Instant from, Instant to);
+
+    //Drop whole partitions of days before given day, returns number of dropped partitions
+    int dropBefore(LocalDate day);
+}
@@ -0,0 +1,132 @@
+package com.carpark.demo;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Records driver changes of vehicles into AssignmentHistory.
+ *
+ * record() only queues the event, so requests changing drivers do not wait for history.
+ * flush() writes queued events in batches; a batch which failed is kept and written first
+ * on the next flush. Events show up in history queries after they are flushed.
+ * Partitions older than retention-days are dropped once a day.
+ *
+ * carpark.history.flush-interval-ms – delay between writes
+ * carpark.history.batch-size        – events per write
+ * carpark.history.max-pending       – events waiting for write before new ones are dropped
+ * carpark.history.retention-days    – days of history to keep
+ * carpark.history.retention-cron    – when to drop old partitions
+ *
+ * Metrics: carpark.history.written, carpark.history.dropped, carpark.history.pending (gauge)
+ */
+@Component
+class AssignmentLog {
+    private static final Logger log = LoggerFactory.getLogger(AssignmentLog.class);
+
+    private final ConcurrentLinkedQueue<AssignmentEvent> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    //Guarded by this, batch to retry on next flush
+    private List<AssignmentEvent> failed;
+
+    private final AssignmentHistory history;
+    private final int batchSize;
+    private final int maxPending;
+    private final int retentionDays;
+
+    private final Counter written;
+    private final Counter dropped;
+
+    AssignmentLog(AssignmentHistory history,
+                  MeterRegistry registry,
+                  @Value("${carpark.history.batch-size:1000}") int batchSize,
+                  @Value("${carpark.history.max-pending:100000}") int maxPending,
+                  @Value("${carpark.history.retention-days:365}") int retentionDays) {
+        this.history = history;
+        this.batchSize = batchSize;
+        this.maxPending = maxPending;
+        this.retentionDays = retentionDays;
+        this.written = registry.counter("carpark.history.written");
+        this.dropped = registry.counter("carpark.history.dropped");
+        registry.gauge("carpark.history.pending", pending);
+    }
+
+    /**
+     * Queue change of vehicle driver, nothing is recorded if driver did not change
+     */
+    void record(long vehicleId, Long previousDriverId, Long driverId) {
+        if (Objects.equals(previousDriverId, driverId)) {
+            return;
+        }
+        if (pending.incrementAndGet() > maxPending) {
+            pending.decrementAndGet();
+            dropped.increment();
+            log.warn("Assignment history queue is full, change of vehicle {} is not recorded", vehicleId);
+            return;
+        }
+        queue.add(new AssignmentEvent(vehicleId, driverId, previousDriverId, Instant.now()));
+    }
+
+    List<AssignmentEvent> byVehicle(long vehicleId, Instant from, Instant to) {
+        return history.byVehicle(vehicleId, from, to);
+    }
+
+    List<AssignmentEvent> byDriver(long driverId, Instant from, Instant to) {
+        return history.byDriver(driverId, from, to);
+    }
+
+    @Scheduled(fixedDelayString = "${carpark.history.flush-interval-ms:1000}")
+    synchronized void flush() {
+        while (true) {
+            List<AssignmentEvent> batch = failed;
+            failed = null;
+            if (batch == null) {
+                batch = new ArrayList<>(batchSize);
+                AssignmentEvent event;
+                while (batch.size() < batchSize && (event = queue.poll()) != null) {
+                    batch.add(event);
+                }
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+
+            try {
+                history.append(batch);
+            } catch (RuntimeException e) {
+                failed = batch;
+                log.error("Could not write {} assignment history events, will retry", batch.size(), e);
+                return;
+            }
+            pending.addAndGet(-batch.size());
+            written.increment(batch.size());
+        }
+    }
+
+    @Scheduled(cron = "${carpark.history.retention-cron:0 15 0 * * *}", zone = "UTC")
+    void dropExpired() {
+        LocalDate keepFrom = AssignmentEvent.day(Instant.now()).minusDays(retentionDays);
+        int partitions = history.dropBefore(keepFrom);
+        if (partitions > 0) {
+            log.info("Dropped {} assignment history partitions before {}", partitions, keepFrom);
+        }
+    }
+
+    @PreDestroy
+    void close() {
+        flush();
+    }
+}
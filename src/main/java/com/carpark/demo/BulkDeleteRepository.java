@@ -0,0 +1,31 @@
+package com.carpark.demo;
+
+import java.util.Collection;
+
+/**
+ * Set-based deletes of many vehicles or drivers, each call is one transaction.
+ *
+ * With ids, rows with these ids are deleted and ids which do not exist are skipped.
+ * With ids null, rows matching the filter are deleted: category null matches any category,
+ * unassignedOnly keeps vehicles which have a driver / drivers which have a vehicle.
+ * A filter delete takes at most MAX_IDS rows, the rest is left for the next call.
+ */
+interface BulkDeleteRepository {
+    //Most ids accepted by one bulk delete, and most rows one filter delete takes
+    int MAX_IDS = 100000;
+
+    enum DriverDeletion {
+        DELETED,
+        NOT_FOUND,
+        //Driver has a vehicle, it is not deleted
+        ASSIGNED
+    }
+
+    BulkDeletion deleteVehicles(Collection<Long> ids, Category category, boolean unassignedOnly);
+
+    //Vehicles of deleted drivers are kept and left without driver
+    BulkDeletion deleteDrivers(Collection<Long> ids, Category category, boolean unassignedOnly);
+
+    //Delete driver only if no vehicle has it, checked together with the delete
+    DriverDeletion deleteUnassignedDriver(long driverId);
+}
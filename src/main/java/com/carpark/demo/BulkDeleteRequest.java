@@ -0,0 +1,36 @@
+package com.carpark.demo;
+
+import java.util.List;
+
+/**
+ * Body of bulk delete: either ids, or filters (category and/or unassigned)
+ */
+class BulkDeleteRequest {
+    private List<Long> ids;
+    private Category category;
+    private Boolean unassigned;
+
+    public List<Long> getIds() {
+        return ids;
+    }
+
+    public void setIds(List<Long> ids) {
+        this.ids = ids;
+    }
+
+    public Category getCategory() {
+        return category;
+    }
+
+    public void setCategory(Category category) {
+        this.category = category;
+    }
+
+    public Boolean getUnassigned() {
+        return unassigned;
+    }
+
+    public void setUnassigned(Boolean unassigned) {
+        this.unassigned = unassigned;
+    }
+}
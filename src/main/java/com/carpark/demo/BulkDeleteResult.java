@@ -0,0 +1,66 @@
+package com.carpark.demo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Response of bulk delete with outcome of every requested id
+ * (with filters, of every deleted id)
+ */
+class BulkDeleteResult {
+    static final String DELETED = "DELETED";
+    static final String NOT_FOUND = "NOT_FOUND";
+
+    private int deleted;
+    private int notFound;
+    //Driver assignments ended by the delete
+    private int unassigned;
+    private final List<Outcome> results = new ArrayList<>();
+
+    void add(long id, String outcome) {
+        results.add(new Outcome(id, outcome));
+        if (DELETED.equals(outcome)) {
+            deleted++;
+        } else {
+            notFound++;
+        }
+    }
+
+    void setUnassigned(int unassigned) {
+        this.unassigned = unassigned;
+    }
+
+    public int getDeleted() {
+        return deleted;
+    }
+
+    public int getNotFound() {
+        return notFound;
+    }
+
+    public int getUnassigned() {
+        return unassigned;
+    }
+
+    public List<Outcome> getResults() {
+        return results;
+    }
+
+    static class Outcome {
+        private final long id;
+        private final String outcome;
+
+        Outcome(long id, String outcome) {
+            this.id = id;
+            this.outcome = outcome;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public String getOutcome() {
+            return outcome;
+        }
+    }
+}
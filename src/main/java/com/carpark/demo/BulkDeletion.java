@@ -0,0 +1,31 @@
+package com.carpark.demo;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * What a bulk delete changed: ids of deleted rows and driver assignments it ended
+ */
+class BulkDeletion {
+    private final List<Long> deleted = new ArrayList<>();
+    //Vehicle id to id of driver it had
+    private final Map<Long, Long> unassigned = new LinkedHashMap<>();
+
+    void deleted(long id) {
+        deleted.add(id);
+    }
+
+    void unassigned(long vehicleId, long driverId) {
+        unassigned.put(vehicleId, driverId);
+    }
+
+    List<Long> getDeleted() {
+        return deleted;
+    }
+
+    Map<Long, Long> getUnassigned() {
+        return unassigned;
+    }
+}
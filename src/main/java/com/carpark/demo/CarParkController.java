@@ -1,29 +1,66 @@
 package com.carpark.demo;
 
 import org.springframework.dao.DataIntegrityViolationException;
-import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import javax.validation.Valid;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 
 @RestController
 public class CarParkController {
+    //Most ids accepted by one multi-get request
+    static final int MAX_MULTI_GET_IDS = 10000;
+    //History range when "from" is not given
+    static final Duration DEFAULT_HISTORY_RANGE = Duration.ofDays(30);
 
     private final DriverRepository driverRepository;
     private final VehicleRepository vehicleRepository;
+    private final ProjectionRepository projectionRepository;
+    private final CoalescingReads coalescingReads;
+    private final ErrorResponses errorResponses;
+    private final TelemetryStore telemetryStore;
+    private final ParkingLot parkingLot;
+    private final AssignmentLog assignmentLog;
+    private final BulkDeleteRepository bulkDeleteRepository;
 
-    CarParkController(DriverRepository repository, VehicleRepository vehicleRepository) {
+    CarParkController(DriverRepository repository, VehicleRepository vehicleRepository,
+                      ProjectionRepository projectionRepository, CoalescingReads coalescingReads,
+                      ErrorResponses errorResponses, TelemetryStore telemetryStore, ParkingLot parkingLot,
+                      AssignmentLog assignmentLog, BulkDeleteRepository bulkDeleteRepository) {
         this.driverRepository = repository;
         this.vehicleRepository = vehicleRepository;
+        this.projectionRepository = projectionRepository;
+        this.coalescingReads = coalescingReads;
+        this.errorResponses = errorResponses;
+        this.telemetryStore = telemetryStore;
+        this.parkingLot = parkingLot;
+        this.assignmentLog = assignmentLog;
+        this.bulkDeleteRepository = bulkDeleteRepository;
     }
 
+    //Body is pre-encoded CustomResponse, see ErrorResponses
     ResponseEntity<?> generateCustomResponse(boolean success,String message, HttpStatus status){
-        return new ResponseEntity<>(new CustomResponse(success,message),status);
+        return errorResponses.response(success,message,status);
+    }
+
+    ResponseEntity<?> unknownFields(){
+        return generateCustomResponse(false,"Unknown field in fields parameter", HttpStatus.BAD_REQUEST);
+    }
+
+    static Long driverId(Driver driver){
+        return driver!=null ? driver.getId() : null;
     }
 
     /**
@@ -38,19 +75,83 @@ public class CarParkController {
      *
      * Example : GET localhost:8080/drivers?sort=asc will return drivers with names sorted in ascending order
      *
+     * Optional parameter “fields” limits returned fields to comma separated list
+     * of “id”, “name”, “licenseNum”, “category”. Only these columns are read from database.
+     * This parameter is supported by all endpoints returning drivers or vehicles.
+     *
+     * Example : GET localhost:8080/drivers?fields=id,name
+     *
      * Return :
      * Status 200 with list of drivers entities
+     * Status 400 if fields contain unknown field
      */
     @GetMapping(value = "/drivers", produces = "application/json")
-    List<Driver> allDrivers(@RequestParam(required = false) String sort) {
+    ResponseEntity<?> allDrivers(@RequestParam(required = false) String sort,
+                                 @RequestParam(required = false) String fields) {
+        if(fields!=null){
+            List<String> selected = ProjectionRepository.parseFields(fields, ProjectionRepository.DRIVER_FIELDS);
+            if(selected==null){
+                return unknownFields();
+            }
+            return new ResponseEntity<>(projectionRepository.allDrivers(selected, sort), HttpStatus.OK);
+        }
 
         if(sort!=null && sort.equals("asc")){
-            return driverRepository.findByOrderByNameAsc();
+            return new ResponseEntity<>(driverRepository.findByOrderByNameAsc(), HttpStatus.OK);
         }else if(sort!=null && sort.equals("desc")){
-            return driverRepository.findByOrderByNameDesc();
+            return new ResponseEntity<>(driverRepository.findByOrderByNameDesc(), HttpStatus.OK);
         }else{
-            return driverRepository.findAll();
+            return new ResponseEntity<>(driverRepository.findAll(), HttpStatus.OK);
+        }
+    }
+
+    /**
+     * Return drivers with ids specified, in the same order as ids.
+     *
+     * Method: GET
+     * URL :  localhost:8080/drivers?ids=3,1,7
+     *
+     * All drivers are loaded with one query (one per 1000 ids for longer lists).
+     * For long lists use POST localhost:8080/drivers/by-ids
+     *
+     * Return :
+     * Status 200 with list of entries, one per requested id:
+     * { "id": 3, "found": true, "item": { driver entity } } or { "id": 7, "found": false }
+     * Status 400 if more than 10000 ids requested or fields contain unknown field
+     */
+    @GetMapping(value = "/drivers", params = "ids", produces = "application/json")
+    ResponseEntity<?> driversByIds(@RequestParam List<Long> ids, @RequestParam(required = false) String fields) {
+        if(ids.size()>MAX_MULTI_GET_IDS){
+            return generateCustomResponse(false,"Too many ids", HttpStatus.BAD_REQUEST);
+        }
+        if(fields!=null){
+            List<String> selected = ProjectionRepository.parseFields(fields, ProjectionRepository.DRIVER_FIELDS);
+            if(selected==null){
+                return unknownFields();
+            }
+            return new ResponseEntity<>(
+                    MultiGetEntry.resolve(ids, chunk -> projectionRepository.driversByIds(chunk, selected)),
+                    HttpStatus.OK
+            );
         }
+        return new ResponseEntity<>(
+                MultiGetEntry.resolve(ids, driverRepository::findAllById, Driver::getId),
+                HttpStatus.OK
+        );
+    }
+
+    /**
+     * Same as GET localhost:8080/drivers?ids=... with ids in request body
+     *
+     * Method: POST
+     * URL :  localhost:8080/drivers/by-ids
+     *
+     * Request Body:
+     * [3, 1, 7]
+     */
+    @PostMapping(value = "/drivers/by-ids", produces = "application/json")
+    ResponseEntity<?> driversByIdsBody(@RequestBody List<Long> ids, @RequestParam(required = false) String fields) {
+        return driversByIds(ids, fields);
     }
 
     /**
@@ -109,7 +210,7 @@ public class CarParkController {
      * */
     @GetMapping(value = "/drivers/licenses/{licenseNum}", produces = "application/json")
     ResponseEntity<?> checkLicensePresent(@PathVariable String licenseNum){
-        boolean isLicenseNumPresent = driverRepository.findByLicenseNum(licenseNum).isPresent();
+        boolean isLicenseNumPresent = driverRepository.findByLicenseNum(FleetFormats.normalize(licenseNum)).isPresent();
         return new ResponseEntity<>(isLicenseNumPresent ? HttpStatus.OK : HttpStatus.BAD_REQUEST);
     }
 
@@ -127,8 +228,21 @@ public class CarParkController {
      * Status 400 if driver with such id doesn’t exists
      * */
     @GetMapping(value = "/drivers/{driverId}", produces = "application/json")
-    ResponseEntity<?> driverById(@PathVariable Long driverId) {
-        Optional<Driver> foundDriver = driverRepository.findById(driverId);
+    ResponseEntity<?> driverById(@PathVariable Long driverId, @RequestParam(required = false) String fields) {
+        if(fields!=null){
+            List<String> selected = ProjectionRepository.parseFields(fields, ProjectionRepository.DRIVER_FIELDS);
+            if(selected==null){
+                return unknownFields();
+            }
+            Optional<Map<String, Object>> driver = projectionRepository.driverById(driverId, selected);
+            if(driver.isPresent()){
+                return new ResponseEntity<>(driver.get(), HttpStatus.OK);
+            }else{
+                return generateCustomResponse(false,"Driver not found", HttpStatus.BAD_REQUEST);
+            }
+        }
+
+        Optional<Driver> foundDriver = coalescingReads.driverById(driverId);
         if(foundDriver.isPresent()){
             return  new ResponseEntity<>(foundDriver,HttpStatus.OK);
         }else{
@@ -152,15 +266,15 @@ public class CarParkController {
      * */
     @DeleteMapping(value = "/drivers/{driverId}", produces = "application/json")
     ResponseEntity<?> deleteDriver(@PathVariable Long driverId) {
-        try{
-            driverRepository.deleteById(driverId);
-            return new ResponseEntity<>(HttpStatus.OK);
-        }catch (EmptyResultDataAccessException e){
-            return generateCustomResponse(false,"No driver with such id", HttpStatus.BAD_REQUEST);
-        }catch (Exception e){
-            return generateCustomResponse(false,"Driver is assigned to car", HttpStatus.BAD_REQUEST);
+        //Check and delete are one step, a driver assigned meanwhile is not deleted
+        switch(bulkDeleteRepository.deleteUnassignedDriver(driverId)){
+            case DELETED:
+                return new ResponseEntity<>(HttpStatus.OK);
+            case ASSIGNED:
+                return generateCustomResponse(false,"Driver is assigned to car", HttpStatus.BAD_REQUEST);
+            default:
+                return generateCustomResponse(false,"No driver with such id", HttpStatus.BAD_REQUEST);
         }
-
     }
 
     /**
@@ -224,10 +338,20 @@ public class CarParkController {
      * Status 400 if driver with such id doesn’t exists
      * */
     @GetMapping(value = "/drivers/{driverId}/cars", produces = "application/json")
-    ResponseEntity<?> driversCars(@PathVariable Long driverId){
-        if(driverRepository.findById(driverId).isPresent()){
+    ResponseEntity<?> driversCars(@PathVariable Long driverId, @RequestParam(required = false) String fields){
+        List<String> selected = null;
+        if(fields!=null){
+            selected = ProjectionRepository.parseFields(fields, ProjectionRepository.VEHICLE_FIELDS);
+            if(selected==null){
+                return unknownFields();
+            }
+        }
+
+        if(coalescingReads.driverById(driverId).isPresent()){
             return new ResponseEntity<>(
-                    vehicleRepository.findByDriverId(driverId),
+                    selected!=null
+                            ? projectionRepository.vehiclesByDriverId(driverId, selected)
+                            : coalescingReads.vehiclesByDriverId(driverId),
                     HttpStatus.OK
             );
         }else{
@@ -246,7 +370,14 @@ public class CarParkController {
      * Status 200 and array (can be empty) of drivers entity in response body
      * */
     @GetMapping(value = "/drivers/withoutcar", produces = "application/json")
-    ResponseEntity<?> driversNoCar(){
+    ResponseEntity<?> driversNoCar(@RequestParam(required = false) String fields){
+        if(fields!=null){
+            List<String> selected = ProjectionRepository.parseFields(fields, ProjectionRepository.DRIVER_FIELDS);
+            if(selected==null){
+                return unknownFields();
+            }
+            return new ResponseEntity<>(projectionRepository.driversWithoutCar(selected),HttpStatus.OK);
+        }
         return new ResponseEntity<>(driverRepository.noCars(),HttpStatus.OK);
     }
 
@@ -256,12 +387,74 @@ public class CarParkController {
      * Method: GET
      * URL :  localhost:8080/vehicles
      *
+     * Optional parameter “fields” limits returned fields to comma separated list
+     * of “id”, “plateNum”, “category”, “driver”. Driver is joined only if “driver” is listed.
+     *
+     * Example : GET localhost:8080/vehicles?fields=id,plateNum
+     *
      * Return :
      * Status 200 with list of drivers entities
+     * Status 400 if fields contain unknown field
      * */
     @GetMapping(value = "/vehicles", produces = "application/json")
-    List<Vehicle> allCars() {
-        return vehicleRepository.findAll();
+    ResponseEntity<?> allCars(@RequestParam(required = false) String fields) {
+        if(fields!=null){
+            List<String> selected = ProjectionRepository.parseFields(fields, ProjectionRepository.VEHICLE_FIELDS);
+            if(selected==null){
+                return unknownFields();
+            }
+            return new ResponseEntity<>(projectionRepository.allVehicles(selected), HttpStatus.OK);
+        }
+        return new ResponseEntity<>(vehicleRepository.findAll(), HttpStatus.OK);
+    }
+
+    /**
+     * Return vehicles with ids specified, in the same order as ids.
+     *
+     * Method: GET
+     * URL :  localhost:8080/vehicles?ids=3,1,7
+     *
+     * All vehicles are loaded together with their drivers with one query (one per 1000 ids for longer lists).
+     * For long lists use POST localhost:8080/vehicles/by-ids
+     *
+     * Return :
+     * Status 200 with list of entries, one per requested id:
+     * { "id": 3, "found": true, "item": { vehicle entity } } or { "id": 7, "found": false }
+     * Status 400 if more than 10000 ids requested or fields contain unknown field
+     */
+    @GetMapping(value = "/vehicles", params = "ids", produces = "application/json")
+    ResponseEntity<?> vehiclesByIds(@RequestParam List<Long> ids, @RequestParam(required = false) String fields) {
+        if(ids.size()>MAX_MULTI_GET_IDS){
+            return generateCustomResponse(false,"Too many ids", HttpStatus.BAD_REQUEST);
+        }
+        if(fields!=null){
+            List<String> selected = ProjectionRepository.parseFields(fields, ProjectionRepository.VEHICLE_FIELDS);
+            if(selected==null){
+                return unknownFields();
+            }
+            return new ResponseEntity<>(
+                    MultiGetEntry.resolve(ids, chunk -> projectionRepository.vehiclesByIds(chunk, selected)),
+                    HttpStatus.OK
+            );
+        }
+        return new ResponseEntity<>(
+                MultiGetEntry.resolve(ids, vehicleRepository::findAllWithDriverByIdIn, Vehicle::getId),
+                HttpStatus.OK
+        );
+    }
+
+    /**
+     * Same as GET localhost:8080/vehicles?ids=... with ids in request body
+     *
+     * Method: POST
+     * URL :  localhost:8080/vehicles/by-ids
+     *
+     * Request Body:
+     * [3, 1, 7]
+     */
+    @PostMapping(value = "/vehicles/by-ids", produces = "application/json")
+    ResponseEntity<?> vehiclesByIdsBody(@RequestBody List<Long> ids, @RequestParam(required = false) String fields) {
+        return vehiclesByIds(ids, fields);
     }
 
     /**
@@ -274,8 +467,15 @@ public class CarParkController {
      * Status 200 with list of vehicle without driver
      * */
     @GetMapping(value = "/vehicles/no-driver", produces = "application/json")
-    List<Vehicle> noDriver() {
-        return vehicleRepository.findByDriver(null);
+    ResponseEntity<?> noDriver(@RequestParam(required = false) String fields) {
+        if(fields!=null){
+            List<String> selected = ProjectionRepository.parseFields(fields, ProjectionRepository.VEHICLE_FIELDS);
+            if(selected==null){
+                return unknownFields();
+            }
+            return new ResponseEntity<>(projectionRepository.vehiclesWithoutDriver(selected), HttpStatus.OK);
+        }
+        return new ResponseEntity<>(vehicleRepository.findByDriver(null), HttpStatus.OK);
     }
 
     /**
@@ -286,20 +486,131 @@ public class CarParkController {
      *
      * {id} is an id of driver you want to get
      *
+     * Optional parameter “include=telemetry” wraps vehicle together with its latest telemetry
+     * (null if vehicle has not sent any), telemetry is read from memory, not from database.
+     *
+     * Example : GET localhost:8080/vehicles/3?include=telemetry will return
+     * {"vehicle": {...}, "telemetry": {"vehicleId": 3, "latitude": 41.31, ...}}
+     *
      * Return:
      *
      * Status 200 and vehicle entity in response body if vehicle with such id exists
      * Status 400 if vehicle with such id doesn’t exists
      * */
     @GetMapping(value = "/vehicles/{vehicleId}",produces = "application/json")
-    ResponseEntity<?> getVehicleById(@PathVariable Long vehicleId){
-        Optional<Vehicle> vehicle = vehicleRepository.findById(vehicleId);
-        if(vehicle.isPresent()){
-            return new ResponseEntity<>(vehicle.get(), HttpStatus.OK);
+    ResponseEntity<?> getVehicleById(@PathVariable Long vehicleId, @RequestParam(required = false) String fields,
+                                     @RequestParam(required = false) String include){
+        Object body;
+        if(fields!=null){
+            List<String> selected = ProjectionRepository.parseFields(fields, ProjectionRepository.VEHICLE_FIELDS);
+            if(selected==null){
+                return unknownFields();
+            }
+            Optional<Map<String, Object>> vehicle = projectionRepository.vehicleById(vehicleId, selected);
+            if(!vehicle.isPresent()){
+                return generateCustomResponse(false,"No such vehicle", HttpStatus.BAD_REQUEST);
+            }
+            body = vehicle.get();
         }else{
-            return generateCustomResponse(false,"No such vehicle", HttpStatus.BAD_REQUEST);
+            Optional<Vehicle> vehicle = coalescingReads.vehicleById(vehicleId);
+            if(!vehicle.isPresent()){
+                return generateCustomResponse(false,"No such vehicle", HttpStatus.BAD_REQUEST);
+            }
+            body = vehicle.get();
         }
 
+        if(include!=null && include.equals("telemetry")){
+            Map<String, Object> withTelemetry = new LinkedHashMap<>();
+            withTelemetry.put("vehicle", body);
+            withTelemetry.put("telemetry", telemetryStore.get(vehicleId));
+            body = withTelemetry;
+        }
+        return new ResponseEntity<>(body, HttpStatus.OK);
+    }
+
+    /**
+     *Return latest telemetry of vehicle with id specified
+     *
+     * Method: GET
+     * URL: localhost:8080/vehicles/{vehicleId}/telemetry
+     *
+     * Return:
+     *
+     * Status 200 and latest telemetry in body
+     * Status 400 if vehicle has not sent telemetry
+     * */
+    @GetMapping(value = "/vehicles/{vehicleId}/telemetry",produces = "application/json")
+    ResponseEntity<?> getTelemetry(@PathVariable Long vehicleId){
+        TelemetryState state = telemetryStore.get(vehicleId);
+        if(state!=null){
+            return new ResponseEntity<>(state, HttpStatus.OK);
+        }else{
+            return generateCustomResponse(false,"No telemetry for this vehicle", HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     *Record position and odometer of vehicle
+     *
+     * Method: POST
+     * URL: localhost:8080/vehicles/{vehicleId}/telemetry
+     *
+     * Request Body:
+     * {
+     *     "latitude": 41.311081,
+     *     "longitude": 69.240562,
+     *     "odometer": 125034.5,
+     *     "recordedAt": "2020-10-12T08:15:30Z"
+     * }
+     *
+     * Parameters:
+     * latitude, longitude – position in degrees
+     * odometer – optional, kilometers
+     * recordedAt – optional, time of measurement, time of receiving if not set
+     *
+     * Update older than already known one is accepted but ignored.
+     * Only latest state is kept in memory, history is written in background with at most
+     * one sample per vehicle per carpark.telemetry.history-interval-ms.
+     *
+     * Return:
+     *
+     * Status 200 if update was accepted
+     * Status 400 with description in body if vehicle doesn’t exist or body is invalid
+     * */
+    @PostMapping(value = "/vehicles/{vehicleId}/telemetry",produces = "application/json")
+    ResponseEntity<?> reportTelemetry(@Valid @RequestBody TelemetryReport report, @PathVariable Long vehicleId){
+        if(telemetryStore.update(vehicleId, report)){
+            return new ResponseEntity<>(HttpStatus.OK);
+        }else{
+            return generateCustomResponse(false,"No such vehicle",HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     *Record telemetry of many vehicles
+     *
+     * Method: POST
+     * URL: localhost:8080/vehicles/telemetry
+     *
+     * Request Body:
+     * {
+     *     "reports": [
+     *         {"vehicleId": 3, "latitude": 41.311081, "longitude": 69.240562, "recordedAt": "2020-10-12T08:15:30Z"},
+     *         {"vehicleId": 4, "latitude": 41.299496, "longitude": 69.240073, "odometer": 5120.0}
+     *     ]
+     * }
+     *
+     * Reports have the same fields as in single update plus vehicleId.
+     *
+     * Return:
+     *
+     * Status 200 with {"accepted": 1, "unknownVehicleIds": [4]}, reports of unknown vehicles are skipped
+     * Status 400 with description in body if any report is invalid or there are more than 10000 reports,
+     * then nothing is recorded
+     * */
+    @PostMapping(value = "/vehicles/telemetry",produces = "application/json")
+    ResponseEntity<?> reportTelemetryBatch(@Valid @RequestBody TelemetryBatch batch){
+        return new ResponseEntity<>(telemetryStore.updateAll(batch.getReports()), HttpStatus.OK);
     }
 
     /**
@@ -314,11 +625,21 @@ public class CarParkController {
      * Status 400 if vehicle with such id doesn’t exists
      * */
     @GetMapping(value = "/vehicles/{vehicleId}/possible-drivers",produces = "application/json")
-    ResponseEntity<?> possibleDrivers(@PathVariable Long vehicleId){
-        Optional<Vehicle> vehicle = vehicleRepository.findById(vehicleId);
+    ResponseEntity<?> possibleDrivers(@PathVariable Long vehicleId, @RequestParam(required = false) String fields){
+        List<String> selected = null;
+        if(fields!=null){
+            selected = ProjectionRepository.parseFields(fields, ProjectionRepository.DRIVER_FIELDS);
+            if(selected==null){
+                return unknownFields();
+            }
+        }
+
+        Optional<Vehicle> vehicle = coalescingReads.vehicleById(vehicleId);
         if(vehicle.isPresent()){
             return new ResponseEntity<>(
-                    driverRepository.findByCategory(vehicle.get().getCategory()),
+                    selected!=null
+                            ? projectionRepository.driversByCategory(vehicle.get().getCategory(), selected)
+                            : coalescingReads.driversByCategory(vehicle.get().getCategory()),
                     HttpStatus.OK
             );
         }else{
@@ -327,6 +648,118 @@ public class CarParkController {
 
     }
 
+    /**
+     *Park vehicle in the nearest free slot for its category
+     *
+     * Method: POST
+     * URL: localhost:8080/vehicles/{vehicleId}/park
+     *
+     * Optional parameter “zone” restricts parking to one zone, otherwise zones of vehicle
+     * category are tried in configured order.
+     *
+     * Example : POST localhost:8080/vehicles/3/park?zone=C2
+     *
+     * Return:
+     *
+     * Status 200 and taken spot in body, e.g. {"vehicleId": 3, "zone": "C2", "slot": 1, "parkedAt": "..."}
+     * Status 400 with description in body if vehicle doesn’t exist, is already parked or there is no free slot
+     * */
+    @PostMapping(value = "/vehicles/{vehicleId}/park",produces = "application/json")
+    ResponseEntity<?> park(@PathVariable Long vehicleId, @RequestParam(required = false) String zone){
+        //Not coalesced, a shared read may predate a delete of the vehicle
+        Optional<Vehicle> vehicle = vehicleRepository.findById(vehicleId);
+        if(!vehicle.isPresent()){
+            return generateCustomResponse(false,"No such vehicle",HttpStatus.BAD_REQUEST);
+        }
+        if(parkingLot.spotOf(vehicleId)!=null){
+            return generateCustomResponse(false,"Vehicle is already parked",HttpStatus.BAD_REQUEST);
+        }
+
+        Category category = vehicle.get().getCategory();
+        ParkingZone parkingZone = null;
+        if(zone!=null){
+            parkingZone = parkingLot.zone(zone);
+            if(parkingZone==null){
+                return generateCustomResponse(false,"No such parking zone",HttpStatus.BAD_REQUEST);
+            }
+            if(parkingZone.getCategory()!=category){
+                return generateCustomResponse(false,"Parking zone is not for this category",HttpStatus.BAD_REQUEST);
+            }
+        }else if(!parkingLot.hasZonesFor(category)){
+            return generateCustomResponse(false,"No parking zone for this category",HttpStatus.BAD_REQUEST);
+        }
+
+        ParkingSpot spot = parkingLot.park(vehicleId, category, parkingZone);
+        if(spot!=null){
+            //Vehicle may have been deleted, and its spot freed by afterDelete, before the spot was taken.
+            //A delete after this check frees the spot itself
+            if(!vehicleRepository.existsById(vehicleId)){
+                parkingLot.leave(vehicleId);
+                return generateCustomResponse(false,"No such vehicle",HttpStatus.BAD_REQUEST);
+            }
+            return new ResponseEntity<>(spot,HttpStatus.OK);
+        }else{
+            return generateCustomResponse(false,"No free parking slot",HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     *Free parking slot of vehicle
+     *
+     * Method: DELETE
+     * URL: localhost:8080/vehicles/{vehicleId}/park
+     *
+     * Return:
+     *
+     * Status 200 and freed spot in body
+     * Status 400 if vehicle is not parked
+     * */
+    @DeleteMapping(value = "/vehicles/{vehicleId}/park",produces = "application/json")
+    ResponseEntity<?> leave(@PathVariable Long vehicleId){
+        ParkingSpot spot = parkingLot.leave(vehicleId);
+        if(spot!=null){
+            return new ResponseEntity<>(spot,HttpStatus.OK);
+        }else{
+            return generateCustomResponse(false,"Vehicle is not parked",HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     *Return parking spot of vehicle
+     *
+     * Method: GET
+     * URL: localhost:8080/vehicles/{vehicleId}/park
+     *
+     * Return:
+     *
+     * Status 200 and spot in body
+     * Status 400 if vehicle is not parked
+     * */
+    @GetMapping(value = "/vehicles/{vehicleId}/park",produces = "application/json")
+    ResponseEntity<?> getSpot(@PathVariable Long vehicleId){
+        ParkingSpot spot = parkingLot.spotOf(vehicleId);
+        if(spot!=null){
+            return new ResponseEntity<>(spot,HttpStatus.OK);
+        }else{
+            return generateCustomResponse(false,"Vehicle is not parked",HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     *Return parking zones with number of free slots
+     *
+     * Method: GET
+     * URL: localhost:8080/parking/zones
+     *
+     * Return:
+     *
+     * Status 200 and list of zones, e.g. [{"name": "M1", "category": "MOTORCYCLE", "slots": 40, "free": 37}]
+     * */
+    @GetMapping(value = "/parking/zones",produces = "application/json")
+    ResponseEntity<?> parkingZones(){
+        return new ResponseEntity<>(parkingLot.zones(),HttpStatus.OK);
+    }
+
     /**
      *Unassign driver from vehicle with id specified
      *
@@ -346,8 +779,11 @@ public class CarParkController {
         if(vehicle.isPresent()){
             if(vehicle.get().getDriver()!=null){
                 Vehicle v = vehicle.get();
+                Long previousDriverId = driverId(v.getDriver());
                 v.setDriver(null);
-                return new ResponseEntity<>(vehicleRepository.save(v),HttpStatus.OK);
+                Vehicle saved = vehicleRepository.save(v);
+                assignmentLog.record(vehicleId, previousDriverId, null);
+                return new ResponseEntity<>(saved,HttpStatus.OK);
             }else{
                 return generateCustomResponse(false,"Vehicle does not have driver",HttpStatus.BAD_REQUEST);
             }
@@ -387,8 +823,11 @@ public class CarParkController {
                 Optional<Driver> driver = driverRepository.findById(newDriver.getId());
                 if(driver.isPresent()){
                     if(driver.get().getCategory()==vehicle.get().getCategory()){
+                        Long previousDriverId = driverId(vehicle.get().getDriver());
                         vehicle.get().setDriver(driver.get());
-                        return new ResponseEntity<>(vehicleRepository.save(vehicle.get()),HttpStatus.OK);
+                        Vehicle saved = vehicleRepository.save(vehicle.get());
+                        assignmentLog.record(vehicleId, previousDriverId, driver.get().getId());
+                        return new ResponseEntity<>(saved,HttpStatus.OK);
                     }else{
                         return generateCustomResponse(false,"Driver not allowed to drive this vehicle",HttpStatus.BAD_REQUEST);
                     }
@@ -419,14 +858,119 @@ public class CarParkController {
      * */
     @DeleteMapping(value = "/vehicles/{vehicleId}", produces = "application/json")
     ResponseEntity<?> deleteVehicle(@PathVariable Long vehicleId) {
-        try{
-            driverRepository.deleteById(vehicleId);
+        BulkDeletion deletion = bulkDeleteRepository.deleteVehicles(Collections.singletonList(vehicleId), null, false);
+        if(!deletion.getDeleted().isEmpty()){
+            afterDelete(deletion, true);
             return new ResponseEntity<>(HttpStatus.OK);
-        }catch (EmptyResultDataAccessException e){
+        }else{
             return generateCustomResponse(false,"No vehicle with such id", HttpStatus.BAD_REQUEST);
         }
     }
 
+    /**
+     *Delete many vehicles at once
+     *
+     * Method: POST
+     * URL: localhost:8080/vehicles:bulkDelete
+     *
+     * Request Body, either ids:
+     * {
+     *     "ids": [3, 4, 5]
+     * }
+     * or filters:
+     * {
+     *     "category": "TRUCK",
+     *     "unassigned": true
+     * }
+     *
+     * Parameters:
+     * ids – up to 100000 vehicle ids
+     * category – delete vehicles of this category
+     * unassigned – true to delete only vehicles without driver
+     *
+     * All vehicles are deleted in one transaction with a few set-based statements.
+     * Filters delete at most 100000 vehicles per request, repeat the request while it deletes that many.
+     *
+     * Return:
+     *
+     * Status 200 with {"deleted": 2, "notFound": 1, "unassigned": 1, "results": [{"id": 3, "outcome": "DELETED"}, ...]},
+     * outcome is “DELETED” or “NOT_FOUND” for every requested id, ids repeated in request are reported once
+     * Status 400 if body has neither ids nor filters, or both
+     * */
+    @PostMapping(value = "/vehicles:bulkDelete", produces = "application/json")
+    ResponseEntity<?> bulkDeleteVehicles(@RequestBody BulkDeleteRequest request){
+        return bulkDelete(request, true);
+    }
+
+    /**
+     *Delete many drivers at once
+     *
+     * Method: POST
+     * URL: localhost:8080/drivers:bulkDelete
+     *
+     * Request Body is the same as for vehicles:bulkDelete, “unassigned” selects drivers without vehicle.
+     * Vehicles of deleted drivers are kept and left without driver.
+     *
+     * Return:
+     *
+     * Status 200 with outcome of every requested id, as for vehicles:bulkDelete
+     * Status 400 if body has neither ids nor filters, or both
+     * */
+    @PostMapping(value = "/drivers:bulkDelete", produces = "application/json")
+    ResponseEntity<?> bulkDeleteDrivers(@RequestBody BulkDeleteRequest request){
+        return bulkDelete(request, false);
+    }
+
+    ResponseEntity<?> bulkDelete(BulkDeleteRequest request, boolean vehicles){
+        List<Long> ids = request.getIds();
+        boolean unassignedOnly = Boolean.TRUE.equals(request.getUnassigned());
+        if(ids!=null && (request.getCategory()!=null || request.getUnassigned()!=null)){
+            return generateCustomResponse(false,"Body should contain either ids or filters",HttpStatus.BAD_REQUEST);
+        }
+        if(ids==null && request.getCategory()==null && !unassignedOnly){
+            return generateCustomResponse(false,"Body should contain ids or at least one filter",HttpStatus.BAD_REQUEST);
+        }
+        if(ids!=null && ids.size()>BulkDeleteRepository.MAX_IDS){
+            return generateCustomResponse(false,"At most "+BulkDeleteRepository.MAX_IDS+" ids are allowed",HttpStatus.BAD_REQUEST);
+        }
+        if(ids!=null && ids.contains(null)){
+            return generateCustomResponse(false,"Ids can not be null",HttpStatus.BAD_REQUEST);
+        }
+
+        BulkDeletion deletion = vehicles
+                ? bulkDeleteRepository.deleteVehicles(ids, request.getCategory(), unassignedOnly)
+                : bulkDeleteRepository.deleteDrivers(ids, request.getCategory(), unassignedOnly);
+        afterDelete(deletion, vehicles);
+
+        BulkDeleteResult result = new BulkDeleteResult();
+        if(ids!=null){
+            Set<Long> deleted = new HashSet<>(deletion.getDeleted());
+            //A repeated id is one row, it gets one outcome
+            for(Long id : new LinkedHashSet<>(ids)){
+                result.add(id, deleted.contains(id) ? BulkDeleteResult.DELETED : BulkDeleteResult.NOT_FOUND);
+            }
+        }else{
+            for(Long id : deletion.getDeleted()){
+                result.add(id, BulkDeleteResult.DELETED);
+            }
+        }
+        result.setUnassigned(deletion.getUnassigned().size());
+        return new ResponseEntity<>(result,HttpStatus.OK);
+    }
+
+    //History of ended assignments, and state kept in memory for deleted vehicles
+    void afterDelete(BulkDeletion deletion, boolean vehicles){
+        for(Map.Entry<Long, Long> unassigned : deletion.getUnassigned().entrySet()){
+            assignmentLog.record(unassigned.getKey(), unassigned.getValue(), null);
+        }
+        if(vehicles){
+            for(Long vehicleId : deletion.getDeleted()){
+                telemetryStore.evict(vehicleId);
+                parkingLot.leave(vehicleId);
+            }
+        }
+    }
+
     /**
      *Add vehicle specified in request body
      *
@@ -461,10 +1005,9 @@ public class CarParkController {
                 if(driver.isPresent()){
                     if(driver.get().getCategory()==newVehicle.getCategory()){
                         newVehicle.setDriver(driver.get());
-                        return new ResponseEntity<>(
-                                vehicleRepository.save(newVehicle),
-                                HttpStatus.OK
-                        );
+                        Vehicle saved = vehicleRepository.save(newVehicle);
+                        assignmentLog.record(saved.getId(), null, driver.get().getId());
+                        return new ResponseEntity<>(saved, HttpStatus.OK);
                     }else{
                         return generateCustomResponse(false,"Driver not allowed to drive this vehicle",HttpStatus.BAD_REQUEST);
                     }
@@ -515,6 +1058,7 @@ public class CarParkController {
 
         if(vehicle.isPresent()){
             Vehicle editedVehicle=vehicle.get();
+            Long previousDriverId = driverId(editedVehicle.getDriver());
 
             if(vehicleEdits.getPlateNum()!=null){
                 boolean samePlateFound = vehicleRepository.findByPlateNum(vehicleEdits.getPlateNum()).isPresent();
@@ -542,7 +1086,9 @@ public class CarParkController {
             if(editedVehicle.getCategory()!=editedVehicle.getDriver().getCategory()){
                 return generateCustomResponse(false,"Driver not allowed to drive this vehicle", HttpStatus.BAD_REQUEST);
             }else{
-                return new ResponseEntity<>(vehicleRepository.save(editedVehicle),HttpStatus.OK);
+                Vehicle saved = vehicleRepository.save(editedVehicle);
+                assignmentLog.record(vehicleId, previousDriverId, driverId(saved.getDriver()));
+                return new ResponseEntity<>(saved,HttpStatus.OK);
             }
 
         }else{
@@ -550,4 +1096,59 @@ public class CarParkController {
         }
     }
 
+    /**
+     *Return driver changes of vehicle
+     *
+     * Method: GET
+     * URL: localhost:8080/vehicles/{vehicleId}/history
+     *
+     * Optional parameters “from” and “to” limit changes to from <= time < to,
+     * ISO-8601 instants like “2020-10-12T00:00:00Z”. Default “to” is now, default “from” is 30 days before “to”.
+     * Only history partitions of days in range are read. Changes appear in history about a second after they are made.
+     *
+     * Example : GET localhost:8080/vehicles/3/history?from=2020-10-06T00:00:00Z&to=2020-10-07T00:00:00Z
+     *
+     * Return:
+     *
+     * Status 200 and list of changes, oldest first, e.g. [{"vehicleId": 3, "driverId": 5, "previousDriverId": null, "changedAt": "..."}]
+     * Status 400 if “from” is not before “to”
+     * */
+    @GetMapping(value = "/vehicles/{vehicleId}/history",produces = "application/json")
+    ResponseEntity<?> vehicleHistory(@PathVariable Long vehicleId,
+                                     @RequestParam(required = false) Instant from,
+                                     @RequestParam(required = false) Instant to){
+        Instant end = to!=null ? to : Instant.now();
+        Instant start = from!=null ? from : end.minus(DEFAULT_HISTORY_RANGE);
+        if(!start.isBefore(end)){
+            return generateCustomResponse(false,"from should be before to",HttpStatus.BAD_REQUEST);
+        }
+        return new ResponseEntity<>(assignmentLog.byVehicle(vehicleId, start, end),HttpStatus.OK);
+    }
+
+    /**
+     *Return vehicle assignments of driver
+     *
+     * Method: GET
+     * URL: localhost:8080/drivers/{driverId}/history
+     *
+     * Returns changes where driver was assigned to or unassigned from a vehicle,
+     * parameters “from” and “to” work as for vehicle history.
+     *
+     * Return:
+     *
+     * Status 200 and list of changes, oldest first
+     * Status 400 if “from” is not before “to”
+     * */
+    @GetMapping(value = "/drivers/{driverId}/history",produces = "application/json")
+    ResponseEntity<?> driverHistory(@PathVariable Long driverId,
+                                    @RequestParam(required = false) Instant from,
+                                    @RequestParam(required = false) Instant to){
+        Instant end = to!=null ? to : Instant.now();
+        Instant start = from!=null ? from : end.minus(DEFAULT_HISTORY_RANGE);
+        if(!start.isBefore(end)){
+            return generateCustomResponse(false,"from should be before to",HttpStatus.BAD_REQUEST);
+        }
+        return new ResponseEntity<>(assignmentLog.byDriver(driverId, start, end),HttpStatus.OK);
+    }
+
 }
@@ -0,0 +1,90 @@
+package com.carpark.demo;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.*;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * Runs at most one load per key at a time.
+ *
+ * The first caller for a key runs the load on its own thread, callers asking for the same key
+ * while it is in flight wait for its result instead of running their own query.
+ * If the shared load takes longer than timeout, waiting caller stops waiting and loads by itself.
+ *
+ * A loaded value belongs to the caller which loaded it, every waiting caller gets its own copy
+ * made by copy, so no object (e.g. an entity managed by the loading caller`s persistence context)
+ * is handed to several threads.
+ *
+ * Metrics (tagged with loader name):
+ * carpark.coalescing.queries  – loads actually run
+ * carpark.coalescing.saved    – calls answered by another caller`s load
+ * carpark.coalescing.timeouts – calls which gave up waiting and loaded by themselves
+ */
+class CoalescingLoader<K, V> {
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final Function<K, V> loader;
+    private final UnaryOperator<V> copy;
+    private final long timeoutMillis;
+
+    private final Counter queries;
+    private final Counter saved;
+    private final Counter timeouts;
+
+    CoalescingLoader(String name, Function<K, V> loader, UnaryOperator<V> copy, long timeoutMillis,
+                     MeterRegistry registry) {
+        this.loader = loader;
+        this.copy = copy;
+        this.timeoutMillis = timeoutMillis;
+        this.queries = registry.counter("carpark.coalescing.queries", "loader", name);
+        this.saved = registry.counter("carpark.coalescing.saved", "loader", name);
+        this.timeouts = registry.counter("carpark.coalescing.timeouts", "loader", name);
+    }
+
+    V get(K key) {
+        CompletableFuture<V> own = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, own);
+        if (running == null) {
+            return load(key, own);
+        }
+
+        try {
+            V value = running.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            saved.increment();
+            return copy.apply(value);
+        } catch (TimeoutException e) {
+            timeouts.increment();
+            queries.increment();
+            return loader.apply(key);
+        } catch (ExecutionException e) {
+            //Same failure the loading caller got
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for " + key, e);
+        }
+    }
+
+    private V load(K key, CompletableFuture<V> own) {
+        queries.increment();
+        try {
+            V value = loader.apply(key);
+            own.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, own);
+        }
+    }
+}
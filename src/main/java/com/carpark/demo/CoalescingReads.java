@@ -0,0 +1,95 @@
+package com.carpark.demo;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository reads used by read-only endpoints of CarParkController,
+ * with concurrent calls for the same id sharing one query (see CoalescingLoader).
+ *
+ * Callers which wait for another caller`s query get detached copies of the loaded entities.
+ * Endpoints which change entities should still use repositories directly, to change managed entities.
+ *
+ * A caller may get the result of a query which started shortly before its call, so it can miss
+ * a change committed in between, even one its own client has just made. That is only acceptable
+ * for plain reads, and these are the only callers: GET /drivers/{id}, /drivers/{id}/cars,
+ * /vehicles/{id} and /vehicles/{id}/possible-drivers.
+ * Reads which need to see every committed change (checks before a change, e.g. park, assigning
+ * a driver or delete) must use repositories directly.
+ */
+@Component
+class CoalescingReads {
+    private final CoalescingLoader<Long, Optional<Driver>> driverById;
+    private final CoalescingLoader<Long, Optional<Vehicle>> vehicleById;
+    private final CoalescingLoader<Category, List<Driver>> driversByCategory;
+    private final CoalescingLoader<Long, List<Vehicle>> vehiclesByDriverId;
+
+    CoalescingReads(DriverRepository driverRepository,
+                    VehicleRepository vehicleRepository,
+                    MeterRegistry registry,
+                    @Value("${carpark.coalescing.timeout-ms:1000}") long timeoutMillis) {
+        this.driverById = new CoalescingLoader<>(
+                "driverById", driverRepository::findById, driver -> driver.map(CoalescingReads::copy),
+                timeoutMillis, registry);
+        this.vehicleById = new CoalescingLoader<>(
+                "vehicleById", vehicleRepository::findById, vehicle -> vehicle.map(CoalescingReads::copy),
+                timeoutMillis, registry);
+        this.driversByCategory = new CoalescingLoader<>(
+                "driversByCategory", driverRepository::findByCategory, CoalescingReads::copyDrivers,
+                timeoutMillis, registry);
+        this.vehiclesByDriverId = new CoalescingLoader<>(
+                "vehiclesByDriverId", vehicleRepository::findByDriverId, CoalescingReads::copyVehicles,
+                timeoutMillis, registry);
+    }
+
+    Optional<Driver> driverById(Long driverId) {
+        return driverById.get(driverId);
+    }
+
+    Optional<Vehicle> vehicleById(Long vehicleId) {
+        return vehicleById.get(vehicleId);
+    }
+
+    List<Driver> driversByCategory(Category category) {
+        return driversByCategory.get(category);
+    }
+
+    List<Vehicle> vehiclesByDriverId(Long driverId) {
+        return vehiclesByDriverId.get(driverId);
+    }
+
+    //Copies are plain objects, not attached to any persistence context
+    static Driver copy(Driver driver) {
+        Driver copy = new Driver(driver.getName(), driver.getLicenseNum(), driver.getCategory());
+        copy.setId(driver.getId());
+        return copy;
+    }
+
+    static Vehicle copy(Vehicle vehicle) {
+        Vehicle copy = new Vehicle(vehicle.getPlateNum(), vehicle.getCategory(),
+                vehicle.getDriver() != null ? copy(vehicle.getDriver()) : null);
+        copy.setId(vehicle.getId());
+        return copy;
+    }
+
+    private static List<Driver> copyDrivers(List<Driver> drivers) {
+        List<Driver> copies = new ArrayList<>(drivers.size());
+        for (Driver driver : drivers) {
+            copies.add(copy(driver));
+        }
+        return copies;
+    }
+
+    private static List<Vehicle> copyVehicles(List<Vehicle> vehicles) {
+        List<Vehicle> copies = new ArrayList<>(vehicles.size());
+        for (Vehicle vehicle : vehicles) {
+            copies.add(copy(vehicle));
+        }
+        return copies;
+    }
+}
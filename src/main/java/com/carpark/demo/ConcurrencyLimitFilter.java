@@ -0,0 +1,142 @@
+package com.carpark.demo;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Admission control in front of CarParkController.
+ *
+ * Requests are split into groups with their own AdaptiveLimit, so slow scans can not take
+ * the slots of cheap reads:
+ * SCAN       – requests which may touch thousands of rows: full lists GET /drivers, /vehicles,
+ *              /drivers/withoutcar, /vehicles/no-driver, multi-gets (GET with ids, POST /by-ids)
+ *              and POST /drivers:bulkDelete, /vehicles:bulkDelete
+ * POINT_READ – any other GET
+ * WRITE      – any other POST, PUT, DELETE
+ * Scans have lower priority: they are also refused while point reads or writes are at their limit.
+ *
+ * Refused requests get 503 with Retry-After right away, before any database work.
+ *
+ * carpark.limiter.enabled            – turn limiting off
+ * carpark.limiter.initial-limit      – starting limit of every group
+ * carpark.limiter.min-limit          – limits never go below
+ * carpark.limiter.max-limit          – limits of point reads and writes never go above
+ * carpark.limiter.scan-max-limit     – limit of scans never goes above
+ * carpark.limiter.smoothing          – share of a new estimate in the limit, 0..1
+ * carpark.limiter.retry-after-seconds – value of Retry-After header
+ *
+ * Metrics (tagged with group): carpark.limiter.limit, carpark.limiter.inflight (gauges),
+ * carpark.limiter.rejected
+ */
+@Component
+@ConditionalOnProperty(name = "carpark.limiter.enabled", havingValue = "true", matchIfMissing = true)
+class ConcurrencyLimitFilter extends OncePerRequestFilter {
+    enum Group {
+        POINT_READ,
+        WRITE,
+        SCAN
+    }
+
+    private static final String OVERLOADED = "Server is overloaded, retry later";
+
+    private final Map<Group, AdaptiveLimit> limits = new EnumMap<>(Group.class);
+    private final Map<Group, Counter> rejected = new EnumMap<>(Group.class);
+    private final byte[] overloadedBody;
+    private final String retryAfter;
+
+    ConcurrencyLimitFilter(ErrorResponses errorResponses,
+                           MeterRegistry registry,
+                           @Value("${carpark.limiter.initial-limit:20}") int initialLimit,
+                           @Value("${carpark.limiter.min-limit:4}") int minLimit,
+                           @Value("${carpark.limiter.max-limit:200}") int maxLimit,
+                           @Value("${carpark.limiter.scan-max-limit:20}") int scanMaxLimit,
+                           @Value("${carpark.limiter.smoothing:0.2}") double smoothing,
+                           @Value("${carpark.limiter.retry-after-seconds:1}") int retryAfterSeconds) {
+        for (Group group : Group.values()) {
+            int max = group == Group.SCAN ? scanMaxLimit : maxLimit;
+            AdaptiveLimit limit = new AdaptiveLimit(Math.min(initialLimit, max), minLimit, max, smoothing);
+            limits.put(group, limit);
+
+            Tags tags = Tags.of("group", group.name());
+            rejected.put(group, registry.counter("carpark.limiter.rejected", tags));
+            registry.gauge("carpark.limiter.limit", tags, limit, AdaptiveLimit::getLimit);
+            registry.gauge("carpark.limiter.inflight", tags, limit, AdaptiveLimit::getInFlight);
+        }
+        this.overloadedBody = errorResponses.body(false, OVERLOADED);
+        this.retryAfter = Integer.toString(retryAfterSeconds);
+    }
+
+    static Group group(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        boolean get = "GET".equals(request.getMethod());
+        switch (path) {
+            case "/drivers":
+            case "/vehicles":
+                //Full list or multi-get with ids on GET, one new entity on POST
+                return get ? Group.SCAN : Group.WRITE;
+            case "/drivers/withoutcar":
+            case "/vehicles/no-driver":
+            case "/drivers/by-ids":
+            case "/vehicles/by-ids":
+            case "/drivers:bulkDelete":
+            case "/vehicles:bulkDelete":
+                return Group.SCAN;
+            default:
+                return get ? Group.POINT_READ : Group.WRITE;
+        }
+    }
+
+    //Only API requests are limited, not actuator or error pages, nor warm-up requests while traffic is refused
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return !(path.startsWith("/drivers") || path.startsWith("/vehicles") || path.startsWith("/parking"))
+                || WarmupRunner.isWarmup(request);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Group group = group(request);
+        AdaptiveLimit limit = limits.get(group);
+        if ((group == Group.SCAN && (limits.get(Group.POINT_READ).saturated() || limits.get(Group.WRITE).saturated()))
+                || !limit.tryAcquire()) {
+            rejected.get(group).increment();
+            reject(response);
+            return;
+        }
+
+        long started = System.nanoTime();
+        boolean failed = true;
+        try {
+            chain.doFilter(request, response);
+            failed = response.getStatus() >= 500;
+        } finally {
+            limit.release(System.nanoTime() - started, failed);
+        }
+    }
+
+    private void reject(HttpServletResponse response) throws IOException {
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, retryAfter);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(overloadedBody.length);
+        response.getOutputStream().write(overloadedBody);
+    }
+}
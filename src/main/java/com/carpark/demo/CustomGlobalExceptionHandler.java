@@ -11,6 +11,12 @@ import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExcep
 
 @ControllerAdvice
 public class CustomGlobalExceptionHandler extends ResponseEntityExceptionHandler {
+    private final ErrorResponses errorResponses;
+
+    CustomGlobalExceptionHandler(ErrorResponses errorResponses) {
+        this.errorResponses = errorResponses;
+    }
+
     //Error handler for arguments format failure during @Valid
     @Override
     protected ResponseEntity<Object> handleMethodArgumentNotValid(MethodArgumentNotValidException ex,
@@ -18,8 +24,9 @@ public class CustomGlobalExceptionHandler extends ResponseEntityExceptionHandler
                                                                   HttpStatus status,
                                                                   WebRequest request) {
 
-        return new ResponseEntity<>(
-                new CustomResponse(false,ex.getBindingResult().getFieldError().getDefaultMessage()),
+        return errorResponses.response(
+                false,
+                ex.getBindingResult().getFieldError().getDefaultMessage(),
                 HttpStatus.BAD_REQUEST
         );
     }
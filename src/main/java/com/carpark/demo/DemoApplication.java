@@ -6,8 +6,10 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class DemoApplication  implements CommandLineRunner {
     private static final Logger log = LoggerFactory.getLogger(DemoApplication.class);
 
@@ -23,7 +25,10 @@ public class DemoApplication  implements CommandLineRunner {
 
         log.info("StartApplication...");
 
-        //Test DataBase population
+        //Test DataBase population, storage may already have data if it is persistent (carpark.storage=memory)
+        if(driverRepository.count()>0){
+            return;
+        }
         driverRepository.save(new Driver("Artur","AD9948454",Category.MOTORCYCLE));
         driverRepository.save(new Driver("Ibrat","AB9483729",Category.BUS));
         driverRepository.save(new Driver("Ilkhom","BC2954748",Category.CAR));
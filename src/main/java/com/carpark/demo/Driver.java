@@ -1,6 +1,5 @@
 package com.carpark.demo;
 import javax.persistence.*;
-import javax.validation.constraints.Pattern;
 import java.util.Objects;
 
 
@@ -14,7 +13,7 @@ class Driver {
     private String name;
 
     @Column(unique = true)
-    @Pattern(regexp = "[A-Z]{2}\\d{7}") //licence number format is 2 letters followed by 7 digits
+    @LicenseNumber //licence number format is 2 letters followed by 7 digits
     private String licenseNum;
 
     private Category category;
@@ -24,7 +23,7 @@ class Driver {
 
     public Driver( String name, String licenseNum,Category category) {
         this.name = name;
-        this.licenseNum = licenseNum;
+        this.licenseNum = FleetFormats.normalize(licenseNum);
         this.category = category;
     }
 
@@ -52,8 +51,9 @@ class Driver {
         this.name = name;
     }
 
+    //" ab1234567" is accepted and stored as "AB1234567"
     public void setLicenseNum(String licenseNum) {
-        this.licenseNum = licenseNum;
+        this.licenseNum = FleetFormats.normalize(licenseNum);
     }
 
     public void setCategory(Category category) {
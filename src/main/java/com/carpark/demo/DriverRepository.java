@@ -1,6 +1,5 @@
 package com.carpark.demo;
 
-import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
@@ -8,9 +7,9 @@ import java.util.List;
 import java.util.Optional;
 
 @Repository
-interface DriverRepository extends JpaRepository<Driver, Long> {
+interface DriverRepository extends FleetRepository<Driver> {
     Optional<Driver> findByLicenseNum(String licence_num);
-    Optional<Driver> findByCategory(Category category);
+    List<Driver> findByCategory(Category category);
 
     List<Driver> findByOrderByNameAsc();
     List<Driver> findByOrderByNameDesc();
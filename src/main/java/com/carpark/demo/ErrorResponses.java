@@ -0,0 +1,67 @@
+package com.carpark.demo;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * CustomResponse bodies encoded once and then written as bytes.
+ *
+ * Error descriptions come from a small fixed set ("No such vehicle", validation messages, ...),
+ * so each one is serialized the first time it is used and the same byte array
+ * is returned for every later response. Arrays are never handed out for modification,
+ * only written to the response.
+ */
+@Component
+class ErrorResponses {
+    //Upper bound for cached bodies in case some description turns out not to be fixed
+    private static final int MAX_CACHED = 512;
+
+    private static final HttpHeaders JSON_HEADERS;
+
+    static {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        JSON_HEADERS = HttpHeaders.readOnlyHttpHeaders(headers);
+    }
+
+    private final ObjectMapper objectMapper;
+    private final ConcurrentMap<String, byte[]> failures = new ConcurrentHashMap<>();
+
+    ErrorResponses(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    ResponseEntity<Object> response(boolean success, String description, HttpStatus status) {
+        return new ResponseEntity<>(body(success, description), JSON_HEADERS, status);
+    }
+
+    byte[] body(boolean success, String description) {
+        if (success || description == null) {
+            return encode(success, description);
+        }
+        byte[] body = failures.get(description);
+        if (body == null) {
+            body = encode(false, description);
+            if (failures.size() < MAX_CACHED) {
+                failures.putIfAbsent(description, body);
+            }
+        }
+        return body;
+    }
+
+    private byte[] encode(boolean success, String description) {
+        try {
+            return objectMapper.writeValueAsBytes(new CustomResponse(success, description));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not encode response '" + description + "'", e);
+        }
+    }
+}
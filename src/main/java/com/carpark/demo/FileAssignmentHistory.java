@@ -0,0 +1,214 @@
+package com.carpark.demo;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Assignment history for in-memory storage: one file per day, assignment-history/yyyymmdd.csv
+ * in data directory, with lines vehicleId,driverId,previousDriverId,changedAt (epoch millis).
+ *
+ * Nothing is kept in memory, a query reads only the files of days in range
+ * and retention deletes whole files.
+ *
+ * A line counts only if all four columns parse and changedAt falls on the day of the file,
+ * so a line cut by a crash is skipped even when it is cut inside changedAt.
+ * Append first cuts such a line off the end of the file, and a failed append truncates files
+ * back to their length before it, so a batch retried by AssignmentLog is not written twice.
+ */
+@Component
+@ConditionalOnProperty(name = "carpark.storage", havingValue = "memory")
+class FileAssignmentHistory implements AssignmentHistory {
+    private static final DateTimeFormatter DAY = DateTimeFormatter.BASIC_ISO_DATE;
+    private static final String SUFFIX = ".csv";
+
+    private final Path directory;
+
+    FileAssignmentHistory(@Value("${carpark.memory.data-dir:data}") String directory) {
+        this.directory = Paths.get(directory, "assignment-history");
+    }
+
+    private Path file(LocalDate day) {
+        return directory.resolve(DAY.format(day) + SUFFIX);
+    }
+
+    //Days which have a file
+    private NavigableMap<LocalDate, Path> files() {
+        NavigableMap<LocalDate, Path> files = new TreeMap<>();
+        if (!Files.isDirectory(directory)) {
+            return files;
+        }
+        try (Stream<Path> list = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) list::iterator) {
+                String name = file.getFileName().toString();
+                if (!name.endsWith(SUFFIX)) {
+                    continue;
+                }
+                try {
+                    files.put(LocalDate.parse(name.substring(0, name.length() - SUFFIX.length()), DAY), file);
+                } catch (RuntimeException e) {
+                    //Not a history file
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return files;
+    }
+
+    //Event of a complete line of the file of given day, null for anything else
+    private static AssignmentEvent parse(String line, LocalDate day) {
+        String[] columns = line.split(",", -1);
+        if (columns.length != 4) {
+            return null;
+        }
+        try {
+            Instant changedAt = Instant.ofEpochMilli(Long.parseLong(columns[3]));
+            if (!AssignmentEvent.day(changedAt).equals(day)) {
+                return null;
+            }
+            return new AssignmentEvent(Long.parseLong(columns[0]), nullableLong(columns[1]),
+                    nullableLong(columns[2]), changedAt);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static Long nullableLong(String value) {
+        return value.isEmpty() ? null : Long.valueOf(value);
+    }
+
+    private static String text(Long value) {
+        return value != null ? value.toString() : "";
+    }
+
+    @Override
+    public synchronized void append(List<AssignmentEvent> events) {
+        Map<LocalDate, StringBuilder> byDay = new TreeMap<>();
+        for (AssignmentEvent event : events) {
+            byDay.computeIfAbsent(AssignmentEvent.day(event.getChangedAt()), d -> new StringBuilder())
+                    .append(event.getVehicleId()).append(',')
+                    .append(text(event.getDriverId())).append(',')
+                    .append(text(event.getPreviousDriverId())).append(',')
+                    .append(event.getChangedAt().toEpochMilli()).append('\n');
+        }
+
+        //Length of every file before this append
+        Map<Path, Long> lengths = new HashMap<>();
+        try {
+            Files.createDirectories(directory);
+            for (Map.Entry<LocalDate, StringBuilder> day : byDay.entrySet()) {
+                Path file = file(day.getKey());
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.READ)) {
+                    long length = completeLength(channel);
+                    channel.truncate(length);
+                    lengths.put(file, length);
+
+                    ByteBuffer lines = ByteBuffer.wrap(day.getValue().toString().getBytes(StandardCharsets.UTF_8));
+                    long position = length;
+                    while (lines.hasRemaining()) {
+                        position += channel.write(lines, position);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            rollBack(lengths, e);
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    //Length of file up to its last line break, anything after it is a line cut by crash
+    private static long completeLength(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        long end = channel.size();
+        while (end > 0) {
+            long from = Math.max(0, end - buffer.capacity());
+            buffer.clear();
+            buffer.limit((int) (end - from));
+            while (buffer.hasRemaining() && channel.read(buffer, from + buffer.position()) >= 0) {
+                //Read the whole block
+            }
+            for (int i = buffer.position() - 1; i >= 0; i--) {
+                if (buffer.get(i) == '\n') {
+                    return from + i + 1;
+                }
+            }
+            end = from;
+        }
+        return 0;
+    }
+
+    private static void rollBack(Map<Path, Long> lengths, IOException cause) {
+        for (Map.Entry<Path, Long> file : lengths.entrySet()) {
+            try (FileChannel channel = FileChannel.open(file.getKey(), StandardOpenOption.WRITE)) {
+                channel.truncate(file.getValue());
+            } catch (IOException e) {
+                cause.addSuppressed(e);
+            }
+        }
+    }
+
+    @Override
+    public List<AssignmentEvent> byVehicle(long vehicleId, Instant from, Instant to) {
+        return query(event -> event.getVehicleId() == vehicleId, from, to);
+    }
+
+    @Override
+    public List<AssignmentEvent> byDriver(long driverId, Instant from, Instant to) {
+        Long id = driverId;
+        return query(event -> id.equals(event.getDriverId()) || id.equals(event.getPreviousDriverId()), from, to);
+    }
+
+    private List<AssignmentEvent> query(Predicate<AssignmentEvent> condition, Instant from, Instant to) {
+        List<AssignmentEvent> result = new ArrayList<>();
+        for (Map.Entry<LocalDate, Path> day
+                : files().subMap(AssignmentEvent.day(from), true, AssignmentEvent.day(to), true).entrySet()) {
+            try (BufferedReader reader = Files.newBufferedReader(day.getValue(), StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    AssignmentEvent event = parse(line, day.getKey());
+                    if (event != null && !event.getChangedAt().isBefore(from) && event.getChangedAt().isBefore(to)
+                            && condition.test(event)) {
+                        result.add(event);
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        result.sort(Comparator.comparing(AssignmentEvent::getChangedAt));
+        return result;
+    }
+
+    @Override
+    public synchronized int dropBefore(LocalDate day) {
+        int dropped = 0;
+        for (Path old : files().headMap(day, false).values()) {
+            try {
+                Files.deleteIfExists(old);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            dropped++;
+        }
+        return dropped;
+    }
+}
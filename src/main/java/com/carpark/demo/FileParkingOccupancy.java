@@ -0,0 +1,85 @@
+package com.carpark.demo;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parking occupancy for in-memory storage: file parking.dat in data directory.
+ * The whole file is rewritten on every write and replaced atomically, occupancy is
+ * at most a few thousand rows so that is cheaper than keeping a log of it.
+ */
+@Component
+@ConditionalOnProperty(name = "carpark.storage", havingValue = "memory")
+class FileParkingOccupancy implements ParkingOccupancy {
+    private final Path directory;
+    private final Path file;
+
+    //Guarded by this
+    private final Map<Long, ParkingSpot> spots = new LinkedHashMap<>();
+
+    FileParkingOccupancy(@Value("${carpark.memory.data-dir:data}") String directory) {
+        this.directory = Paths.get(directory);
+        this.file = this.directory.resolve("parking.dat");
+    }
+
+    @Override
+    public synchronized List<ParkingSpot> load() {
+        spots.clear();
+        if (Files.exists(file)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    ParkingSpot spot = new ParkingSpot(in.readLong(), in.readUTF(), in.readInt(),
+                            Instant.ofEpochMilli(in.readLong()));
+                    spots.put(spot.getVehicleId(), spot);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read " + file, e);
+            }
+        }
+        return new ArrayList<>(spots.values());
+    }
+
+    @Override
+    public synchronized void write(Collection<ParkingSpot> parked, Collection<Long> left) {
+        for (Long vehicleId : left) {
+            spots.remove(vehicleId);
+        }
+        for (ParkingSpot spot : parked) {
+            spots.put(spot.getVehicleId(), spot);
+        }
+
+        try {
+            Files.createDirectories(directory);
+            Path tmp = directory.resolve("parking.dat.tmp");
+            try (FileOutputStream out = new FileOutputStream(tmp.toFile())) {
+                DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+                data.writeInt(spots.size());
+                for (ParkingSpot spot : spots.values()) {
+                    data.writeLong(spot.getVehicleId());
+                    data.writeUTF(spot.getZone());
+                    data.writeInt(spot.getSlot());
+                    data.writeLong(spot.getParkedAt().toEpochMilli());
+                }
+                data.flush();
+                out.getChannel().force(true);
+            }
+            Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write " + file, e);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.carpark.demo;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Telemetry history for in-memory storage: CSV lines appended to telemetry-history.csv in data directory
+ *
+ * vehicleId,recordedAt,latitude,longitude,odometer
+ */
+@Component
+@ConditionalOnProperty(name = "carpark.storage", havingValue = "memory")
+class FileTelemetryHistory implements TelemetryHistory {
+    private final Path file;
+
+    FileTelemetryHistory(@Value("${carpark.memory.data-dir:data}") String directory) {
+        this.file = Paths.get(directory, "telemetry-history.csv");
+    }
+
+    @Override
+    public synchronized void write(List<TelemetryState> samples) {
+        try {
+            Files.createDirectories(file.getParent());
+            try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                for (TelemetryState sample : samples) {
+                    writer.write(sample.getVehicleId() + "," + sample.getRecordedAt() + ","
+                            + sample.getLatitude() + "," + sample.getLongitude() + ","
+                            + (sample.getOdometer() != null ? sample.getOdometer() : ""));
+                    writer.newLine();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.carpark.demo;
+
+/**
+ * Hand-written checks for license and plate number formats.
+ *
+ * They accept exactly the values of the formats documented on Driver and Vehicle
+ * (same as the regular expressions "[A-Z]{2}\\d{7}" and "\\d{2}[A-Z]\\d{3}[A-Z]{2}|\\d{5}[A-Z]{3}"),
+ * but work on any CharSequence and never allocate, so they are used both for
+ * request validation (@LicenseNumber, @PlateNumber) and for bulk input.
+ */
+final class FleetFormats {
+    static final String LICENSE_NUM_MESSAGE = "License number should be 2 letters followed by 7 digits";
+    static final String PLATE_NUM_MESSAGE = "Plate number should be in format 01N877LA or 01454GTA";
+
+    private static final Category[] CATEGORIES = Category.values();
+
+    private FleetFormats() { }
+
+    //licence number format is 2 letters followed by 7 digits. Example - "AB1234567"
+    static boolean isLicenseNum(CharSequence s) {
+        return s != null && s.length() == 9
+                && letters(s, 0, 2)
+                && digits(s, 2, 9);
+    }
+
+    //plate number format should be either
+    //2 digits, 1 letter, 3 digits, 2 letters. Example - "01N877LA"
+    //5 digits followed by 3 letters. Example - "01454GTA"
+    static boolean isPlateNum(CharSequence s) {
+        if (s == null || s.length() != 8 || !digits(s, 0, 2)) {
+            return false;
+        }
+        if (isLetter(s.charAt(2))) {
+            return digits(s, 3, 6) && letters(s, 6, 8);
+        }
+        return digits(s, 2, 5) && letters(s, 5, 8);
+    }
+
+    /**
+     * Remove whitespace and upper-case latin letters, so " ab 1234567" becomes "AB1234567".
+     * Returns the same string if there is nothing to change.
+     */
+    static String normalize(CharSequence s) {
+        if (s == null) {
+            return null;
+        }
+        int i = 0;
+        while (i < s.length() && !needsNormalizing(s.charAt(i))) {
+            i++;
+        }
+        if (i == s.length()) {
+            return s.toString();
+        }
+
+        StringBuilder normalized = new StringBuilder(s.length());
+        normalized.append(s, 0, i);
+        for (; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c >= 'a' && c <= 'z') {
+                normalized.append((char) (c - ('a' - 'A')));
+            } else if (!Character.isWhitespace(c)) {
+                normalized.append(c);
+            }
+        }
+        return normalized.toString();
+    }
+
+    private static boolean needsNormalizing(char c) {
+        return (c >= 'a' && c <= 'z') || Character.isWhitespace(c);
+    }
+
+    /**
+     * Return category with exactly the given name or null if there is no such category
+     */
+    static Category category(CharSequence s) {
+        if (s == null) {
+            return null;
+        }
+        for (Category category : CATEGORIES) {
+            if (contentEquals(category.name(), s)) {
+                return category;
+            }
+        }
+        return null;
+    }
+
+    static boolean contentEquals(String expected, CharSequence s) {
+        if (expected.length() != s.length()) {
+            return false;
+        }
+        for (int i = 0; i < expected.length(); i++) {
+            if (expected.charAt(i) != s.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean letters(CharSequence s, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (!isLetter(s.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean digits(CharSequence s, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (!isDigit(s.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isLetter(char c) {
+        return c >= 'A' && c <= 'Z';
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
@@ -0,0 +1,71 @@
+package com.carpark.demo;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Run fleet import on startup when files are given
+ *
+ * carpark.import.drivers  – path of drivers CSV file
+ * carpark.import.vehicles – path of vehicles CSV file
+ *
+ * Example : java -jar demo.jar --carpark.import.drivers=drivers.csv --carpark.import.vehicles=vehicles.csv
+ *
+ * Drivers are imported first, so vehicles file can refer to drivers from drivers file.
+ * Rejected rows are written to file with ".rejected" appended to name of imported file.
+ * Import writes to Postgres directly, so it is not available with in-memory storage.
+ */
+@Component
+@ConditionalOnProperty(name = "carpark.storage", havingValue = "jpa", matchIfMissing = true)
+class FleetImportRunner implements CommandLineRunner {
+    private static final Logger log = LoggerFactory.getLogger(FleetImportRunner.class);
+
+    private final FleetImporter importer;
+    private final String driversFile;
+    private final String vehiclesFile;
+
+    FleetImportRunner(FleetImporter importer,
+                      @Value("${carpark.import.drivers:}") String driversFile,
+                      @Value("${carpark.import.vehicles:}") String vehiclesFile) {
+        this.importer = importer;
+        this.driversFile = driversFile;
+        this.vehiclesFile = vehiclesFile;
+    }
+
+    @Override
+    public void run(String... args) throws IOException {
+        if (!driversFile.isEmpty()) {
+            report(importer.importDrivers(Paths.get(driversFile)));
+        }
+        if (!vehiclesFile.isEmpty()) {
+            report(importer.importVehicles(Paths.get(vehiclesFile)));
+        }
+    }
+
+    private void report(ImportReport report) throws IOException {
+        log.info(report.toString());
+        if (report.getRejected().isEmpty()) {
+            return;
+        }
+
+        Path rejectedFile = Paths.get(report.getFile() + ".rejected");
+        try (BufferedWriter writer = Files.newBufferedWriter(rejectedFile, StandardCharsets.UTF_8)) {
+            for (ImportReport.RejectedRow row : report.getRejected()) {
+                writer.write(row.toString());
+                writer.newLine();
+            }
+        }
+        log.warn("{} rows rejected, see {}", report.getRejected().size(), rejectedFile);
+    }
+}
@@ -0,0 +1,558 @@
+package com.carpark.demo;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Types;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Bulk import of drivers and vehicles from CSV files.
+ *
+ * Drivers file :  name,licenseNum,category
+ * Vehicles file:  plateNum,category,licenseNum of driver (empty if vehicle has no driver)
+ *
+ * A header line is allowed and skipped. License and plate numbers are normalized
+ * the same way as in the API (FleetFormats.normalize), so "ab 1234567" is imported as "AB1234567".
+ *
+ * The file is memory-mapped and cut into line-aligned chunks that are parsed and
+ * validated in parallel on a fork-join pool. Rows which pass are then checked against
+ * each other and the database with the same rules CarParkController applies
+ * (unique license and plate numbers, driver exists and has the vehicle`s category),
+ * and stored with batched inserts.
+ *
+ * Checks and inserts of a file run in one transaction. Drivers of imported vehicles are locked
+ * (FOR SHARE), so they can not be deleted or change category before commit, and inserts skip rows
+ * whose license or plate number a concurrent request took after the check (ON CONFLICT DO NOTHING).
+ * Such rows are rejected with the same reason as the ones found by the check, the rest of the file is imported.
+ *
+ * carpark.import.parallelism – parser threads, 0 means one per processor
+ * carpark.import.chunk-bytes – size of the parts the file is cut into for parsing
+ */
+@Service
+@ConditionalOnProperty(name = "carpark.storage", havingValue = "jpa", matchIfMissing = true)
+class FleetImporter {
+    private static final int BATCH_SIZE = 1000;
+    private static final int IN_LIST_SIZE = 1000;
+    private static final String DRIVER_EXISTS = "There is a driver with same Licence number";
+    private static final String VEHICLE_EXISTS = "There is a car with same Plate number";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int parallelism;
+    private final int chunkBytes;
+
+    FleetImporter(NamedParameterJdbcTemplate jdbcTemplate,
+                  PlatformTransactionManager transactionManager,
+                  @Value("${carpark.import.parallelism:0}") int parallelism,
+                  @Value("${carpark.import.chunk-bytes:8388608}") int chunkBytes) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.chunkBytes = chunkBytes;
+    }
+
+    ImportReport importDrivers(Path file) throws IOException {
+        long started = System.currentTimeMillis();
+        ImportReport report = new ImportReport(file.toString());
+        List<DriverRow> rows = parse(file, DRIVER_ROWS, report);
+
+        Set<String> licenses = new HashSet<>();
+        for (DriverRow row : rows) {
+            licenses.add(row.licenseNum);
+        }
+
+        Integer imported = transactionTemplate.execute(status -> {
+            Set<String> existing = new HashSet<>(
+                    queryIn("SELECT license_num FROM driver WHERE license_num IN (:values)", licenses, String.class));
+
+            Set<String> seen = new HashSet<>();
+            List<DriverRow> accepted = new ArrayList<>(rows.size());
+            for (DriverRow row : rows) {
+                if (!seen.add(row.licenseNum)) {
+                    report.reject(row.line, "Same licence number appears earlier in file");
+                } else if (existing.contains(row.licenseNum)) {
+                    report.reject(row.line, DRIVER_EXISTS);
+                } else {
+                    accepted.add(row);
+                }
+            }
+
+            int[][] counts = jdbcTemplate.getJdbcOperations().batchUpdate(
+                    "INSERT INTO driver (name, license_num, category) VALUES (?, ?, ?) ON CONFLICT DO NOTHING",
+                    accepted, BATCH_SIZE,
+                    (ps, row) -> {
+                        ps.setString(1, row.name);
+                        ps.setString(2, row.licenseNum);
+                        ps.setInt(3, row.category.ordinal());
+                    });
+            return inserted(accepted, counts, report, DRIVER_EXISTS);
+        });
+
+        return finish(report, imported, started);
+    }
+
+    ImportReport importVehicles(Path file) throws IOException {
+        long started = System.currentTimeMillis();
+        ImportReport report = new ImportReport(file.toString());
+        List<VehicleRow> rows = parse(file, VEHICLE_ROWS, report);
+
+        Set<String> plates = new HashSet<>();
+        Set<String> licenses = new HashSet<>();
+        for (VehicleRow row : rows) {
+            plates.add(row.plateNum);
+            if (row.driverLicenseNum != null) {
+                licenses.add(row.driverLicenseNum);
+            }
+        }
+
+        Integer imported = transactionTemplate.execute(status -> {
+            Set<String> existingPlates = new HashSet<>(
+                    queryIn("SELECT plate_num FROM vehicle WHERE plate_num IN (:values)", plates, String.class));
+            Map<String, DriverRef> drivers = findDrivers(licenses);
+
+            Set<String> seen = new HashSet<>();
+            List<VehicleRow> accepted = new ArrayList<>(rows.size());
+            for (VehicleRow row : rows) {
+                DriverRef driver = row.driverLicenseNum != null ? drivers.get(row.driverLicenseNum) : null;
+                if (!seen.add(row.plateNum)) {
+                    report.reject(row.line, "Same plate number appears earlier in file");
+                } else if (existingPlates.contains(row.plateNum)) {
+                    report.reject(row.line, VEHICLE_EXISTS);
+                } else if (row.driverLicenseNum != null && driver == null) {
+                    report.reject(row.line, "There is no such driver");
+                } else if (driver != null && driver.category != row.category) {
+                    report.reject(row.line, "Driver not allowed to drive this vehicle");
+                } else {
+                    row.driverId = driver != null ? driver.id : null;
+                    accepted.add(row);
+                }
+            }
+
+            int[][] counts = jdbcTemplate.getJdbcOperations().batchUpdate(
+                    "INSERT INTO vehicle (plate_num, category, driver_id) VALUES (?, ?, ?) ON CONFLICT DO NOTHING",
+                    accepted, BATCH_SIZE,
+                    (ps, row) -> {
+                        ps.setString(1, row.plateNum);
+                        ps.setString(2, row.category.name());
+                        if (row.driverId != null) {
+                            ps.setLong(3, row.driverId);
+                        } else {
+                            ps.setNull(3, Types.BIGINT);
+                        }
+                    });
+            return inserted(accepted, counts, report, VEHICLE_EXISTS);
+        });
+
+        return finish(report, imported, started);
+    }
+
+    //Rows whose unique number a concurrent insert took after the check are rejected like the ones the check found
+    private static int inserted(List<? extends Row> rows, int[][] counts, ImportReport report, String reason) {
+        int inserted = 0;
+        int i = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                Row row = rows.get(i++);
+                if (count == 0) {
+                    report.reject(row.line, reason);
+                } else {
+                    inserted++;
+                }
+            }
+        }
+        return inserted;
+    }
+
+    private ImportReport finish(ImportReport report, int imported, long started) {
+        report.setImported(imported);
+        report.setElapsedMillis(System.currentTimeMillis() - started);
+        report.sortRejected();
+        return report;
+    }
+
+    private Map<String, DriverRef> findDrivers(Collection<String> licenses) {
+        Map<String, DriverRef> drivers = new HashMap<>();
+        Category[] categories = Category.values();
+        for (List<String> chunk : chunks(licenses)) {
+            jdbcTemplate.query(
+                    //Locked until commit, so drivers stay as checked
+                    "SELECT id, license_num, category FROM driver WHERE license_num IN (:values) FOR SHARE",
+                    Collections.singletonMap("values", chunk),
+                    rs -> {
+                        drivers.put(rs.getString(2), new DriverRef(rs.getLong(1), categories[rs.getInt(3)]));
+                    });
+        }
+        return drivers;
+    }
+
+    private <T> List<T> queryIn(String sql, Collection<String> values, Class<T> type) {
+        List<T> result = new ArrayList<>();
+        for (List<String> chunk : chunks(values)) {
+            result.addAll(jdbcTemplate.queryForList(sql, Collections.singletonMap("values", chunk), type));
+        }
+        return result;
+    }
+
+    private static List<List<String>> chunks(Collection<String> values) {
+        List<String> all = new ArrayList<>(values);
+        List<List<String>> chunks = new ArrayList<>();
+        for (int i = 0; i < all.size(); i += IN_LIST_SIZE) {
+            chunks.add(all.subList(i, Math.min(i + IN_LIST_SIZE, all.size())));
+        }
+        return chunks;
+    }
+
+    //Parse file in parallel and return valid rows in file order, invalid rows go to report
+    private <R extends Row> List<R> parse(Path file, RowParser<R> parser, ImportReport report) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            List<ChunkTask<R>> tasks = new ArrayList<>();
+            long start = 0;
+            long size = channel.size();
+            while (start < size) {
+                long end = nextLineStart(channel, Math.min(start + chunkBytes, size));
+                tasks.add(new ChunkTask<>(channel, start, end, parser, start == 0));
+                start = end;
+            }
+
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                pool.invoke(new RecursiveAction() {
+                    @Override
+                    protected void compute() {
+                        ForkJoinTask.invokeAll(tasks);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } finally {
+                pool.shutdown();
+            }
+
+            //Chunks only know their local line numbers, shift them by lines of preceding chunks
+            List<R> rows = new ArrayList<>();
+            long lineOffset = 0;
+            for (ChunkTask<R> task : tasks) {
+                for (R row : task.rows) {
+                    row.line += lineOffset;
+                    rows.add(row);
+                }
+                for (ImportReport.RejectedRow rejected : task.rejected) {
+                    report.reject(rejected.getLine() + lineOffset, rejected.getReason());
+                }
+                lineOffset += task.lines;
+            }
+            report.setLines(lineOffset);
+            return rows;
+        }
+    }
+
+    //Return position right after the first line break at or after position
+    private static long nextLineStart(FileChannel channel, long position) throws IOException {
+        long size = channel.size();
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    private static final class ChunkTask<R extends Row> extends RecursiveAction {
+        private final FileChannel channel;
+        private final long start;
+        private final long end;
+        private final RowParser<R> parser;
+        private final boolean mayHaveHeader;
+
+        private final List<R> rows = new ArrayList<>();
+        private final List<ImportReport.RejectedRow> rejected = new ArrayList<>();
+        private long lines;
+
+        ChunkTask(FileChannel channel, long start, long end, RowParser<R> parser, boolean mayHaveHeader) {
+            this.channel = channel;
+            this.start = start;
+            this.end = end;
+            this.parser = parser;
+            this.mayHaveHeader = mayHaveHeader;
+        }
+
+        @Override
+        protected void compute() {
+            MappedByteBuffer buffer;
+            try {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            AsciiSlice[] fields = new AsciiSlice[parser.fieldCount()];
+            for (int i = 0; i < fields.length; i++) {
+                fields[i] = new AsciiSlice(buffer);
+            }
+
+            int limit = buffer.limit();
+            int lineStart = 0;
+            while (lineStart < limit) {
+                int lineEnd = lineStart;
+                while (lineEnd < limit && buffer.get(lineEnd) != '\n') {
+                    lineEnd++;
+                }
+                lines++;
+                parseLine(buffer, lineStart, lineEnd, fields);
+                lineStart = lineEnd + 1;
+            }
+        }
+
+        private void parseLine(ByteBuffer buffer, int from, int to, AsciiSlice[] fields) {
+            if (to > from && buffer.get(to - 1) == '\r') {
+                to--;
+            }
+            if (to == from) {
+                return;
+            }
+
+            int field = 0;
+            int fieldStart = from;
+            for (int i = from; i <= to; i++) {
+                if (i == to || buffer.get(i) == ',') {
+                    if (field == fields.length) {
+                        rejected.add(new ImportReport.RejectedRow(lines, "Expected " + fields.length + " fields"));
+                        return;
+                    }
+                    fields[field++].set(fieldStart, i);
+                    fieldStart = i + 1;
+                }
+            }
+            if (field != fields.length) {
+                rejected.add(new ImportReport.RejectedRow(lines, "Expected " + fields.length + " fields"));
+                return;
+            }
+
+            if (mayHaveHeader && lines == 1 && parser.isHeader(fields)) {
+                return;
+            }
+
+            String reason = parser.validate(fields);
+            if (reason != null) {
+                rejected.add(new ImportReport.RejectedRow(lines, reason));
+            } else {
+                R row = parser.create(fields);
+                row.line = lines;
+                rows.add(row);
+            }
+        }
+    }
+
+    /**
+     * Reusable view of one field of a mapped file, so fields can be validated
+     * without copying them into Strings first.
+     */
+    private static final class AsciiSlice implements CharSequence {
+        private final ByteBuffer buffer;
+        private int from;
+        private int to;
+
+        AsciiSlice(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        //Set to bytes between from and to with surrounding spaces trimmed
+        void set(int from, int to) {
+            while (from < to && buffer.get(from) == ' ') {
+                from++;
+            }
+            while (to > from && buffer.get(to - 1) == ' ') {
+                to--;
+            }
+            this.from = from;
+            this.to = to;
+        }
+
+        public boolean isEmpty() {
+            return from == to;
+        }
+
+        boolean equalsIgnoreCase(String value) {
+            if (value.length() != length()) {
+                return false;
+            }
+            for (int i = 0; i < value.length(); i++) {
+                if (Character.toLowerCase(charAt(i)) != Character.toLowerCase(value.charAt(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int length() {
+            return to - from;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (buffer.get(from + index) & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return toString().subSequence(start, end);
+        }
+
+        @Override
+        public String toString() {
+            byte[] bytes = new byte[length()];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = buffer.get(from + i);
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    private interface RowParser<R> {
+        int fieldCount();
+
+        boolean isHeader(AsciiSlice[] fields);
+
+        //Return description of the problem or null if fields are valid
+        String validate(AsciiSlice[] fields);
+
+        R create(AsciiSlice[] fields);
+    }
+
+    private static final RowParser<DriverRow> DRIVER_ROWS = new RowParser<DriverRow>() {
+        @Override
+        public int fieldCount() {
+            return 3;
+        }
+
+        @Override
+        public boolean isHeader(AsciiSlice[] fields) {
+            return fields[0].equalsIgnoreCase("name");
+        }
+
+        @Override
+        public String validate(AsciiSlice[] fields) {
+            if (!isLicenseNum(fields[1])) {
+                return FleetFormats.LICENSE_NUM_MESSAGE;
+            }
+            if (FleetFormats.category(fields[2]) == null) {
+                return "Unknown category";
+            }
+            return null;
+        }
+
+        @Override
+        public DriverRow create(AsciiSlice[] fields) {
+            return new DriverRow(fields[0].toString(), FleetFormats.normalize(fields[1]), FleetFormats.category(fields[2]));
+        }
+    };
+
+    private static final RowParser<VehicleRow> VEHICLE_ROWS = new RowParser<VehicleRow>() {
+        @Override
+        public int fieldCount() {
+            return 3;
+        }
+
+        @Override
+        public boolean isHeader(AsciiSlice[] fields) {
+            return fields[0].equalsIgnoreCase("plateNum");
+        }
+
+        @Override
+        public String validate(AsciiSlice[] fields) {
+            if (!isPlateNum(fields[0])) {
+                return FleetFormats.PLATE_NUM_MESSAGE;
+            }
+            if (FleetFormats.category(fields[1]) == null) {
+                return "Unknown category";
+            }
+            if (!fields[2].isEmpty() && !isLicenseNum(fields[2])) {
+                return FleetFormats.LICENSE_NUM_MESSAGE;
+            }
+            return null;
+        }
+
+        @Override
+        public VehicleRow create(AsciiSlice[] fields) {
+            return new VehicleRow(
+                    FleetFormats.normalize(fields[0]),
+                    FleetFormats.category(fields[1]),
+                    fields[2].isEmpty() ? null : FleetFormats.normalize(fields[2]));
+        }
+    };
+
+    //Fields are accepted in the same forms as by the API, " ab 1234567" is license "AB1234567".
+    //Already normalized fields are checked without allocating
+    private static boolean isLicenseNum(AsciiSlice field) {
+        return FleetFormats.isLicenseNum(field) || FleetFormats.isLicenseNum(FleetFormats.normalize(field));
+    }
+
+    private static boolean isPlateNum(AsciiSlice field) {
+        return FleetFormats.isPlateNum(field) || FleetFormats.isPlateNum(FleetFormats.normalize(field));
+    }
+
+    private abstract static class Row {
+        long line;
+    }
+
+    private static final class DriverRow extends Row {
+        final String name;
+        final String licenseNum;
+        final Category category;
+
+        DriverRow(String name, String licenseNum, Category category) {
+            this.name = name;
+            this.licenseNum = licenseNum;
+            this.category = category;
+        }
+    }
+
+    private static final class VehicleRow extends Row {
+        final String plateNum;
+        final Category category;
+        final String driverLicenseNum;
+        Long driverId;
+
+        VehicleRow(String plateNum, Category category, String driverLicenseNum) {
+            this.plateNum = plateNum;
+            this.category = category;
+            this.driverLicenseNum = driverLicenseNum;
+        }
+    }
+
+    private static final class DriverRef {
+        final long id;
+        final Category category;
+
+        DriverRef(long id, Category category) {
+            this.id = id;
+            this.category = category;
+        }
+    }
+}
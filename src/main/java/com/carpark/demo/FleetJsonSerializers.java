@@ -0,0 +1,102 @@
+package com.carpark.demo;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import org.springframework.boot.jackson.JsonComponent;
+
+import java.io.IOException;
+
+/**
+ * Hand-written serializers for Driver and Vehicle.
+ *
+ * They produce the same JSON as the default bean serializer, but write fields
+ * directly from getters with pre-encoded names and category values instead of
+ * going through reflective property access.
+ */
+@JsonComponent
+class FleetJsonSerializers {
+    private static final SerializedString ID = new SerializedString("id");
+    private static final SerializedString NAME = new SerializedString("name");
+    private static final SerializedString LICENSE_NUM = new SerializedString("licenseNum");
+    private static final SerializedString PLATE_NUM = new SerializedString("plateNum");
+    private static final SerializedString CATEGORY = new SerializedString("category");
+    private static final SerializedString DRIVER = new SerializedString("driver");
+
+    private static final SerializedString[] CATEGORIES;
+
+    static {
+        Category[] categories = Category.values();
+        CATEGORIES = new SerializedString[categories.length];
+        for (Category category : categories) {
+            CATEGORIES[category.ordinal()] = new SerializedString(category.name());
+        }
+    }
+
+    static class DriverSerializer extends StdSerializer<Driver> {
+
+        DriverSerializer() {
+            super(Driver.class);
+        }
+
+        @Override
+        public void serialize(Driver driver, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            writeDriver(driver, gen);
+        }
+    }
+
+    static class VehicleSerializer extends StdSerializer<Vehicle> {
+
+        VehicleSerializer() {
+            super(Vehicle.class);
+        }
+
+        @Override
+        public void serialize(Vehicle vehicle, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject();
+            gen.writeFieldName(ID);
+            writeId(vehicle.getId(), gen);
+            gen.writeFieldName(PLATE_NUM);
+            gen.writeString(vehicle.getPlateNum());
+            gen.writeFieldName(CATEGORY);
+            writeCategory(vehicle.getCategory(), gen);
+            gen.writeFieldName(DRIVER);
+            if (vehicle.getDriver() != null) {
+                writeDriver(vehicle.getDriver(), gen);
+            } else {
+                gen.writeNull();
+            }
+            gen.writeEndObject();
+        }
+    }
+
+    private static void writeDriver(Driver driver, JsonGenerator gen) throws IOException {
+        gen.writeStartObject();
+        gen.writeFieldName(ID);
+        writeId(driver.getId(), gen);
+        gen.writeFieldName(NAME);
+        gen.writeString(driver.getName());
+        gen.writeFieldName(LICENSE_NUM);
+        gen.writeString(driver.getLicenseNum());
+        gen.writeFieldName(CATEGORY);
+        writeCategory(driver.getCategory(), gen);
+        gen.writeEndObject();
+    }
+
+    private static void writeId(Long id, JsonGenerator gen) throws IOException {
+        if (id != null) {
+            gen.writeNumber(id);
+        } else {
+            gen.writeNull();
+        }
+    }
+
+    private static void writeCategory(Category category, JsonGenerator gen) throws IOException {
+        if (category != null) {
+            gen.writeString(CATEGORIES[category.ordinal()]);
+        } else {
+            gen.writeNull();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.carpark.demo;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.repository.NoRepositoryBean;
+import org.springframework.data.repository.PagingAndSortingRepository;
+
+import java.util.List;
+
+/**
+ * The part of JpaRepository used by the application, base of DriverRepository and VehicleRepository.
+ *
+ * Spring Data JPA implements it with the same SimpleJpaRepository methods as JpaRepository,
+ * InMemoryRepository implements it for carpark.storage=memory, so both storages offer exactly
+ * the same contract. Query by example is left out, nothing uses it.
+ */
+@NoRepositoryBean
+interface FleetRepository<T> extends PagingAndSortingRepository<T, Long> {
+
+    @Override
+    List<T> findAll();
+
+    @Override
+    List<T> findAll(Sort sort);
+
+    @Override
+    List<T> findAllById(Iterable<Long> ids);
+
+    @Override
+    <S extends T> List<S> saveAll(Iterable<S> entities);
+
+    <S extends T> S saveAndFlush(S entity);
+
+    void flush();
+
+    T getOne(Long id);
+}
@@ -0,0 +1,93 @@
+package com.carpark.demo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Outcome of a fleet import: how many rows were read and stored,
+ * and every rejected row with its line number and the reason.
+ */
+class ImportReport {
+    private final String file;
+    private long lines;
+    private int imported;
+    private long elapsedMillis;
+    private final List<RejectedRow> rejected = new ArrayList<>();
+
+    ImportReport(String file) {
+        this.file = file;
+    }
+
+    void reject(long line, String reason) {
+        rejected.add(new RejectedRow(line, reason));
+    }
+
+    void sortRejected() {
+        rejected.sort(Comparator.comparingLong(RejectedRow::getLine));
+    }
+
+    public String getFile() {
+        return file;
+    }
+
+    public long getLines() {
+        return lines;
+    }
+
+    void setLines(long lines) {
+        this.lines = lines;
+    }
+
+    public int getImported() {
+        return imported;
+    }
+
+    void setImported(int imported) {
+        this.imported = imported;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public List<RejectedRow> getRejected() {
+        return Collections.unmodifiableList(rejected);
+    }
+
+    @Override
+    public String toString() {
+        return "Import of '" + file + "': lines = " + lines
+                + ", imported = " + imported
+                + ", rejected = " + rejected.size()
+                + ", took " + elapsedMillis + " ms";
+    }
+
+    static class RejectedRow {
+        private final long line;
+        private final String reason;
+
+        RejectedRow(long line, String reason) {
+            this.line = line;
+            this.reason = reason;
+        }
+
+        public long getLine() {
+            return line;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+
+        @Override
+        public String toString() {
+            return "line " + line + ": " + reason;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.carpark.demo;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+
+/**
+ * Bulk deletes for in-memory storage, each one is a single write-ahead log record
+ */
+@Component
+@ConditionalOnProperty(name = "carpark.storage", havingValue = "memory")
+class InMemoryBulkDeleteRepository implements BulkDeleteRepository {
+    private final InMemoryStore store;
+
+    InMemoryBulkDeleteRepository(InMemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public BulkDeletion deleteVehicles(Collection<Long> ids, Category category, boolean unassignedOnly) {
+        return store.deleteVehicles(ids, category, unassignedOnly);
+    }
+
+    @Override
+    public BulkDeletion deleteDrivers(Collection<Long> ids, Category category, boolean unassignedOnly) {
+        return store.deleteDrivers(ids, category, unassignedOnly);
+    }
+
+    @Override
+    public DriverDeletion deleteUnassignedDriver(long driverId) {
+        return store.deleteUnassignedDriver(driverId);
+    }
+}
@@ -0,0 +1,84 @@
+package com.carpark.demo;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * DriverRepository backed by InMemoryStore, used when carpark.storage=memory
+ */
+@Component
+@ConditionalOnProperty(name = "carpark.storage", havingValue = "memory")
+class InMemoryDriverRepository extends InMemoryRepository<Driver> implements DriverRepository {
+    private static final Comparator<Driver> BY_NAME =
+            Comparator.comparing(Driver::getName, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    private final InMemoryStore store;
+
+    InMemoryDriverRepository(InMemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    protected Long idOf(Driver driver) {
+        return driver.getId();
+    }
+
+    @Override
+    public Optional<Driver> findByLicenseNum(String licenseNum) {
+        return store.findDriverByLicenseNum(licenseNum);
+    }
+
+    @Override
+    public List<Driver> findByCategory(Category category) {
+        return store.findDriversByCategory(category);
+    }
+
+    @Override
+    public List<Driver> findByOrderByNameAsc() {
+        List<Driver> drivers = store.findDrivers();
+        drivers.sort(BY_NAME);
+        return drivers;
+    }
+
+    @Override
+    public List<Driver> findByOrderByNameDesc() {
+        List<Driver> drivers = store.findDrivers();
+        drivers.sort(BY_NAME.reversed());
+        return drivers;
+    }
+
+    @Override
+    public List<Driver> noCars() {
+        return store.findDriversWithoutVehicles();
+    }
+
+    @Override
+    public Optional<Driver> findById(Long id) {
+        return store.findDriver(id);
+    }
+
+    @Override
+    public List<Driver> findAll() {
+        return store.findDrivers();
+    }
+
+    @Override
+    public long count() {
+        return store.countDrivers();
+    }
+
+    @Override
+    public <S extends Driver> S save(S driver) {
+        store.saveDriver(driver);
+        return driver;
+    }
+
+    @Override
+    public void deleteById(Long id) {
+        store.deleteDriver(id);
+    }
+}
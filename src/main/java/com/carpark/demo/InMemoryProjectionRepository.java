@@ -0,0 +1,148 @@
+package com.carpark.demo;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * Sparse fieldset queries for in-memory storage.
+ *
+ * Rows already live in memory, so selected fields are simply copied out of stored entities.
+ */
+@Component
+@ConditionalOnProperty(name = "carpark.storage", havingValue = "memory")
+class InMemoryProjectionRepository implements ProjectionRepository {
+    private final DriverRepository driverRepository;
+    private final VehicleRepository vehicleRepository;
+
+    InMemoryProjectionRepository(DriverRepository driverRepository, VehicleRepository vehicleRepository) {
+        this.driverRepository = driverRepository;
+        this.vehicleRepository = vehicleRepository;
+    }
+
+    @Override
+    public List<Map<String, Object>> allDrivers(List<String> fields, String sort) {
+        if ("asc".equals(sort)) {
+            return drivers(driverRepository.findByOrderByNameAsc(), fields);
+        } else if ("desc".equals(sort)) {
+            return drivers(driverRepository.findByOrderByNameDesc(), fields);
+        }
+        return drivers(driverRepository.findAll(), fields);
+    }
+
+    @Override
+    public Optional<Map<String, Object>> driverById(Long driverId, List<String> fields) {
+        return driverRepository.findById(driverId).map(driver -> driver(driver, fields));
+    }
+
+    @Override
+    public Map<Long, Map<String, Object>> driversByIds(List<Long> driverIds, List<String> fields) {
+        Map<Long, Map<String, Object>> result = new HashMap<>();
+        for (Driver driver : driverRepository.findAllById(driverIds)) {
+            result.put(driver.getId(), driver(driver, fields));
+        }
+        return result;
+    }
+
+    @Override
+    public List<Map<String, Object>> driversWithoutCar(List<String> fields) {
+        return drivers(driverRepository.noCars(), fields);
+    }
+
+    @Override
+    public List<Map<String, Object>> driversByCategory(Category category, List<String> fields) {
+        return drivers(driverRepository.findByCategory(category), fields);
+    }
+
+    @Override
+    public List<Map<String, Object>> allVehicles(List<String> fields) {
+        return vehicles(vehicleRepository.findAll(), fields);
+    }
+
+    @Override
+    public Optional<Map<String, Object>> vehicleById(Long vehicleId, List<String> fields) {
+        return vehicleRepository.findById(vehicleId).map(vehicle -> vehicle(vehicle, fields));
+    }
+
+    @Override
+    public Map<Long, Map<String, Object>> vehiclesByIds(List<Long> vehicleIds, List<String> fields) {
+        Map<Long, Map<String, Object>> result = new HashMap<>();
+        for (Vehicle vehicle : vehicleRepository.findAllById(vehicleIds)) {
+            result.put(vehicle.getId(), vehicle(vehicle, fields));
+        }
+        return result;
+    }
+
+    @Override
+    public List<Map<String, Object>> vehiclesWithoutDriver(List<String> fields) {
+        return vehicles(vehicleRepository.findByDriver(null), fields);
+    }
+
+    @Override
+    public List<Map<String, Object>> vehiclesByDriverId(Long driverId, List<String> fields) {
+        return vehicles(vehicleRepository.findByDriverId(driverId), fields);
+    }
+
+    private static List<Map<String, Object>> drivers(List<Driver> drivers, List<String> fields) {
+        List<Map<String, Object>> result = new ArrayList<>(drivers.size());
+        for (Driver driver : drivers) {
+            result.add(driver(driver, fields));
+        }
+        return result;
+    }
+
+    private static Map<String, Object> driver(Driver driver, List<String> fields) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        for (String field : fields) {
+            switch (field) {
+                case "id":
+                    row.put(field, driver.getId());
+                    break;
+                case "name":
+                    row.put(field, driver.getName());
+                    break;
+                case "licenseNum":
+                    row.put(field, driver.getLicenseNum());
+                    break;
+                case "category":
+                    row.put(field, driver.getCategory());
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown driver field " + field);
+            }
+        }
+        return row;
+    }
+
+    private static List<Map<String, Object>> vehicles(List<Vehicle> vehicles, List<String> fields) {
+        List<Map<String, Object>> result = new ArrayList<>(vehicles.size());
+        for (Vehicle vehicle : vehicles) {
+            result.add(vehicle(vehicle, fields));
+        }
+        return result;
+    }
+
+    private static Map<String, Object> vehicle(Vehicle vehicle, List<String> fields) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        for (String field : fields) {
+            switch (field) {
+                case "id":
+                    row.put(field, vehicle.getId());
+                    break;
+                case "plateNum":
+                    row.put(field, vehicle.getPlateNum());
+                    break;
+                case "category":
+                    row.put(field, vehicle.getCategory());
+                    break;
+                case "driver":
+                    row.put(field, vehicle.getDriver() != null ? driver(vehicle.getDriver(), DRIVER_FIELDS) : null);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown vehicle field " + field);
+            }
+        }
+        return row;
+    }
+}
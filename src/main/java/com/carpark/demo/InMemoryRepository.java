@@ -0,0 +1,103 @@
+package com.carpark.demo;
+
+import org.springframework.beans.support.PropertyComparator;
+import org.springframework.data.domain.*;
+
+import javax.persistence.EntityNotFoundException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Generic part of FleetRepository for repositories backed by InMemoryStore.
+ *
+ * Everything is expressed with findAll, findById, save and deleteById of the concrete repository.
+ */
+abstract class InMemoryRepository<T> implements FleetRepository<T> {
+
+    protected abstract Long idOf(T entity);
+
+    @Override
+    public boolean existsById(Long id) {
+        return findById(id).isPresent();
+    }
+
+    @Override
+    public List<T> findAllById(Iterable<Long> ids) {
+        List<T> result = new ArrayList<>();
+        for (Long id : ids) {
+            findById(id).ifPresent(result::add);
+        }
+        return result;
+    }
+
+    @Override
+    public List<T> findAll(Sort sort) {
+        List<T> all = findAll();
+        Comparator<T> comparator = null;
+        for (Sort.Order order : sort) {
+            Comparator<T> next = new PropertyComparator<>(order.getProperty(), order.isIgnoreCase(), order.isAscending());
+            comparator = comparator == null ? next : comparator.thenComparing(next);
+        }
+        if (comparator != null) {
+            all.sort(comparator);
+        }
+        return all;
+    }
+
+    @Override
+    public Page<T> findAll(Pageable pageable) {
+        List<T> all = findAll(pageable.getSort());
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(all);
+        }
+        int from = (int) Math.min(pageable.getOffset(), all.size());
+        int to = Math.min(from + pageable.getPageSize(), all.size());
+        return new PageImpl<>(new ArrayList<>(all.subList(from, to)), pageable, all.size());
+    }
+
+    @Override
+    public <S extends T> List<S> saveAll(Iterable<S> entities) {
+        List<S> result = new ArrayList<>();
+        for (S entity : entities) {
+            result.add(save(entity));
+        }
+        return result;
+    }
+
+    @Override
+    public <S extends T> S saveAndFlush(S entity) {
+        return save(entity);
+    }
+
+    @Override
+    public void flush() {
+        //Every write is already in the log
+    }
+
+    @Override
+    public T getOne(Long id) {
+        return findById(id).orElseThrow(() -> new EntityNotFoundException("Unable to find entity with id " + id));
+    }
+
+    //Same as JPA, deleting entity which is not stored does nothing
+    @Override
+    public void delete(T entity) {
+        Long id = idOf(entity);
+        if (id != null && existsById(id)) {
+            deleteById(id);
+        }
+    }
+
+    @Override
+    public void deleteAll(Iterable<? extends T> entities) {
+        for (T entity : entities) {
+            delete(entity);
+        }
+    }
+
+    @Override
+    public void deleteAll() {
+        deleteAll(findAll());
+    }
+}
@@ -0,0 +1,714 @@
+package com.carpark.demo;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+
+import javax.annotation.PreDestroy;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Storage engine used instead of Postgres when carpark.storage=memory.
+ *
+ * Drivers and vehicles are kept in concurrent maps by id with secondary indexes on
+ * license number, plate number, category and driver id. Reads never block.
+ * Writes are serialized, checked for the same constraints the database has
+ * (unique license and plate numbers, vehicle category not null, vehicle driver exists,
+ * driver can not be deleted while assigned to a vehicle), appended to the write-ahead log
+ * and only then applied to the maps.
+ *
+ * Periodically a snapshot of all rows is written and log files it covers are deleted.
+ * On startup the snapshot is loaded and newer log records are replayed on top of it.
+ *
+ * Settings:
+ * carpark.memory.data-dir             – directory for snapshot and log files
+ * carpark.memory.fsync                – force every log record to disk before write returns
+ * carpark.memory.snapshot-interval-ms – how often to take snapshot
+ */
+@Component
+@ConditionalOnProperty(name = "carpark.storage", havingValue = "memory")
+class InMemoryStore {
+    private static final Logger log = LoggerFactory.getLogger(InMemoryStore.class);
+
+    private static final byte PUT_DRIVER = 1;
+    private static final byte PUT_VEHICLE = 2;
+    private static final byte DELETE_DRIVER = 3;
+    private static final byte DELETE_VEHICLE = 4;
+    //Several of the records above applied together
+    private static final byte BATCH = 5;
+
+    private static final String SNAPSHOT = "snapshot.dat";
+    private static final int SNAPSHOT_MAGIC = 0x43505331;
+
+    private static final Category[] CATEGORIES = Category.values();
+
+    private final ConcurrentSkipListMap<Long, DriverRow> drivers = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<Long, VehicleRow> vehicles = new ConcurrentSkipListMap<>();
+    private final ConcurrentHashMap<String, Long> driverIdByLicense = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Long> vehicleIdByPlate = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Category, Set<Long>> driverIdsByCategory = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Set<Long>> vehicleIdsByDriver = new ConcurrentHashMap<>();
+    private final Set<Long> vehicleIdsWithoutDriver = new ConcurrentSkipListSet<>();
+
+    private final Path directory;
+    private final WriteAheadLog wal;
+
+    //Guarded by writeLock
+    private final Object writeLock = new Object();
+    private long lsn;
+    private long lastDriverId;
+    private long lastVehicleId;
+
+    private volatile long snapshotLsn;
+
+    InMemoryStore(@Value("${carpark.memory.data-dir:data}") String directory,
+                  @Value("${carpark.memory.fsync:true}") boolean fsync) throws IOException {
+        this.directory = Paths.get(directory);
+        this.wal = new WriteAheadLog(this.directory, fsync);
+
+        long started = System.currentTimeMillis();
+        readSnapshot();
+        long fromSnapshot = lsn;
+        wal.replay(this::replay);
+        wal.rotate(lsn + 1);
+        log.info("Loaded {} drivers and {} vehicles from {} ({} log records replayed) in {} ms",
+                drivers.size(), vehicles.size(), this.directory.toAbsolutePath(),
+                lsn - fromSnapshot, System.currentTimeMillis() - started);
+    }
+
+    //Drivers
+
+    Optional<Driver> findDriver(Long id) {
+        return Optional.ofNullable(id != null ? drivers.get(id) : null).map(this::toDriver);
+    }
+
+    List<Driver> findDrivers() {
+        return toDrivers(drivers.keySet());
+    }
+
+    Optional<Driver> findDriverByLicenseNum(String licenseNum) {
+        return findDriver(licenseNum != null ? driverIdByLicense.get(licenseNum) : null);
+    }
+
+    List<Driver> findDriversByCategory(Category category) {
+        Set<Long> ids = category != null ? driverIdsByCategory.get(category) : null;
+        return ids != null ? toDrivers(ids) : new ArrayList<>();
+    }
+
+    List<Driver> findDriversWithoutVehicles() {
+        List<Driver> result = new ArrayList<>();
+        for (DriverRow row : drivers.values()) {
+            Set<Long> assigned = vehicleIdsByDriver.get(row.id);
+            if (assigned == null || assigned.isEmpty()) {
+                result.add(toDriver(row));
+            }
+        }
+        return result;
+    }
+
+    long countDrivers() {
+        return drivers.size();
+    }
+
+    Driver saveDriver(Driver driver) {
+        synchronized (writeLock) {
+            long id = driver.getId() != null && drivers.containsKey(driver.getId())
+                    ? driver.getId()
+                    : lastDriverId + 1;
+
+            Long owner = driver.getLicenseNum() != null ? driverIdByLicense.get(driver.getLicenseNum()) : null;
+            if (owner != null && owner != id) {
+                throw new DataIntegrityViolationException("Duplicate license number " + driver.getLicenseNum());
+            }
+
+            DriverRow row = new DriverRow(id, driver.getName(), driver.getLicenseNum(), driver.getCategory());
+            append(PUT_DRIVER, out -> writeDriver(out, row));
+            putDriver(row);
+            driver.setId(id);
+            return driver;
+        }
+    }
+
+    void deleteDriver(Long id) {
+        Assert.notNull(id, "The given id must not be null!");
+        synchronized (writeLock) {
+            if (!drivers.containsKey(id)) {
+                throw new EmptyResultDataAccessException("No driver with id " + id + " exists!", 1);
+            }
+            Set<Long> assigned = vehicleIdsByDriver.get(id);
+            if (assigned != null && !assigned.isEmpty()) {
+                throw new DataIntegrityViolationException("Driver " + id + " is assigned to vehicle " + assigned);
+            }
+            append(DELETE_DRIVER, out -> out.writeLong(id));
+            removeDriver(id);
+        }
+    }
+
+    //Vehicles
+
+    Optional<Vehicle> findVehicle(Long id) {
+        return Optional.ofNullable(id != null ? vehicles.get(id) : null).map(this::toVehicle);
+    }
+
+    List<Vehicle> findVehicles() {
+        return toVehicles(vehicles.keySet());
+    }
+
+    Optional<Vehicle> findVehicleByPlateNum(String plateNum) {
+        return findVehicle(plateNum != null ? vehicleIdByPlate.get(plateNum) : null);
+    }
+
+    //Null driverId returns vehicles without driver
+    List<Vehicle> findVehiclesByDriverId(Long driverId) {
+        if (driverId == null) {
+            return toVehicles(vehicleIdsWithoutDriver);
+        }
+        Set<Long> ids = vehicleIdsByDriver.get(driverId);
+        return ids != null ? toVehicles(ids) : new ArrayList<>();
+    }
+
+    long countVehicles() {
+        return vehicles.size();
+    }
+
+    Vehicle saveVehicle(Vehicle vehicle) {
+        synchronized (writeLock) {
+            long id = vehicle.getId() != null && vehicles.containsKey(vehicle.getId())
+                    ? vehicle.getId()
+                    : lastVehicleId + 1;
+
+            if (vehicle.getCategory() == null) {
+                throw new DataIntegrityViolationException("Vehicle category must not be null");
+            }
+            Long owner = vehicle.getPlateNum() != null ? vehicleIdByPlate.get(vehicle.getPlateNum()) : null;
+            if (owner != null && owner != id) {
+                throw new DataIntegrityViolationException("Duplicate plate number " + vehicle.getPlateNum());
+            }
+            Long driverId = vehicle.getDriver() != null ? vehicle.getDriver().getId() : null;
+            if (vehicle.getDriver() != null && (driverId == null || !drivers.containsKey(driverId))) {
+                throw new DataIntegrityViolationException("No driver with id " + driverId);
+            }
+
+            VehicleRow row = new VehicleRow(id, vehicle.getPlateNum(), vehicle.getCategory(), driverId);
+            append(PUT_VEHICLE, out -> writeVehicle(out, row));
+            putVehicle(row);
+            vehicle.setId(id);
+            vehicle.setDriver(driverId != null ? toDriver(drivers.get(driverId)) : null);
+            return vehicle;
+        }
+    }
+
+    void deleteVehicle(Long id) {
+        Assert.notNull(id, "The given id must not be null!");
+        synchronized (writeLock) {
+            if (!vehicles.containsKey(id)) {
+                throw new EmptyResultDataAccessException("No vehicle with id " + id + " exists!", 1);
+            }
+            append(DELETE_VEHICLE, out -> out.writeLong(id));
+            removeVehicle(id);
+        }
+    }
+
+    //Bulk deletes
+
+    /**
+     * Delete vehicles with given ids (missing ones are skipped), or all vehicles matching
+     * category (null for any) and unassignedOnly if ids is null.
+     * All deletes are one log record, so after a crash either all of them are applied or none.
+     */
+    BulkDeletion deleteVehicles(Collection<Long> ids, Category category, boolean unassignedOnly) {
+        synchronized (writeLock) {
+            List<VehicleRow> rows = new ArrayList<>();
+            if (ids != null) {
+                for (Long id : new LinkedHashSet<>(ids)) {
+                    VehicleRow row = id != null ? vehicles.get(id) : null;
+                    if (row != null) {
+                        rows.add(row);
+                    }
+                }
+            } else {
+                for (VehicleRow row : vehicles.values()) {
+                    if (rows.size() == BulkDeleteRepository.MAX_IDS) {
+                        break;
+                    }
+                    if ((category == null || row.category == category) && (!unassignedOnly || row.driverId == null)) {
+                        rows.add(row);
+                    }
+                }
+            }
+
+            BulkDeletion deletion = new BulkDeletion();
+            if (rows.isEmpty()) {
+                return deletion;
+            }
+            append(BATCH, out -> {
+                out.writeInt(rows.size());
+                for (VehicleRow row : rows) {
+                    out.writeByte(DELETE_VEHICLE);
+                    out.writeLong(row.id);
+                }
+            });
+            for (VehicleRow row : rows) {
+                removeVehicle(row.id);
+                deletion.deleted(row.id);
+                if (row.driverId != null) {
+                    deletion.unassigned(row.id, row.driverId);
+                }
+            }
+            return deletion;
+        }
+    }
+
+    /**
+     * Delete drivers with given ids (missing ones are skipped), or all drivers matching
+     * category (null for any) and unassignedOnly if ids is null.
+     * Vehicles of deleted drivers are left without driver. Everything is one log record.
+     */
+    BulkDeletion deleteDrivers(Collection<Long> ids, Category category, boolean unassignedOnly) {
+        synchronized (writeLock) {
+            List<DriverRow> rows = new ArrayList<>();
+            if (ids != null) {
+                for (Long id : new LinkedHashSet<>(ids)) {
+                    DriverRow row = id != null ? drivers.get(id) : null;
+                    if (row != null) {
+                        rows.add(row);
+                    }
+                }
+            } else {
+                for (DriverRow row : drivers.values()) {
+                    if (rows.size() == BulkDeleteRepository.MAX_IDS) {
+                        break;
+                    }
+                    Set<Long> assigned = vehicleIdsByDriver.get(row.id);
+                    if ((category == null || row.category == category)
+                            && (!unassignedOnly || assigned == null || assigned.isEmpty())) {
+                        rows.add(row);
+                    }
+                }
+            }
+
+            BulkDeletion deletion = new BulkDeletion();
+            if (rows.isEmpty()) {
+                return deletion;
+            }
+            List<VehicleRow> unassigned = new ArrayList<>();
+            for (DriverRow row : rows) {
+                Set<Long> assigned = vehicleIdsByDriver.get(row.id);
+                if (assigned != null) {
+                    for (Long vehicleId : assigned) {
+                        VehicleRow vehicle = vehicles.get(vehicleId);
+                        unassigned.add(new VehicleRow(vehicle.id, vehicle.plateNum, vehicle.category, null));
+                        deletion.unassigned(vehicle.id, row.id);
+                    }
+                }
+            }
+
+            append(BATCH, out -> {
+                out.writeInt(unassigned.size() + rows.size());
+                for (VehicleRow vehicle : unassigned) {
+                    out.writeByte(PUT_VEHICLE);
+                    writeVehicle(out, vehicle);
+                }
+                for (DriverRow row : rows) {
+                    out.writeByte(DELETE_DRIVER);
+                    out.writeLong(row.id);
+                }
+            });
+            for (VehicleRow vehicle : unassigned) {
+                putVehicle(vehicle);
+            }
+            for (DriverRow row : rows) {
+                removeDriver(row.id);
+                deletion.deleted(row.id);
+            }
+            return deletion;
+        }
+    }
+
+    /**
+     * Delete driver if no vehicle is assigned to it, checked under the same lock as the delete
+     */
+    BulkDeleteRepository.DriverDeletion deleteUnassignedDriver(long id) {
+        synchronized (writeLock) {
+            if (!drivers.containsKey(id)) {
+                return BulkDeleteRepository.DriverDeletion.NOT_FOUND;
+            }
+            Set<Long> assigned = vehicleIdsByDriver.get(id);
+            if (assigned != null && !assigned.isEmpty()) {
+                return BulkDeleteRepository.DriverDeletion.ASSIGNED;
+            }
+            append(DELETE_DRIVER, out -> out.writeLong(id));
+            removeDriver(id);
+            return BulkDeleteRepository.DriverDeletion.DELETED;
+        }
+    }
+
+    //Maps and indexes. Rows are put before index entries and removed after them,
+    //so a reader going through an index may find a missing row, but never a stale one
+
+    private void putDriver(DriverRow row) {
+        DriverRow old = drivers.put(row.id, row);
+        if (old != null) {
+            if (old.licenseNum != null && !old.licenseNum.equals(row.licenseNum)) {
+                driverIdByLicense.remove(old.licenseNum, old.id);
+            }
+            if (old.category != null && old.category != row.category) {
+                driverIdsByCategory.get(old.category).remove(old.id);
+            }
+        }
+        if (row.licenseNum != null) {
+            driverIdByLicense.put(row.licenseNum, row.id);
+        }
+        if (row.category != null) {
+            driverIdsByCategory.computeIfAbsent(row.category, category -> new ConcurrentSkipListSet<>()).add(row.id);
+        }
+        lastDriverId = Math.max(lastDriverId, row.id);
+    }
+
+    private void removeDriver(long id) {
+        DriverRow old = drivers.get(id);
+        if (old == null) {
+            return;
+        }
+        if (old.licenseNum != null) {
+            driverIdByLicense.remove(old.licenseNum, id);
+        }
+        if (old.category != null) {
+            driverIdsByCategory.get(old.category).remove(id);
+        }
+        vehicleIdsByDriver.remove(id);
+        drivers.remove(id);
+    }
+
+    private void putVehicle(VehicleRow row) {
+        VehicleRow old = vehicles.put(row.id, row);
+        if (old != null) {
+            if (old.plateNum != null && !old.plateNum.equals(row.plateNum)) {
+                vehicleIdByPlate.remove(old.plateNum, old.id);
+            }
+            if (!Objects.equals(old.driverId, row.driverId)) {
+                unlinkDriver(old);
+            }
+        }
+        if (row.plateNum != null) {
+            vehicleIdByPlate.put(row.plateNum, row.id);
+        }
+        if (row.driverId != null) {
+            vehicleIdsByDriver.computeIfAbsent(row.driverId, driverId -> new ConcurrentSkipListSet<>()).add(row.id);
+        } else {
+            vehicleIdsWithoutDriver.add(row.id);
+        }
+        lastVehicleId = Math.max(lastVehicleId, row.id);
+    }
+
+    private void removeVehicle(long id) {
+        VehicleRow old = vehicles.get(id);
+        if (old == null) {
+            return;
+        }
+        if (old.plateNum != null) {
+            vehicleIdByPlate.remove(old.plateNum, id);
+        }
+        unlinkDriver(old);
+        vehicles.remove(id);
+    }
+
+    private void unlinkDriver(VehicleRow row) {
+        if (row.driverId == null) {
+            vehicleIdsWithoutDriver.remove(row.id);
+            return;
+        }
+        Set<Long> assigned = vehicleIdsByDriver.get(row.driverId);
+        if (assigned != null) {
+            assigned.remove(row.id);
+        }
+    }
+
+    private Driver toDriver(DriverRow row) {
+        Driver driver = new Driver(row.name, row.licenseNum, row.category);
+        driver.setId(row.id);
+        return driver;
+    }
+
+    private List<Driver> toDrivers(Collection<Long> ids) {
+        List<Driver> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            DriverRow row = drivers.get(id);
+            if (row != null) {
+                result.add(toDriver(row));
+            }
+        }
+        return result;
+    }
+
+    private Vehicle toVehicle(VehicleRow row) {
+        DriverRow driver = row.driverId != null ? drivers.get(row.driverId) : null;
+        Vehicle vehicle = new Vehicle(row.plateNum, row.category, driver != null ? toDriver(driver) : null);
+        vehicle.setId(row.id);
+        return vehicle;
+    }
+
+    private List<Vehicle> toVehicles(Collection<Long> ids) {
+        List<Vehicle> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            VehicleRow row = vehicles.get(id);
+            if (row != null) {
+                result.add(toVehicle(row));
+            }
+        }
+        return result;
+    }
+
+    //Write-ahead log
+
+    private void append(byte type, RecordWriter writer) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeLong(lsn + 1);
+            out.writeByte(type);
+            writer.write(out);
+            out.flush();
+            wal.append(bytes.toByteArray());
+            lsn++;
+        } catch (IOException e) {
+            throw new DataAccessResourceFailureException("Could not write to write-ahead log", e);
+        }
+    }
+
+    private void replay(DataInputStream in) throws IOException {
+        long recordLsn = in.readLong();
+        byte type = in.readByte();
+        if (recordLsn <= lsn) {
+            //Already in snapshot
+            return;
+        }
+        if (type == BATCH) {
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                apply(in.readByte(), in, recordLsn);
+            }
+        } else {
+            apply(type, in, recordLsn);
+        }
+        lsn = recordLsn;
+    }
+
+    private void apply(byte type, DataInputStream in, long recordLsn) throws IOException {
+        switch (type) {
+            case PUT_DRIVER:
+                putDriver(readDriver(in));
+                break;
+            case PUT_VEHICLE:
+                putVehicle(readVehicle(in));
+                break;
+            case DELETE_DRIVER:
+                removeDriver(in.readLong());
+                break;
+            case DELETE_VEHICLE:
+                removeVehicle(in.readLong());
+                break;
+            default:
+                throw new IOException("Unknown log record type " + type + " at lsn " + recordLsn);
+        }
+    }
+
+    //Snapshots
+
+    @Scheduled(fixedDelayString = "${carpark.memory.snapshot-interval-ms:60000}",
+            initialDelayString = "${carpark.memory.snapshot-interval-ms:60000}")
+    void scheduledSnapshot() {
+        try {
+            snapshot();
+        } catch (IOException e) {
+            log.error("Could not write snapshot, log files are kept", e);
+        }
+    }
+
+    /**
+     * Write all rows to snapshot file and delete log files it makes unnecessary.
+     * Writes are blocked only while rows are copied, not while the file is written.
+     */
+    synchronized void snapshot() throws IOException {
+        List<DriverRow> driverRows;
+        List<VehicleRow> vehicleRows;
+        long snapshotAt;
+        long lastDriver;
+        long lastVehicle;
+        synchronized (writeLock) {
+            if (lsn == snapshotLsn) {
+                return;
+            }
+            driverRows = new ArrayList<>(drivers.values());
+            vehicleRows = new ArrayList<>(vehicles.values());
+            snapshotAt = lsn;
+            lastDriver = lastDriverId;
+            lastVehicle = lastVehicleId;
+            wal.rotate(lsn + 1);
+        }
+
+        long started = System.currentTimeMillis();
+        Path tmp = directory.resolve(SNAPSHOT + ".tmp");
+        try (FileOutputStream file = new FileOutputStream(tmp.toFile())) {
+            BufferedOutputStream buffered = new BufferedOutputStream(file);
+            CheckedOutputStream checked = new CheckedOutputStream(buffered, new CRC32());
+            DataOutputStream out = new DataOutputStream(checked);
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeLong(snapshotAt);
+            out.writeLong(lastDriver);
+            out.writeLong(lastVehicle);
+            out.writeInt(driverRows.size());
+            for (DriverRow row : driverRows) {
+                writeDriver(out, row);
+            }
+            out.writeInt(vehicleRows.size());
+            for (VehicleRow row : vehicleRows) {
+                writeVehicle(out, row);
+            }
+            new DataOutputStream(buffered).writeLong(checked.getChecksum().getValue());
+            buffered.flush();
+            file.getChannel().force(true);
+        }
+        Files.move(tmp, directory.resolve(SNAPSHOT),
+                StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        wal.deleteFilesBefore(snapshotAt + 1);
+        snapshotLsn = snapshotAt;
+        log.info("Snapshot of {} drivers and {} vehicles at lsn {} written in {} ms",
+                driverRows.size(), vehicleRows.size(), snapshotAt, System.currentTimeMillis() - started);
+    }
+
+    private void readSnapshot() throws IOException {
+        Path path = directory.resolve(SNAPSHOT);
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (BufferedInputStream buffered = new BufferedInputStream(Files.newInputStream(path))) {
+            CheckedInputStream checked = new CheckedInputStream(buffered, new CRC32());
+            DataInputStream in = new DataInputStream(checked);
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                throw new IOException(path + " is not a snapshot file");
+            }
+            long snapshotAt = in.readLong();
+            lastDriverId = in.readLong();
+            lastVehicleId = in.readLong();
+            for (int i = in.readInt(); i > 0; i--) {
+                putDriver(readDriver(in));
+            }
+            for (int i = in.readInt(); i > 0; i--) {
+                putVehicle(readVehicle(in));
+            }
+            if (new DataInputStream(buffered).readLong() != checked.getChecksum().getValue()) {
+                throw new IOException("Snapshot " + path + " is damaged");
+            }
+            lsn = snapshotAt;
+            snapshotLsn = snapshotAt;
+        }
+    }
+
+    @PreDestroy
+    void close() {
+        try {
+            snapshot();
+            synchronized (writeLock) {
+                wal.close();
+            }
+        } catch (IOException e) {
+            log.error("Could not close storage cleanly, log will be replayed on next start", e);
+        }
+    }
+
+    //Record encoding
+
+    private interface RecordWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private static void writeDriver(DataOutputStream out, DriverRow row) throws IOException {
+        out.writeLong(row.id);
+        writeString(out, row.name);
+        writeString(out, row.licenseNum);
+        out.writeByte(row.category != null ? row.category.ordinal() : -1);
+    }
+
+    private static DriverRow readDriver(DataInputStream in) throws IOException {
+        return new DriverRow(in.readLong(), readString(in), readString(in), readCategory(in));
+    }
+
+    private static void writeVehicle(DataOutputStream out, VehicleRow row) throws IOException {
+        out.writeLong(row.id);
+        writeString(out, row.plateNum);
+        out.writeByte(row.category.ordinal());
+        out.writeLong(row.driverId != null ? row.driverId : -1L);
+    }
+
+    private static VehicleRow readVehicle(DataInputStream in) throws IOException {
+        long id = in.readLong();
+        String plateNum = readString(in);
+        Category category = readCategory(in);
+        long driverId = in.readLong();
+        return new VehicleRow(id, plateNum, category, driverId >= 0 ? driverId : null);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static Category readCategory(DataInputStream in) throws IOException {
+        byte ordinal = in.readByte();
+        return ordinal >= 0 ? CATEGORIES[ordinal] : null;
+    }
+
+    private static final class DriverRow {
+        final long id;
+        final String name;
+        final String licenseNum;
+        final Category category;
+
+        DriverRow(long id, String name, String licenseNum, Category category) {
+            this.id = id;
+            this.name = name;
+            this.licenseNum = licenseNum;
+            this.category = category;
+        }
+    }
+
+    private static final class VehicleRow {
+        final long id;
+        final String plateNum;
+        final Category category;
+        final Long driverId;
+
+        VehicleRow(long id, String plateNum, Category category, Long driverId) {
+            this.id = id;
+            this.plateNum = plateNum;
+            this.category = category;
+            this.driverId = driverId;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.carpark.demo;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * VehicleRepository backed by InMemoryStore, used when carpark.storage=memory
+ */
+@Component
+@ConditionalOnProperty(name = "carpark.storage", havingValue = "memory")
+class InMemoryVehicleRepository extends InMemoryRepository<Vehicle> implements VehicleRepository {
+    private final InMemoryStore store;
+
+    InMemoryVehicleRepository(InMemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    protected Long idOf(Vehicle vehicle) {
+        return vehicle.getId();
+    }
+
+    @Override
+    public List<Vehicle> findByDriver(Driver driver) {
+        return store.findVehiclesByDriverId(driver != null ? driver.getId() : null);
+    }
+
+    @Override
+    public List<Vehicle> findByDriverId(Long driverId) {
+        return store.findVehiclesByDriverId(driverId);
+    }
+
+    @Override
+    public Optional<Vehicle> findByPlateNum(String plateNum) {
+        return store.findVehicleByPlateNum(plateNum);
+    }
+
+    @Override
+    public List<Vehicle> findAllWithDriverByIdIn(Collection<Long> ids) {
+        return findAllById(ids);
+    }
+
+    @Override
+    public List<Long> findIdsByIdIn(Collection<Long> ids) {
+        List<Long> existing = new ArrayList<>();
+        for (Long id : ids) {
+            if (existsById(id)) {
+                existing.add(id);
+            }
+        }
+        return existing;
+    }
+
+    @Override
+    public Optional<Vehicle> findById(Long id) {
+        return store.findVehicle(id);
+    }
+
+    @Override
+    public List<Vehicle> findAll() {
+        return store.findVehicles();
+    }
+
+    @Override
+    public long count() {
+        return store.countVehicles();
+    }
+
+    @Override
+    public <S extends Vehicle> S save(S vehicle) {
+        store.saveVehicle(vehicle);
+        return vehicle;
+    }
+
+    @Override
+    public void deleteById(Long id) {
+        store.deleteVehicle(id);
+    }
+}
@@ -0,0 +1,180 @@
+package com.carpark.demo;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Assignment history in Postgres, one table per day: assignment_history_yyyymmdd.
+ *
+ * Tables are created on first event of the day and never updated, a query is a UNION ALL
+ * over tables of days in range only, and retention is DROP TABLE instead of a DELETE
+ * scanning the whole history. Tables have no foreign keys, history outlives vehicles and drivers.
+ *
+ * The list of day tables is read from information_schema by every query and retention run,
+ * so tables created or dropped by other instances of the application are seen at once.
+ *
+ * Times are TIMESTAMPTZ and bound as UTC OffsetDateTime, so instances in different
+ * time zones (or a JVM zone changing DST) read and write the same instants.
+ */
+@Repository
+@ConditionalOnProperty(name = "carpark.storage", havingValue = "jpa", matchIfMissing = true)
+class JdbcAssignmentHistory implements AssignmentHistory {
+    private static final String PREFIX = "assignment_history_";
+    private static final DateTimeFormatter DAY = DateTimeFormatter.BASIC_ISO_DATE;
+    private static final RowMapper<AssignmentEvent> EVENT = (rs, i) -> new AssignmentEvent(
+            rs.getLong(1), (Long) rs.getObject(2), (Long) rs.getObject(3), rs.getObject(4, OffsetDateTime.class).toInstant());
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    //Days this instance knows to have a table, so append does not run DDL for every batch
+    private final Set<LocalDate> created = ConcurrentHashMap.newKeySet();
+
+    JdbcAssignmentHistory(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    //Days which have a table
+    private NavigableSet<LocalDate> partitions() {
+        NavigableSet<LocalDate> partitions = new TreeSet<>();
+        List<String> tables = jdbcTemplate.queryForList(
+                "SELECT table_name FROM information_schema.tables " +
+                        "WHERE table_schema = current_schema() AND table_name LIKE 'assignment\\_history\\_%'",
+                String.class);
+        for (String table : tables) {
+            try {
+                partitions.add(LocalDate.parse(table.substring(PREFIX.length()), DAY));
+            } catch (RuntimeException e) {
+                //Not a partition, just a similar name
+            }
+        }
+        return partitions;
+    }
+
+    private static String table(LocalDate day) {
+        return PREFIX + DAY.format(day);
+    }
+
+    private void createPartition(LocalDate day) {
+        String table = table(day);
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + table + " (" +
+                "vehicle_id BIGINT NOT NULL, " +
+                "driver_id BIGINT, " +
+                "previous_driver_id BIGINT, " +
+                "changed_at TIMESTAMPTZ NOT NULL)");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS " + table + "_vehicle ON " + table + " (vehicle_id)");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS " + table + "_driver ON " + table + " (driver_id)");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS " + table + "_previous_driver ON " + table + " (previous_driver_id)");
+    }
+
+    /**
+     * Write events of all days in one transaction, so a failed append can be retried as a whole
+     */
+    @Override
+    public void append(List<AssignmentEvent> events) {
+        Map<LocalDate, List<AssignmentEvent>> byDay = new TreeMap<>();
+        for (AssignmentEvent event : events) {
+            byDay.computeIfAbsent(AssignmentEvent.day(event.getChangedAt()), d -> new ArrayList<>()).add(event);
+        }
+
+        try {
+            transactionTemplate.execute(status -> insert(byDay));
+        } catch (RuntimeException e) {
+            //Table may have been dropped by another instance, create it again on retry
+            created.removeAll(byDay.keySet());
+            throw e;
+        }
+        //Only after commit, a rolled back CREATE TABLE leaves no table behind
+        created.addAll(byDay.keySet());
+    }
+
+    private Void insert(Map<LocalDate, List<AssignmentEvent>> byDay) {
+        for (Map.Entry<LocalDate, List<AssignmentEvent>> day : byDay.entrySet()) {
+            if (!created.contains(day.getKey())) {
+                createPartition(day.getKey());
+            }
+            List<AssignmentEvent> dayEvents = day.getValue();
+            jdbcTemplate.batchUpdate("INSERT INTO " + table(day.getKey()) +
+                            " (vehicle_id, driver_id, previous_driver_id, changed_at) VALUES (?, ?, ?, ?)",
+                    dayEvents, dayEvents.size(),
+                    (ps, event) -> {
+                        ps.setLong(1, event.getVehicleId());
+                        setNullableLong(ps, 2, event.getDriverId());
+                        setNullableLong(ps, 3, event.getPreviousDriverId());
+                        ps.setObject(4, utc(event.getChangedAt()));
+                    });
+        }
+        return null;
+    }
+
+    private static void setNullableLong(PreparedStatement ps, int index, Long value) throws SQLException {
+        if (value != null) {
+            ps.setLong(index, value);
+        } else {
+            ps.setNull(index, Types.BIGINT);
+        }
+    }
+
+    //Not java.sql.Timestamp, which the driver sends as wall-clock time of the JVM time zone
+    private static OffsetDateTime utc(Instant instant) {
+        return OffsetDateTime.ofInstant(instant, ZoneOffset.UTC);
+    }
+
+    @Override
+    public List<AssignmentEvent> byVehicle(long vehicleId, Instant from, Instant to) {
+        return query("vehicle_id = ?", new Object[]{vehicleId}, from, to);
+    }
+
+    @Override
+    public List<AssignmentEvent> byDriver(long driverId, Instant from, Instant to) {
+        return query("(driver_id = ? OR previous_driver_id = ?)", new Object[]{driverId, driverId}, from, to);
+    }
+
+    private List<AssignmentEvent> query(String condition, Object[] conditionArgs, Instant from, Instant to) {
+        Set<LocalDate> days = partitions().subSet(AssignmentEvent.day(from), true, AssignmentEvent.day(to), true);
+        if (days.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        StringBuilder sql = new StringBuilder();
+        List<Object> args = new ArrayList<>();
+        for (LocalDate day : days) {
+            if (sql.length() > 0) {
+                sql.append(" UNION ALL ");
+            }
+            sql.append("SELECT vehicle_id, driver_id, previous_driver_id, changed_at FROM ").append(table(day))
+                    .append(" WHERE ").append(condition).append(" AND changed_at >= ? AND changed_at < ?");
+            args.addAll(Arrays.asList(conditionArgs));
+            args.add(utc(from));
+            args.add(utc(to));
+        }
+        sql.append(" ORDER BY changed_at");
+        return jdbcTemplate.query(sql.toString(), EVENT, args.toArray());
+    }
+
+    @Override
+    public int dropBefore(LocalDate day) {
+        int dropped = 0;
+        for (LocalDate old : partitions().headSet(day, false)) {
+            jdbcTemplate.execute("DROP TABLE IF EXISTS " + table(old));
+            created.remove(old);
+            dropped++;
+        }
+        return dropped;
+    }
+}
@@ -0,0 +1,129 @@
+package com.carpark.demo;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+
+/**
+ * Bulk deletes in Postgres with one statement per 1000 ids instead of one per row:
+ * rows are locked, vehicles of deleted drivers are unassigned with a single UPDATE,
+ * then rows are deleted with DELETE ... RETURNING, which also tells which ids existed.
+ * All chunks run in one transaction.
+ *
+ * A single driver is locked and then deleted with one DELETE ... WHERE NOT EXISTS (vehicle of the driver).
+ * The lock waits for transactions assigning the driver to commit, so the check sees their vehicles.
+ */
+@Repository
+@ConditionalOnProperty(name = "carpark.storage", havingValue = "jpa", matchIfMissing = true)
+class JdbcBulkDeleteRepository implements BulkDeleteRepository {
+    private static final int IN_LIST_SIZE = 1000;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    JdbcBulkDeleteRepository(NamedParameterJdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public BulkDeletion deleteVehicles(Collection<Long> ids, Category category, boolean unassignedOnly) {
+        return transactionTemplate.execute(status -> {
+            Collection<Long> targets = ids;
+            if (targets == null) {
+                MapSqlParameterSource params = new MapSqlParameterSource();
+                StringBuilder sql = new StringBuilder("SELECT id FROM vehicle WHERE 1 = 1");
+                if (category != null) {
+                    sql.append(" AND category = :category");
+                    params.addValue("category", category.name());
+                }
+                if (unassignedOnly) {
+                    sql.append(" AND driver_id IS NULL");
+                }
+                sql.append(" ORDER BY id LIMIT :limit FOR UPDATE");
+                params.addValue("limit", MAX_IDS);
+                targets = jdbcTemplate.queryForList(sql.toString(), params, Long.class);
+            }
+
+            BulkDeletion deletion = new BulkDeletion();
+            for (List<Long> chunk : chunks(targets)) {
+                jdbcTemplate.query("DELETE FROM vehicle WHERE id IN (:ids) RETURNING id, driver_id",
+                        Collections.singletonMap("ids", chunk),
+                        rs -> {
+                            deletion.deleted(rs.getLong(1));
+                            long driverId = rs.getLong(2);
+                            if (!rs.wasNull()) {
+                                deletion.unassigned(rs.getLong(1), driverId);
+                            }
+                        });
+            }
+            return deletion;
+        });
+    }
+
+    @Override
+    public BulkDeletion deleteDrivers(Collection<Long> ids, Category category, boolean unassignedOnly) {
+        return transactionTemplate.execute(status -> {
+            Collection<Long> targets = ids;
+            if (targets == null) {
+                MapSqlParameterSource params = new MapSqlParameterSource();
+                StringBuilder sql = new StringBuilder("SELECT d.id FROM driver d WHERE 1 = 1");
+                if (category != null) {
+                    //Driver category is stored as ordinal
+                    sql.append(" AND d.category = :category");
+                    params.addValue("category", category.ordinal());
+                }
+                if (unassignedOnly) {
+                    sql.append(" AND NOT EXISTS (SELECT 1 FROM vehicle v WHERE v.driver_id = d.id)");
+                }
+                sql.append(" ORDER BY d.id LIMIT :limit FOR UPDATE");
+                params.addValue("limit", MAX_IDS);
+                targets = jdbcTemplate.queryForList(sql.toString(), params, Long.class);
+            }
+
+            BulkDeletion deletion = new BulkDeletion();
+            for (List<Long> chunk : chunks(targets)) {
+                Map<String, Object> params = Collections.singletonMap("ids", chunk);
+                jdbcTemplate.query("SELECT id, driver_id FROM vehicle WHERE driver_id IN (:ids) FOR UPDATE", params,
+                        rs -> {
+                            deletion.unassigned(rs.getLong(1), rs.getLong(2));
+                        });
+                jdbcTemplate.update("UPDATE vehicle SET driver_id = NULL WHERE driver_id IN (:ids)", params);
+                jdbcTemplate.query("DELETE FROM driver WHERE id IN (:ids) RETURNING id", params,
+                        rs -> {
+                            deletion.deleted(rs.getLong(1));
+                        });
+            }
+            return deletion;
+        });
+    }
+
+    @Override
+    public DriverDeletion deleteUnassignedDriver(long driverId) {
+        return transactionTemplate.execute(status -> {
+            Map<String, Object> params = Collections.singletonMap("id", driverId);
+            if (jdbcTemplate.queryForList("SELECT id FROM driver WHERE id = :id FOR UPDATE", params, Long.class).isEmpty()) {
+                return DriverDeletion.NOT_FOUND;
+            }
+            List<Long> deleted = jdbcTemplate.queryForList(
+                    "DELETE FROM driver WHERE id = :id AND NOT EXISTS (SELECT 1 FROM vehicle WHERE driver_id = :id) RETURNING id",
+                    params, Long.class);
+            return deleted.isEmpty() ? DriverDeletion.ASSIGNED : DriverDeletion.DELETED;
+        });
+    }
+
+    //Distinct ids in chunks of IN_LIST_SIZE
+    private static List<List<Long>> chunks(Collection<Long> ids) {
+        List<Long> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int i = 0; i < distinct.size(); i += IN_LIST_SIZE) {
+            chunks.add(distinct.subList(i, Math.min(distinct.size(), i + IN_LIST_SIZE)));
+        }
+        return chunks;
+    }
+}
@@ -0,0 +1,69 @@
+package com.carpark.demo;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Parking occupancy in Postgres table parking_occupancy, one row per parked vehicle
+ */
+@Repository
+@ConditionalOnProperty(name = "carpark.storage", havingValue = "jpa", matchIfMissing = true)
+class JdbcParkingOccupancy implements ParkingOccupancy {
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    JdbcParkingOccupancy(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    void createTable() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS parking_occupancy (" +
+                "vehicle_id BIGINT PRIMARY KEY, " +
+                "zone VARCHAR(64) NOT NULL, " +
+                "slot INTEGER NOT NULL, " +
+                "parked_at TIMESTAMP NOT NULL)");
+    }
+
+    @Override
+    public List<ParkingSpot> load() {
+        return jdbcTemplate.query("SELECT vehicle_id, zone, slot, parked_at FROM parking_occupancy",
+                (rs, i) -> new ParkingSpot(rs.getLong(1), rs.getString(2), rs.getInt(3),
+                        rs.getTimestamp(4).toInstant()));
+    }
+
+    @Override
+    public void write(Collection<ParkingSpot> parked, Collection<Long> left) {
+        List<ParkingSpot> spots = new ArrayList<>(parked);
+        List<Long> ids = new ArrayList<>(left);
+        transactionTemplate.execute(status -> {
+            if (!ids.isEmpty()) {
+                jdbcTemplate.batchUpdate("DELETE FROM parking_occupancy WHERE vehicle_id = ?",
+                        ids, ids.size(), (ps, id) -> ps.setLong(1, id));
+            }
+            if (!spots.isEmpty()) {
+                jdbcTemplate.batchUpdate("INSERT INTO parking_occupancy (vehicle_id, zone, slot, parked_at) " +
+                                "VALUES (?, ?, ?, ?) ON CONFLICT (vehicle_id) DO UPDATE " +
+                                "SET zone = EXCLUDED.zone, slot = EXCLUDED.slot, parked_at = EXCLUDED.parked_at",
+                        spots, spots.size(),
+                        (ps, spot) -> {
+                            ps.setLong(1, spot.getVehicleId());
+                            ps.setString(2, spot.getZone());
+                            ps.setInt(3, spot.getSlot());
+                            ps.setTimestamp(4, Timestamp.from(spot.getParkedAt()));
+                        });
+            }
+            return null;
+        });
+    }
+}
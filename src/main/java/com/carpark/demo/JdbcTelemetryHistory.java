@@ -0,0 +1,57 @@
+package com.carpark.demo;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.annotation.PostConstruct;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+
+/**
+ * Telemetry history in Postgres table vehicle_telemetry, written with batched inserts.
+ *
+ * Table has no foreign key to vehicle, so history is kept after vehicle is deleted
+ * and writing history never blocks vehicle changes.
+ */
+@Repository
+@ConditionalOnProperty(name = "carpark.storage", havingValue = "jpa", matchIfMissing = true)
+class JdbcTelemetryHistory implements TelemetryHistory {
+    private final JdbcTemplate jdbcTemplate;
+
+    JdbcTelemetryHistory(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    void createTable() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS vehicle_telemetry (" +
+                "vehicle_id BIGINT NOT NULL, " +
+                "recorded_at TIMESTAMP NOT NULL, " +
+                "latitude DOUBLE PRECISION NOT NULL, " +
+                "longitude DOUBLE PRECISION NOT NULL, " +
+                "odometer DOUBLE PRECISION)");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS vehicle_telemetry_vehicle_time " +
+                "ON vehicle_telemetry (vehicle_id, recorded_at)");
+    }
+
+    @Override
+    public void write(List<TelemetryState> samples) {
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO vehicle_telemetry (vehicle_id, recorded_at, latitude, longitude, odometer) " +
+                        "VALUES (?, ?, ?, ?, ?)",
+                samples, samples.size(),
+                (ps, sample) -> {
+                    ps.setLong(1, sample.getVehicleId());
+                    ps.setTimestamp(2, Timestamp.from(sample.getRecordedAt()));
+                    ps.setDouble(3, sample.getLatitude());
+                    ps.setDouble(4, sample.getLongitude());
+                    if (sample.getOdometer() != null) {
+                        ps.setDouble(5, sample.getOdometer());
+                    } else {
+                        ps.setNull(5, Types.DOUBLE);
+                    }
+                });
+    }
+}
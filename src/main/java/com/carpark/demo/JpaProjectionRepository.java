@@ -0,0 +1,186 @@
+package com.carpark.demo;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import java.util.*;
+
+/**
+ * Sparse fieldset queries for Postgres storage.
+ *
+ * Only the requested columns are selected and the driver join is added only when
+ * "driver" field is requested. Rows are returned as maps built from the selected
+ * tuples, no entities are loaded into persistence context.
+ */
+@Repository
+@ConditionalOnProperty(name = "carpark.storage", havingValue = "jpa", matchIfMissing = true)
+class JpaProjectionRepository implements ProjectionRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Map<String, Object>> allDrivers(List<String> fields, String sort) {
+        String orderBy = "";
+        if ("asc".equals(sort)) {
+            orderBy = " ORDER BY d.name ASC";
+        } else if ("desc".equals(sort)) {
+            orderBy = " ORDER BY d.name DESC";
+        }
+        return drivers(fields, "", orderBy, Collections.emptyMap());
+    }
+
+    @Override
+    public Optional<Map<String, Object>> driverById(Long driverId, List<String> fields) {
+        return first(drivers(fields, " WHERE d.id = :id", "", Collections.singletonMap("id", driverId)));
+    }
+
+    @Override
+    public Map<Long, Map<String, Object>> driversByIds(List<Long> driverIds, List<String> fields) {
+        return byId(drivers(withId(fields), " WHERE d.id IN :ids", "", Collections.singletonMap("ids", driverIds)),
+                fields);
+    }
+
+    @Override
+    public List<Map<String, Object>> driversWithoutCar(List<String> fields) {
+        return drivers(fields, " WHERE NOT EXISTS (SELECT v.id FROM Vehicle v WHERE v.driver = d)", "",
+                Collections.emptyMap());
+    }
+
+    @Override
+    public List<Map<String, Object>> driversByCategory(Category category, List<String> fields) {
+        return drivers(fields, " WHERE d.category = :category", "", Collections.singletonMap("category", category));
+    }
+
+    @Override
+    public List<Map<String, Object>> allVehicles(List<String> fields) {
+        return vehicles(fields, "", Collections.emptyMap());
+    }
+
+    @Override
+    public Optional<Map<String, Object>> vehicleById(Long vehicleId, List<String> fields) {
+        return first(vehicles(fields, " WHERE v.id = :id", Collections.singletonMap("id", vehicleId)));
+    }
+
+    @Override
+    public Map<Long, Map<String, Object>> vehiclesByIds(List<Long> vehicleIds, List<String> fields) {
+        return byId(vehicles(withId(fields), " WHERE v.id IN :ids", Collections.singletonMap("ids", vehicleIds)),
+                fields);
+    }
+
+    @Override
+    public List<Map<String, Object>> vehiclesWithoutDriver(List<String> fields) {
+        return vehicles(fields, " WHERE v.driver IS NULL", Collections.emptyMap());
+    }
+
+    @Override
+    public List<Map<String, Object>> vehiclesByDriverId(Long driverId, List<String> fields) {
+        return vehicles(fields, " WHERE v.driver.id = :driverId", Collections.singletonMap("driverId", driverId));
+    }
+
+    private List<Map<String, Object>> drivers(List<String> fields, String where, String orderBy,
+                                              Map<String, Object> params) {
+        StringBuilder jpql = new StringBuilder("SELECT ");
+        for (int i = 0; i < fields.size(); i++) {
+            jpql.append(i > 0 ? ", d." : "d.").append(fields.get(i));
+        }
+        jpql.append(" FROM Driver d").append(where).append(orderBy);
+
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (Object[] row : rows(jpql.toString(), params)) {
+            Map<String, Object> driver = new LinkedHashMap<>();
+            for (int i = 0; i < fields.size(); i++) {
+                driver.put(fields.get(i), row[i]);
+            }
+            result.add(driver);
+        }
+        return result;
+    }
+
+    private List<Map<String, Object>> vehicles(List<String> fields, String where, Map<String, Object> params) {
+        boolean withDriver = fields.contains("driver");
+
+        StringBuilder jpql = new StringBuilder("SELECT ");
+        int columns = 0;
+        for (String field : fields) {
+            if (!field.equals("driver")) {
+                jpql.append(columns++ > 0 ? ", v." : "v.").append(field);
+            }
+        }
+        if (withDriver) {
+            jpql.append(columns > 0 ? ", " : "").append("d.id, d.name, d.licenseNum, d.category");
+        }
+        jpql.append(" FROM Vehicle v");
+        if (withDriver) {
+            jpql.append(" LEFT JOIN v.driver d");
+        }
+        jpql.append(where);
+
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (Object[] row : rows(jpql.toString(), params)) {
+            Map<String, Object> vehicle = new LinkedHashMap<>();
+            int column = 0;
+            for (String field : fields) {
+                if (!field.equals("driver")) {
+                    vehicle.put(field, row[column++]);
+                }
+            }
+            if (withDriver) {
+                vehicle.put("driver", row[column] == null ? null : driver(row, column));
+            }
+            result.add(vehicle);
+        }
+        return result;
+    }
+
+    private static Map<String, Object> driver(Object[] row, int from) {
+        Map<String, Object> driver = new LinkedHashMap<>();
+        for (int i = 0; i < DRIVER_FIELDS.size(); i++) {
+            driver.put(DRIVER_FIELDS.get(i), row[from + i]);
+        }
+        return driver;
+    }
+
+    //Single selected column comes back as plain value, so wrap it to always have Object[]
+    private List<Object[]> rows(String jpql, Map<String, Object> params) {
+        Query query = entityManager.createQuery(jpql);
+        for (Map.Entry<String, Object> param : params.entrySet()) {
+            query.setParameter(param.getKey(), param.getValue());
+        }
+        List<?> rows = query.getResultList();
+        List<Object[]> result = new ArrayList<>(rows.size());
+        for (Object row : rows) {
+            result.add(row instanceof Object[] ? (Object[]) row : new Object[]{row});
+        }
+        return result;
+    }
+
+    //"id" is always first in entity order
+    private static List<String> withId(List<String> fields) {
+        if (fields.contains("id")) {
+            return fields;
+        }
+        List<String> withId = new ArrayList<>(fields.size() + 1);
+        withId.add("id");
+        withId.addAll(fields);
+        return withId;
+    }
+
+    //Rows selected withId(fields) by id, "id" removed again if it is not in fields
+    private static Map<Long, Map<String, Object>> byId(List<Map<String, Object>> rows, List<String> fields) {
+        boolean keepId = fields.contains("id");
+        Map<Long, Map<String, Object>> result = new HashMap<>();
+        for (Map<String, Object> row : rows) {
+            Long id = (Long) (keepId ? row.get("id") : row.remove("id"));
+            result.put(id, row);
+        }
+        return result;
+    }
+
+    private static Optional<Map<String, Object>> first(List<Map<String, Object>> rows) {
+        return rows.isEmpty() ? Optional.empty() : Optional.of(rows.get(0));
+    }
+}
@@ -0,0 +1,26 @@
+package com.carpark.demo;
+
+import javax.validation.Constraint;
+import javax.validation.Payload;
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Value should be a license number: 2 letters followed by 7 digits. Example - "AB1234567"
+ *
+ * Null is valid, same as for @Pattern.
+ */
+@Documented
+@Constraint(validatedBy = LicenseNumberValidator.class)
+@Target({ElementType.FIELD, ElementType.METHOD, ElementType.PARAMETER})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface LicenseNumber {
+    String message() default FleetFormats.LICENSE_NUM_MESSAGE;
+
+    Class<?>[] groups() default {};
+
+    Class<? extends Payload>[] payload() default {};
+}
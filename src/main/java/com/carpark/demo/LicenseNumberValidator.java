@@ -0,0 +1,12 @@
+package com.carpark.demo;
+
+import javax.validation.ConstraintValidator;
+import javax.validation.ConstraintValidatorContext;
+
+public class LicenseNumberValidator implements ConstraintValidator<LicenseNumber, CharSequence> {
+
+    @Override
+    public boolean isValid(CharSequence value, ConstraintValidatorContext context) {
+        return value == null || FleetFormats.isLicenseNum(value);
+    }
+}
@@ -0,0 +1,74 @@
+package com.carpark.demo;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * One position of multi-get response: requested id, whether it was found and the entity.
+ * Entity is left out of JSON when id was not found.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+class MultiGetEntry<T> {
+    //Ids per IN query, lists bigger than this are loaded in several queries
+    static final int CHUNK_SIZE = 1000;
+
+    private final Long id;
+    private final boolean found;
+    private final T item;
+
+    MultiGetEntry(Long id, T item) {
+        this.id = id;
+        this.found = item != null;
+        this.item = item;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public boolean isFound() {
+        return found;
+    }
+
+    public T getItem() {
+        return item;
+    }
+
+    /**
+     * Load entities for ids with one IN query per CHUNK_SIZE distinct ids and
+     * return one entry per requested id, in request order
+     */
+    static <T> List<MultiGetEntry<T>> resolve(List<Long> ids,
+                                              Function<List<Long>, List<T>> loader,
+                                              Function<T, Long> idOf) {
+        return resolve(ids, chunk -> {
+            Map<Long, T> found = new HashMap<>();
+            for (T item : loader.apply(chunk)) {
+                found.put(idOf.apply(item), item);
+            }
+            return found;
+        });
+    }
+
+    /**
+     * Same as above for loaders which return found items by id,
+     * used when items do not carry their id (sparse fieldsets without "id")
+     */
+    static <T> List<MultiGetEntry<T>> resolve(List<Long> ids, Function<List<Long>, Map<Long, T>> loader) {
+        List<Long> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+        distinct.remove(null);
+
+        Map<Long, T> found = new HashMap<>();
+        for (int i = 0; i < distinct.size(); i += CHUNK_SIZE) {
+            found.putAll(loader.apply(distinct.subList(i, Math.min(i + CHUNK_SIZE, distinct.size()))));
+        }
+
+        List<MultiGetEntry<T>> entries = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            entries.add(new MultiGetEntry<>(id, id != null ? found.get(id) : null));
+        }
+        return entries;
+    }
+}
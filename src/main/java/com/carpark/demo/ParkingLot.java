@@ -0,0 +1,188 @@
+package com.carpark.demo;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Parking slots of all zones and the vehicles taking them.
+ *
+ * Free slots of each zone are a SlotBitmap, parking takes the lowest free slot of the first
+ * zone of vehicle category which has one (zones are configured in order of distance from
+ * entrance), so parking and leaving never lock.
+ *
+ * Changes are collected per vehicle (only the last change of a vehicle matters) and written
+ * to ParkingOccupancy by flush(). A change is recorded only if it still matches the vehicle's
+ * entry in parked, so a park and a leave of the same vehicle running at once can not persist
+ * a spot whose slot is already free. On startup occupancy is loaded back, spots which no longer
+ * fit configuration (zone removed or made smaller) are dropped.
+ *
+ * carpark.parking.zones[n]            – zones, see ParkingProperties
+ * carpark.parking.flush-interval-ms   – delay between occupancy writes
+ *
+ * Metrics: carpark.parking.free (gauge per zone), carpark.parking.contention
+ * (compare-and-set retries while allocating, per zone)
+ */
+@Component
+class ParkingLot {
+    private static final Logger log = LoggerFactory.getLogger(ParkingLot.class);
+    private static final ParkingSpot LEFT = new ParkingSpot(0, "", 0, Instant.EPOCH);
+
+    private final Map<String, ParkingZone> zonesByName = new LinkedHashMap<>();
+    private final Map<Category, List<ParkingZone>> zonesByCategory = new EnumMap<>(Category.class);
+    private final ConcurrentHashMap<Long, ParkingSpot> parked = new ConcurrentHashMap<>();
+    //Changes waiting for flush: spot for parked vehicle, LEFT for vehicle which left
+    private final ConcurrentHashMap<Long, ParkingSpot> dirty = new ConcurrentHashMap<>();
+
+    private final ParkingOccupancy occupancy;
+
+    ParkingLot(ParkingProperties properties, ParkingOccupancy occupancy, MeterRegistry registry) {
+        this.occupancy = occupancy;
+
+        for (ParkingProperties.Zone zone : properties.getZones()) {
+            if (zone.getName() == null || zone.getCategory() == null || zone.getSlots() <= 0) {
+                throw new IllegalStateException("Parking zone needs name, category and positive number of slots");
+            }
+            if (zonesByName.containsKey(zone.getName())) {
+                throw new IllegalStateException("Duplicate parking zone " + zone.getName());
+            }
+            Tags tags = Tags.of("zone", zone.getName(), "category", zone.getCategory().name());
+            SlotBitmap slots = new SlotBitmap(zone.getSlots(), registry.counter("carpark.parking.contention", tags));
+            ParkingZone parkingZone = new ParkingZone(zone.getName(), zone.getCategory(), slots);
+            zonesByName.put(zone.getName(), parkingZone);
+            zonesByCategory.computeIfAbsent(zone.getCategory(), c -> new ArrayList<>()).add(parkingZone);
+            registry.gauge("carpark.parking.free", tags, slots, SlotBitmap::free);
+        }
+
+        restore();
+    }
+
+    private void restore() {
+        int dropped = 0;
+        for (ParkingSpot spot : occupancy.load()) {
+            ParkingZone zone = zonesByName.get(spot.getZone());
+            if (zone != null && spot.getSlot() >= 1 && spot.getSlot() <= zone.getSlots()
+                    && zone.getBitmap().occupy(spot.getSlot() - 1)) {
+                parked.put(spot.getVehicleId(), spot);
+            } else {
+                dirty.put(spot.getVehicleId(), LEFT);
+                dropped++;
+            }
+        }
+        log.info("Restored {} parked vehicles, {} spots not matching parking zones dropped", parked.size(), dropped);
+    }
+
+    Collection<ParkingZone> zones() {
+        return zonesByName.values();
+    }
+
+    //Null if there is no such zone
+    ParkingZone zone(String name) {
+        return zonesByName.get(name);
+    }
+
+    boolean hasZonesFor(Category category) {
+        return zonesByCategory.containsKey(category);
+    }
+
+    //Null if vehicle is not parked
+    ParkingSpot spotOf(long vehicleId) {
+        return parked.get(vehicleId);
+    }
+
+    /**
+     * Take the nearest free slot for vehicle of given category, in given zone or in any zone
+     * of the category if zone is null. Returns null if there is no free slot.
+     * If vehicle is already parked, its current spot is returned.
+     */
+    ParkingSpot park(long vehicleId, Category category, ParkingZone zone) {
+        ParkingSpot current = parked.get(vehicleId);
+        if (current != null) {
+            return current;
+        }
+
+        List<ParkingZone> candidates = zone != null
+                ? Collections.singletonList(zone)
+                : zonesByCategory.getOrDefault(category, Collections.emptyList());
+        for (ParkingZone candidate : candidates) {
+            int slot = candidate.getBitmap().allocate();
+            if (slot < 0) {
+                continue;
+            }
+
+            ParkingSpot spot = new ParkingSpot(vehicleId, candidate.getName(), slot + 1, Instant.now());
+            ParkingSpot raced = parked.putIfAbsent(vehicleId, spot);
+            if (raced != null) {
+                //Same vehicle parked by a concurrent request
+                candidate.getBitmap().release(slot);
+                return raced;
+            }
+            //A concurrent leave may have freed the spot already, its LEFT must not be overwritten
+            dirty.compute(vehicleId, (id, change) -> parked.get(id) == spot ? spot : change);
+            return spot;
+        }
+        return null;
+    }
+
+    /**
+     * Free slot of vehicle. Returns the freed spot or null if vehicle was not parked.
+     */
+    ParkingSpot leave(long vehicleId) {
+        ParkingSpot spot = parked.remove(vehicleId);
+        if (spot == null) {
+            return null;
+        }
+        zonesByName.get(spot.getZone()).getBitmap().release(spot.getSlot() - 1);
+        //Vehicle may be parked again by now, then its new spot is the change to keep
+        dirty.compute(vehicleId, (id, change) -> parked.containsKey(id) ? change : LEFT);
+        return spot;
+    }
+
+    @Scheduled(fixedDelayString = "${carpark.parking.flush-interval-ms:1000}")
+    synchronized void flush() {
+        if (dirty.isEmpty()) {
+            return;
+        }
+
+        Map<Long, ParkingSpot> changes = new HashMap<>();
+        for (Long vehicleId : dirty.keySet()) {
+            ParkingSpot change = dirty.remove(vehicleId);
+            if (change != null) {
+                changes.put(vehicleId, change);
+            }
+        }
+
+        List<ParkingSpot> spots = new ArrayList<>();
+        List<Long> left = new ArrayList<>();
+        for (Map.Entry<Long, ParkingSpot> change : changes.entrySet()) {
+            if (change.getValue() == LEFT) {
+                left.add(change.getKey());
+            } else {
+                spots.add(change.getValue());
+            }
+        }
+
+        try {
+            occupancy.write(spots, left);
+        } catch (RuntimeException e) {
+            //Keep changes for next flush unless vehicle changed again meanwhile
+            for (Map.Entry<Long, ParkingSpot> change : changes.entrySet()) {
+                dirty.putIfAbsent(change.getKey(), change.getValue());
+            }
+            log.error("Could not write parking occupancy, {} changes kept for retry", changes.size(), e);
+        }
+    }
+
+    @PreDestroy
+    void close() {
+        flush();
+    }
+}
@@ -0,0 +1,14 @@
+package com.carpark.demo;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Durable copy of which vehicle takes which slot, written behind by ParkingLot
+ */
+interface ParkingOccupancy {
+    List<ParkingSpot> load();
+
+    //Spots of parked vehicles replace their previous spots, left are vehicles which left the parking
+    void write(Collection<ParkingSpot> parked, Collection<Long> left);
+}
@@ -0,0 +1,58 @@
+package com.carpark.demo;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parking zones from configuration, in order of distance from entrance:
+ *
+ * carpark.parking.zones[0].name=M1
+ * carpark.parking.zones[0].category=MOTORCYCLE
+ * carpark.parking.zones[0].slots=40
+ */
+@Component
+@ConfigurationProperties(prefix = "carpark.parking")
+class ParkingProperties {
+    private List<Zone> zones = new ArrayList<>();
+
+    public List<Zone> getZones() {
+        return zones;
+    }
+
+    public void setZones(List<Zone> zones) {
+        this.zones = zones;
+    }
+
+    public static class Zone {
+        private String name;
+        private Category category;
+        private int slots;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public Category getCategory() {
+            return category;
+        }
+
+        public void setCategory(Category category) {
+            this.category = category;
+        }
+
+        public int getSlots() {
+            return slots;
+        }
+
+        public void setSlots(int slots) {
+            this.slots = slots;
+        }
+    }
+}
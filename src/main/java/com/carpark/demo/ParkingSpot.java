@@ -0,0 +1,36 @@
+package com.carpark.demo;
+
+import java.time.Instant;
+
+/**
+ * Slot taken by a vehicle. Slots are numbered from 1 in each zone, 1 is the nearest to entrance.
+ */
+class ParkingSpot {
+    private final long vehicleId;
+    private final String zone;
+    private final int slot;
+    private final Instant parkedAt;
+
+    ParkingSpot(long vehicleId, String zone, int slot, Instant parkedAt) {
+        this.vehicleId = vehicleId;
+        this.zone = zone;
+        this.slot = slot;
+        this.parkedAt = parkedAt;
+    }
+
+    public long getVehicleId() {
+        return vehicleId;
+    }
+
+    public String getZone() {
+        return zone;
+    }
+
+    public int getSlot() {
+        return slot;
+    }
+
+    public Instant getParkedAt() {
+        return parkedAt;
+    }
+}
@@ -0,0 +1,39 @@
+package com.carpark.demo;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * Zone of slots for one category of vehicles, serialized as its current summary
+ */
+class ParkingZone {
+    private final String name;
+    private final Category category;
+    private final SlotBitmap slots;
+
+    ParkingZone(String name, Category category, SlotBitmap slots) {
+        this.name = name;
+        this.category = category;
+        this.slots = slots;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Category getCategory() {
+        return category;
+    }
+
+    public int getSlots() {
+        return slots.slots();
+    }
+
+    public int getFree() {
+        return slots.free();
+    }
+
+    @JsonIgnore
+    SlotBitmap getBitmap() {
+        return slots;
+    }
+}
@@ -0,0 +1,28 @@
+package com.carpark.demo;
+
+import javax.validation.Constraint;
+import javax.validation.Payload;
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Value should be a plate number, either
+ * 2 digits, 1 letter, 3 digits, 2 letters. Example - "01N877LA"
+ * or 5 digits followed by 3 letters. Example - "01454GTA"
+ *
+ * Null is valid, same as for @Pattern.
+ */
+@Documented
+@Constraint(validatedBy = PlateNumberValidator.class)
+@Target({ElementType.FIELD, ElementType.METHOD, ElementType.PARAMETER})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface PlateNumber {
+    String message() default FleetFormats.PLATE_NUM_MESSAGE;
+
+    Class<?>[] groups() default {};
+
+    Class<? extends Payload>[] payload() default {};
+}
@@ -0,0 +1,12 @@
+package com.carpark.demo;
+
+import javax.validation.ConstraintValidator;
+import javax.validation.ConstraintValidatorContext;
+
+public class PlateNumberValidator implements ConstraintValidator<PlateNumber, CharSequence> {
+
+    @Override
+    public boolean isValid(CharSequence value, ConstraintValidatorContext context) {
+        return value == null || FleetFormats.isPlateNum(value);
+    }
+}
@@ -0,0 +1,69 @@
+package com.carpark.demo;
+
+import java.util.*;
+
+/**
+ * Queries for sparse fieldsets (?fields=id,plateNum).
+ *
+ * Rows are returned as maps with only the selected fields, in entity field order.
+ * Vehicle "driver" field is a map with all driver fields or null.
+ */
+interface ProjectionRepository {
+    List<String> DRIVER_FIELDS = Collections.unmodifiableList(
+            Arrays.asList("id", "name", "licenseNum", "category"));
+    List<String> VEHICLE_FIELDS = Collections.unmodifiableList(
+            Arrays.asList("id", "plateNum", "category", "driver"));
+
+    /**
+     * Parse value of fields parameter like "plateNum,id" against allowed fields.
+     * Returns selected fields in the order they are listed in allowed (so in entity order),
+     * or null if value contains unknown field or no fields at all.
+     */
+    static List<String> parseFields(String fields, List<String> allowed) {
+        Set<String> requested = new HashSet<>();
+        for (String field : fields.split(",")) {
+            String trimmed = field.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            if (!allowed.contains(trimmed)) {
+                return null;
+            }
+            requested.add(trimmed);
+        }
+        if (requested.isEmpty()) {
+            return null;
+        }
+
+        List<String> selected = new ArrayList<>(requested.size());
+        for (String field : allowed) {
+            if (requested.contains(field)) {
+                selected.add(field);
+            }
+        }
+        return selected;
+    }
+
+    //Sort is "asc" or "desc" by name, anything else is unsorted
+    List<Map<String, Object>> allDrivers(List<String> fields, String sort);
+
+    Optional<Map<String, Object>> driverById(Long driverId, List<String> fields);
+
+    //Found drivers by id, rows contain "id" only if it is selected
+    Map<Long, Map<String, Object>> driversByIds(List<Long> driverIds, List<String> fields);
+
+    List<Map<String, Object>> driversWithoutCar(List<String> fields);
+
+    List<Map<String, Object>> driversByCategory(Category category, List<String> fields);
+
+    List<Map<String, Object>> allVehicles(List<String> fields);
+
+    Optional<Map<String, Object>> vehicleById(Long vehicleId, List<String> fields);
+
+    //Found vehicles by id, rows contain "id" only if it is selected
+    Map<Long, Map<String, Object>> vehiclesByIds(List<Long> vehicleIds, List<String> fields);
+
+    List<Map<String, Object>> vehiclesWithoutDriver(List<String> fields);
+
+    List<Map<String, Object>> vehiclesByDriverId(Long driverId, List<String> fields);
+}
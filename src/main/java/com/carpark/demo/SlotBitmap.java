@@ -0,0 +1,94 @@
+package com.carpark.demo;
+
+import io.micrometer.core.instrument.Counter;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Occupancy of a row of slots, one bit per slot (1 – occupied), slot 0 is the nearest one.
+ *
+ * Allocation takes the lowest free bit with compare-and-set on the word it is in, so it never
+ * locks and looks at each 64-slot word at most once unless another thread changes it meanwhile.
+ * Bits past the last slot are set on creation, so a full word is always -1.
+ */
+class SlotBitmap {
+    private final AtomicLongArray words;
+    private final int slots;
+    //Failed compare-and-set attempts of allocate
+    private final Counter contention;
+
+    SlotBitmap(int slots, Counter contention) {
+        this.slots = slots;
+        this.contention = contention;
+        this.words = new AtomicLongArray((slots + 63) >>> 6);
+        int tail = slots & 63;
+        if (tail != 0) {
+            words.set(words.length() - 1, -1L << tail);
+        }
+    }
+
+    int slots() {
+        return slots;
+    }
+
+    /**
+     * Occupy the lowest free slot and return its index, or -1 if all slots are occupied
+     */
+    int allocate() {
+        for (int i = 0; i < words.length(); i++) {
+            long word = words.get(i);
+            while (word != -1L) {
+                long bit = Long.lowestOneBit(~word);
+                if (words.compareAndSet(i, word, word | bit)) {
+                    return (i << 6) + Long.numberOfTrailingZeros(bit);
+                }
+                contention.increment();
+                word = words.get(i);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Occupy given slot, returns false if it is already occupied
+     */
+    boolean occupy(int slot) {
+        int i = slot >>> 6;
+        long bit = 1L << slot;
+        while (true) {
+            long word = words.get(i);
+            if ((word & bit) != 0) {
+                return false;
+            }
+            if (words.compareAndSet(i, word, word | bit)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Free given slot, returns false if it was not occupied
+     */
+    boolean release(int slot) {
+        int i = slot >>> 6;
+        long bit = 1L << slot;
+        while (true) {
+            long word = words.get(i);
+            if ((word & bit) == 0) {
+                return false;
+            }
+            if (words.compareAndSet(i, word, word & ~bit)) {
+                return true;
+            }
+        }
+    }
+
+    int free() {
+        int occupied = 0;
+        for (int i = 0; i < words.length(); i++) {
+            occupied += Long.bitCount(words.get(i));
+        }
+        //Padding bits of the last word are counted as occupied
+        return words.length() * 64 - occupied;
+    }
+}
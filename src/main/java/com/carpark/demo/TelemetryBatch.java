@@ -0,0 +1,49 @@
+package com.carpark.demo;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Telemetry updates of many vehicles in one request
+ */
+class TelemetryBatch {
+    //Most reports accepted in one request
+    static final int MAX_REPORTS = 10000;
+
+    @NotNull(message = "Body should contain reports")
+    @Size(max = MAX_REPORTS, message = "At most " + MAX_REPORTS + " reports are allowed")
+    @Valid
+    private List<@NotNull(message = "Report can not be null") TelemetryReport> reports;
+
+    public List<TelemetryReport> getReports() {
+        return reports;
+    }
+
+    public void setReports(List<TelemetryReport> reports) {
+        this.reports = reports;
+    }
+
+    static class Result {
+        private int accepted;
+        private final List<Long> unknownVehicleIds = new ArrayList<>();
+
+        void accept() {
+            accepted++;
+        }
+
+        void unknown(Long vehicleId) {
+            unknownVehicleIds.add(vehicleId);
+        }
+
+        public int getAccepted() {
+            return accepted;
+        }
+
+        public List<Long> getUnknownVehicleIds() {
+            return unknownVehicleIds;
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.carpark.demo;
+
+import java.util.List;
+
+/**
+ * Destination of downsampled telemetry history written by TelemetryStore
+ */
+interface TelemetryHistory {
+    void write(List<TelemetryState> samples);
+}
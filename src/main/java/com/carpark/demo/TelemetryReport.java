@@ -0,0 +1,80 @@
+package com.carpark.demo;
+
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.NotNull;
+import java.time.Instant;
+
+/**
+ * Position/odometer update sent by a vehicle
+ */
+class TelemetryReport {
+    //Only used in batches, single update takes vehicle id from URL
+    private Long vehicleId;
+
+    @NotNull(message = "Latitude is required")
+    @DecimalMin(value = "-90", message = "Latitude should be between -90 and 90")
+    @DecimalMax(value = "90", message = "Latitude should be between -90 and 90")
+    private Double latitude;
+
+    @NotNull(message = "Longitude is required")
+    @DecimalMin(value = "-180", message = "Longitude should be between -180 and 180")
+    @DecimalMax(value = "180", message = "Longitude should be between -180 and 180")
+    private Double longitude;
+
+    @DecimalMin(value = "0", message = "Odometer can not be negative")
+    private Double odometer;
+
+    //Time of measurement, time of receiving if not set
+    private Instant recordedAt;
+
+    public TelemetryReport() { }
+
+    public TelemetryReport(Long vehicleId, Double latitude, Double longitude, Double odometer, Instant recordedAt) {
+        this.vehicleId = vehicleId;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.odometer = odometer;
+        this.recordedAt = recordedAt;
+    }
+
+    public Long getVehicleId() {
+        return vehicleId;
+    }
+
+    public void setVehicleId(Long vehicleId) {
+        this.vehicleId = vehicleId;
+    }
+
+    public Double getLatitude() {
+        return latitude;
+    }
+
+    public void setLatitude(Double latitude) {
+        this.latitude = latitude;
+    }
+
+    public Double getLongitude() {
+        return longitude;
+    }
+
+    public void setLongitude(Double longitude) {
+        this.longitude = longitude;
+    }
+
+    public Double getOdometer() {
+        return odometer;
+    }
+
+    public void setOdometer(Double odometer) {
+        this.odometer = odometer;
+    }
+
+    public Instant getRecordedAt() {
+        return recordedAt;
+    }
+
+    public void setRecordedAt(Instant recordedAt) {
+        this.recordedAt = recordedAt;
+    }
+}
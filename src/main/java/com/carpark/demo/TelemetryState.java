@@ -0,0 +1,53 @@
+package com.carpark.demo;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.Instant;
+
+/**
+ * Latest known position/odometer of a vehicle. Immutable, replaced as a whole on every update.
+ */
+class TelemetryState {
+    private final long vehicleId;
+    private final double latitude;
+    private final double longitude;
+    private final Double odometer;
+    private final Instant recordedAt;
+    //Time of the last state of this vehicle which went to history
+    private final long historyAt;
+
+    TelemetryState(long vehicleId, double latitude, double longitude, Double odometer,
+                   Instant recordedAt, long historyAt) {
+        this.vehicleId = vehicleId;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.odometer = odometer;
+        this.recordedAt = recordedAt;
+        this.historyAt = historyAt;
+    }
+
+    public long getVehicleId() {
+        return vehicleId;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public Double getOdometer() {
+        return odometer;
+    }
+
+    public Instant getRecordedAt() {
+        return recordedAt;
+    }
+
+    @JsonIgnore
+    long getHistoryAt() {
+        return historyAt;
+    }
+}
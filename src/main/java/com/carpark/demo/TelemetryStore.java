@@ -0,0 +1,223 @@
+package com.carpark.demo;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Latest telemetry of every vehicle, kept in memory only.
+ *
+ * Each vehicle has an AtomicReference to an immutable TelemetryState, updates replace it with
+ * compare-and-set, so writers never lock and readers never see a half-updated state.
+ * Updates older than the current state (reordered in network) are ignored.
+ * Vehicle existence is checked on the first update of a vehicle, before and after its entry is
+ * created, so an entry can not be left behind by a deletion (evict) running at the same time.
+ * updateAll() does these checks with one query each for all new vehicles of a batch.
+ *
+ * History is downsampled: a state goes to history only when it is at least history-interval-ms
+ * newer than the last state of that vehicle which went there. Such states are queued and written
+ * in batches by flush(). Queue is bounded, samples over max-pending and samples of a failed
+ * batch are dropped and counted – history is best effort, latest state is never lost.
+ *
+ * carpark.telemetry.fleet-size          – expected number of vehicles, initial capacity of the store
+ * carpark.telemetry.history-interval-ms – minimal time between two history samples of one vehicle
+ * carpark.telemetry.flush-interval-ms   – delay between history flushes
+ * carpark.telemetry.batch-size          – history samples per write
+ * carpark.telemetry.max-pending         – history samples waiting for flush before new ones are dropped
+ *
+ * Metrics: carpark.telemetry.updates, carpark.telemetry.stale, carpark.telemetry.history.written,
+ * carpark.telemetry.history.dropped, carpark.telemetry.history.pending (gauge)
+ */
+@Component
+class TelemetryStore {
+    private static final Logger log = LoggerFactory.getLogger(TelemetryStore.class);
+
+    private final ConcurrentHashMap<Long, AtomicReference<TelemetryState>> latest;
+    private final ConcurrentLinkedQueue<TelemetryState> pendingHistory = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+
+    private final VehicleRepository vehicleRepository;
+    private final TelemetryHistory history;
+    private final long historyIntervalMillis;
+    private final int batchSize;
+    private final int maxPending;
+
+    private final Counter updates;
+    private final Counter stale;
+    private final Counter written;
+    private final Counter dropped;
+
+    TelemetryStore(VehicleRepository vehicleRepository,
+                   TelemetryHistory history,
+                   MeterRegistry registry,
+                   @Value("${carpark.telemetry.fleet-size:10000}") int fleetSize,
+                   @Value("${carpark.telemetry.history-interval-ms:60000}") long historyIntervalMillis,
+                   @Value("${carpark.telemetry.batch-size:1000}") int batchSize,
+                   @Value("${carpark.telemetry.max-pending:100000}") int maxPending) {
+        this.vehicleRepository = vehicleRepository;
+        this.history = history;
+        this.historyIntervalMillis = historyIntervalMillis;
+        this.batchSize = batchSize;
+        this.maxPending = maxPending;
+        //Sized so the fleet fits without resizing
+        this.latest = new ConcurrentHashMap<>(fleetSize * 4 / 3 + 1);
+
+        this.updates = registry.counter("carpark.telemetry.updates");
+        this.stale = registry.counter("carpark.telemetry.stale");
+        this.written = registry.counter("carpark.telemetry.history.written");
+        this.dropped = registry.counter("carpark.telemetry.history.dropped");
+        registry.gauge("carpark.telemetry.history.pending", pending);
+    }
+
+    /**
+     * Record update of vehicle. Returns false if there is no such vehicle.
+     */
+    boolean update(long vehicleId, TelemetryReport report) {
+        AtomicReference<TelemetryState> ref = latest.get(vehicleId);
+        if (ref == null) {
+            if (!vehicleRepository.existsById(vehicleId)) {
+                return false;
+            }
+            ref = latest.computeIfAbsent(vehicleId, id -> new AtomicReference<>());
+            //Vehicle may have been deleted and evicted between the check and computeIfAbsent.
+            //Evict running after this point removes the entry itself
+            if (!vehicleRepository.existsById(vehicleId)) {
+                latest.remove(vehicleId, ref);
+                return false;
+            }
+        }
+        apply(ref, vehicleId, report);
+        return true;
+    }
+
+    /**
+     * Record updates of many vehicles. Vehicles without entry are checked all at once,
+     * with one query before and one after their entries are created, instead of two queries per report.
+     */
+    TelemetryBatch.Result updateAll(List<TelemetryReport> reports) {
+        Set<Long> absent = new HashSet<>();
+        for (TelemetryReport report : reports) {
+            if (report.getVehicleId() != null && !latest.containsKey(report.getVehicleId())) {
+                absent.add(report.getVehicleId());
+            }
+        }
+        if (!absent.isEmpty()) {
+            Map<Long, AtomicReference<TelemetryState>> created = new HashMap<>();
+            for (Long vehicleId : vehicleRepository.findIdsByIdIn(absent)) {
+                created.put(vehicleId, latest.computeIfAbsent(vehicleId, id -> new AtomicReference<>()));
+            }
+            //Same re-check as in update, for all new entries at once
+            if (!created.isEmpty()) {
+                Set<Long> existing = new HashSet<>(vehicleRepository.findIdsByIdIn(created.keySet()));
+                for (Map.Entry<Long, AtomicReference<TelemetryState>> entry : created.entrySet()) {
+                    if (!existing.contains(entry.getKey())) {
+                        latest.remove(entry.getKey(), entry.getValue());
+                    }
+                }
+            }
+        }
+
+        //A vehicle without entry now does not exist, or was deleted and evicted meanwhile
+        TelemetryBatch.Result result = new TelemetryBatch.Result();
+        for (TelemetryReport report : reports) {
+            AtomicReference<TelemetryState> ref = report.getVehicleId() != null ? latest.get(report.getVehicleId()) : null;
+            if (ref != null) {
+                apply(ref, report.getVehicleId(), report);
+                result.accept();
+            } else {
+                result.unknown(report.getVehicleId());
+            }
+        }
+        return result;
+    }
+
+    private void apply(AtomicReference<TelemetryState> ref, long vehicleId, TelemetryReport report) {
+        Instant recordedAt = report.getRecordedAt() != null ? report.getRecordedAt() : Instant.now();
+        long recordedMillis = recordedAt.toEpochMilli();
+        while (true) {
+            TelemetryState current = ref.get();
+            if (current != null && current.getRecordedAt().isAfter(recordedAt)) {
+                stale.increment();
+                return;
+            }
+
+            boolean toHistory = current == null || recordedMillis - current.getHistoryAt() >= historyIntervalMillis;
+            TelemetryState next = new TelemetryState(vehicleId, report.getLatitude(), report.getLongitude(),
+                    report.getOdometer(), recordedAt, toHistory ? recordedMillis : current.getHistoryAt());
+            if (ref.compareAndSet(current, next)) {
+                updates.increment();
+                if (toHistory) {
+                    enqueue(next);
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Latest state of vehicle or null if it has not sent anything
+     */
+    TelemetryState get(long vehicleId) {
+        AtomicReference<TelemetryState> ref = latest.get(vehicleId);
+        return ref != null ? ref.get() : null;
+    }
+
+    //Call when vehicle is deleted, already written history is kept
+    void evict(long vehicleId) {
+        latest.remove(vehicleId);
+    }
+
+    private void enqueue(TelemetryState state) {
+        if (pending.incrementAndGet() > maxPending) {
+            pending.decrementAndGet();
+            dropped.increment();
+            return;
+        }
+        pendingHistory.add(state);
+    }
+
+    /**
+     * Write queued history samples in batches of batch-size
+     */
+    @Scheduled(fixedDelayString = "${carpark.telemetry.flush-interval-ms:1000}")
+    void flush() {
+        List<TelemetryState> batch = new ArrayList<>(batchSize);
+        while (true) {
+            batch.clear();
+            TelemetryState state;
+            while (batch.size() < batchSize && (state = pendingHistory.poll()) != null) {
+                batch.add(state);
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            pending.addAndGet(-batch.size());
+
+            try {
+                history.write(batch);
+                written.increment(batch.size());
+            } catch (RuntimeException e) {
+                dropped.increment(batch.size());
+                log.error("Could not write {} telemetry history samples", batch.size(), e);
+                return;
+            }
+        }
+    }
+
+    @PreDestroy
+    void close() {
+        flush();
+    }
+}
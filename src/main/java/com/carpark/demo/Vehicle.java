@@ -1,7 +1,6 @@
 package com.carpark.demo;
 
 import javax.persistence.*;
-import javax.validation.constraints.Pattern;
 import java.util.Objects;
 
 
@@ -15,7 +14,7 @@ public class Vehicle {
     //2 digits, 1 letter, 3 digits, 2 letters. Example - "01N877LA"
     //5 digits followed by 3 letters. Example - "01454GTA"
     @Column(unique=true)
-    @Pattern(regexp = "\\d{2}[A-Z]\\d{3}[A-Z]{2}|\\d{5}[A-Z]{3}")
+    @PlateNumber
     private String plateNum;
 
     @Column(nullable = false)
@@ -32,7 +31,7 @@ public class Vehicle {
     }
 
     public Vehicle(String plateNum, Category category, Driver driver) {
-        this.plateNum = plateNum;
+        this.plateNum = FleetFormats.normalize(plateNum);
         this.category = category;
         this.driver = driver;
     }
@@ -49,8 +48,9 @@ public class Vehicle {
         return plateNum;
     }
 
+    //"01n 877la" is accepted and stored as "01N877LA"
     public void setPlateNum(String plate_num) {
-        this.plateNum = plate_num;
+        this.plateNum = FleetFormats.normalize(plate_num);
     }
 
     public Category getCategory() {
@@ -1,13 +1,23 @@
 package com.carpark.demo;
 
-import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
-interface VehicleRepository extends JpaRepository<Vehicle, Long> {
+interface VehicleRepository extends FleetRepository<Vehicle> {
 
     List<Vehicle> findByDriver(Driver driver);
     List<Vehicle> findByDriverId(Long driverId);
     Optional<Vehicle> findByPlateNum(String plateNum);
+
+    //Drivers are fetched in the same query, findAllById would load each driver with a query of its own
+    @Query("select v from Vehicle v left join fetch v.driver where v.id in :ids")
+    List<Vehicle> findAllWithDriverByIdIn(@Param("ids") Collection<Long> ids);
+
+    //Which of ids exist, without loading vehicles
+    @Query("select v.id from Vehicle v where v.id in :ids")
+    List<Long> findIdsByIdIn(@Param("ids") Collection<Long> ids);
 }
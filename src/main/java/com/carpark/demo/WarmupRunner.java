@@ -0,0 +1,241 @@
+package com.carpark.demo;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Warm-up after startup: the application refuses traffic (readiness probe is down) while
+ * a representative workload runs, so the JIT compiles controller, Hibernate and Jackson paths
+ * and caches (query plans, pre-encoded error bodies) are filled before real requests come.
+ *
+ * Reads go through HTTP to the application itself, the same way as real requests. They carry
+ * the HEADER with a token known only to this JVM, so ConcurrencyLimitFilter and AccessLogRecorder
+ * let them pass: they neither take limiter slots and skew its latency estimates nor get recorded for replay.
+ *
+ * Writes (validation, update, serialization of Driver and Vehicle) run directly on repositories,
+ * each in its own transaction which is always rolled back, so they leave no data behind.
+ * They update existing rows instead of inserting, a rolled back insert would still use up
+ * an id of the IDENTITY columns on every start. Values written are not valid license and plate
+ * numbers, so they can not collide with a real row. A failed write is logged and skipped.
+ * With in-memory storage writes are skipped, its writes can not be rolled back.
+ *
+ * Workload runs in rounds, average request latency of the first and the last round is logged
+ * to show how much warm-up saved.
+ *
+ * carpark.warmup.enabled  – run warm-up
+ * carpark.warmup.rounds   – number of rounds
+ * carpark.warmup.requests – read requests per round
+ * carpark.warmup.writes   – rolled back writes per round
+ */
+@Component
+@ConditionalOnProperty(name = "carpark.warmup.enabled", havingValue = "true", matchIfMissing = true)
+class WarmupRunner implements ApplicationListener<ApplicationReadyEvent> {
+    private static final Logger log = LoggerFactory.getLogger(WarmupRunner.class);
+    static final String HEADER = "X-Carpark-Warmup";
+    //Known only inside this JVM, a client can not send it to skip the limiter
+    private static final String TOKEN = UUID.randomUUID().toString();
+
+    private final DriverRepository driverRepository;
+    private final VehicleRepository vehicleRepository;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+    private final int rounds;
+    private final int requests;
+    private final int writes;
+
+    WarmupRunner(DriverRepository driverRepository,
+                 VehicleRepository vehicleRepository,
+                 ObjectMapper objectMapper,
+                 Validator validator,
+                 ObjectProvider<PlatformTransactionManager> transactionManager,
+                 @Value("${carpark.warmup.rounds:5}") int rounds,
+                 @Value("${carpark.warmup.requests:200}") int requests,
+                 @Value("${carpark.warmup.writes:50}") int writes) {
+        this.driverRepository = driverRepository;
+        this.vehicleRepository = vehicleRepository;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        //No transaction manager with in-memory storage
+        PlatformTransactionManager manager = transactionManager.getIfAvailable();
+        this.transactionTemplate = manager != null ? new TransactionTemplate(manager) : null;
+        this.rounds = rounds;
+        this.requests = requests;
+        this.writes = writes;
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        ApplicationContext context = event.getApplicationContext();
+        AvailabilityChangeEvent.publish(context, ReadinessState.REFUSING_TRAFFIC);
+        try {
+            warmUp(context);
+        } catch (RuntimeException e) {
+            log.warn("Warm-up failed, accepting traffic anyway", e);
+        } finally {
+            AvailabilityChangeEvent.publish(context, ReadinessState.ACCEPTING_TRAFFIC);
+        }
+    }
+
+    /**
+     * Return true if request is sent by warm-up of this application
+     */
+    static boolean isWarmup(HttpServletRequest request) {
+        return TOKEN.equals(request.getHeader(HEADER));
+    }
+
+    private void warmUp(ApplicationContext context) {
+        long started = System.nanoTime();
+        List<Driver> drivers = driverRepository.findAll();
+        List<Vehicle> vehicles = vehicleRepository.findAll();
+        List<String> paths = paths(drivers, vehicles);
+        String baseUrl = context instanceof WebServerApplicationContext
+                ? "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort()
+                : null;
+
+        double firstRoundMillis = 0;
+        double lastRoundMillis = 0;
+        for (int round = 0; round < rounds; round++) {
+            double roundMillis = 0;
+            if (baseUrl != null && !paths.isEmpty()) {
+                long roundStarted = System.nanoTime();
+                for (int i = 0; i < requests; i++) {
+                    get(baseUrl + paths.get(i % paths.size()));
+                }
+                roundMillis = (System.nanoTime() - roundStarted) / 1e6 / requests;
+            }
+            if (transactionTemplate != null && !drivers.isEmpty() && !vehicles.isEmpty()) {
+                for (int i = 0; i < writes; i++) {
+                    int n = round * writes + i;
+                    Long driverId = drivers.get(n % drivers.size()).getId();
+                    Long vehicleId = vehicles.get(n % vehicles.size()).getId();
+                    try {
+                        transactionTemplate.execute(status -> {
+                            status.setRollbackOnly();
+                            write(driverId, vehicleId, n);
+                            return null;
+                        });
+                    } catch (RuntimeException e) {
+                        log.debug("Warm-up write {} failed", n, e);
+                    }
+                }
+            }
+
+            if (round == 0) {
+                firstRoundMillis = roundMillis;
+            }
+            lastRoundMillis = roundMillis;
+        }
+
+        log.info("Warm-up took {} ms in {} rounds, average request latency {} ms in first round, {} ms in last round, {} ms saved",
+                (System.nanoTime() - started) / 1000000, rounds,
+                String.format("%.3f", firstRoundMillis), String.format("%.3f", lastRoundMillis),
+                String.format("%.3f", firstRoundMillis - lastRoundMillis));
+    }
+
+    //Mix of read endpoints for a few existing drivers and vehicles, and some failing requests
+    private List<String> paths(List<Driver> drivers, List<Vehicle> vehicles) {
+        List<String> paths = new ArrayList<>();
+        paths.add("/drivers");
+        paths.add("/drivers?sort=asc");
+        paths.add("/drivers?fields=id,name");
+        paths.add("/drivers/withoutcar");
+        paths.add("/vehicles");
+        paths.add("/vehicles/no-driver");
+        paths.add("/vehicles?fields=id,plateNum,driver");
+        paths.add("/parking/zones");
+        paths.add("/drivers/0");
+        paths.add("/vehicles/0");
+
+        for (int i = 0; i < drivers.size() && i < 10; i++) {
+            Long id = drivers.get(i).getId();
+            paths.add("/drivers/" + id);
+            paths.add("/drivers/" + id + "/cars");
+            paths.add("/drivers/licenses/" + drivers.get(i).getLicenseNum());
+            paths.add("/drivers?ids=" + id + ",0");
+        }
+        for (int i = 0; i < vehicles.size() && i < 10; i++) {
+            Long id = vehicles.get(i).getId();
+            paths.add("/vehicles/" + id);
+            paths.add("/vehicles/" + id + "?include=telemetry");
+            paths.add("/vehicles/" + id + "/possible-drivers");
+            paths.add("/vehicles?ids=" + id + ",0");
+        }
+        return paths;
+    }
+
+    private void get(String url) {
+        try {
+            HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+            connection.setConnectTimeout(5000);
+            connection.setReadTimeout(30000);
+            connection.setRequestProperty(HEADER, TOKEN);
+            int status = connection.getResponseCode();
+            InputStream in = status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+            if (in != null) {
+                try (InputStream stream = in) {
+                    byte[] buffer = new byte[8192];
+                    while (stream.read(buffer) > 0) {
+                        //Body is read to the end so the connection is reused
+                    }
+                }
+            }
+        } catch (IOException e) {
+            log.debug("Warm-up request {} failed", url, e);
+        }
+    }
+
+    //Runs inside a rolled back transaction
+    private void write(Long driverId, Long vehicleId, int n) {
+        Driver driver = driverRepository.findById(driverId).orElse(null);
+        if (driver != null) {
+            driver.setName("Warm-up " + n);
+            //A dash is never part of a license number
+            driver.setLicenseNum(String.format("WU-%06d", n % 1000000));
+            validator.validate(driver);
+            driver = driverRepository.saveAndFlush(driver);
+            driverRepository.findByLicenseNum(driver.getLicenseNum());
+        }
+
+        Vehicle vehicle = vehicleRepository.findById(vehicleId).orElse(null);
+        if (vehicle != null) {
+            //Nor of a plate number
+            vehicle.setPlateNum(String.format("WU-%05d", n % 100000));
+            vehicle.setDriver(null);
+            validator.validate(vehicle);
+            vehicle = vehicleRepository.saveAndFlush(vehicle);
+            vehicleRepository.findByPlateNum(vehicle.getPlateNum());
+        }
+
+        try {
+            objectMapper.writeValueAsBytes(driver);
+            objectMapper.writeValueAsBytes(vehicle);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.carpark.demo;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of changes for InMemoryStore.
+ *
+ * Log is a sequence of files "wal-{first lsn}.log" in data directory,
+ * a new file is started on every rotate (after snapshot) and on every startup.
+ * Each record is: int length, int crc32 of payload, payload.
+ * A record cut short or with wrong checksum at the end of the last file is a torn write
+ * from a crash and is dropped on replay, anywhere else it means the log is damaged.
+ *
+ * Not thread safe, InMemoryStore calls it while holding its write lock.
+ */
+class WriteAheadLog implements Closeable {
+    private static final String PREFIX = "wal-";
+    private static final String SUFFIX = ".log";
+    //Anything longer is garbage, not a record
+    private static final int MAX_RECORD_BYTES = 16 * 1024 * 1024;
+
+    private final Path directory;
+    private final boolean fsync;
+
+    private FileOutputStream file;
+    private DataOutputStream out;
+    //Length of current file up to the end of last complete record
+    private long size;
+
+    WriteAheadLog(Path directory, boolean fsync) {
+        this.directory = directory;
+        this.fsync = fsync;
+    }
+
+    /**
+     * Pass payload of every record in every log file to reader, in order
+     */
+    void replay(RecordReader reader) throws IOException {
+        List<Path> files = files();
+        for (int i = 0; i < files.size(); i++) {
+            replayFile(files.get(i), i == files.size() - 1, reader);
+        }
+    }
+
+    private void replayFile(Path path, boolean last, RecordReader reader) throws IOException {
+        long goodLength = 0;
+        boolean torn = false;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+
+                byte[] payload;
+                int crc;
+                try {
+                    crc = in.readInt();
+                    if (length < 0 || length > MAX_RECORD_BYTES) {
+                        throw new EOFException();
+                    }
+                    payload = new byte[length];
+                    in.readFully(payload);
+                } catch (EOFException e) {
+                    torn = true;
+                    break;
+                }
+                if (crc != crc(payload)) {
+                    torn = true;
+                    break;
+                }
+
+                reader.read(new DataInputStream(new ByteArrayInputStream(payload)));
+                goodLength += 8 + length;
+            }
+        }
+
+        if (torn) {
+            if (!last) {
+                throw new IOException("Write-ahead log " + path + " is damaged at offset " + goodLength);
+            }
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                channel.truncate(goodLength);
+            }
+        }
+    }
+
+    /**
+     * Close current file and continue in a new one starting with given lsn
+     */
+    void rotate(long firstLsn) throws IOException {
+        close();
+        Files.createDirectories(directory);
+        file = new FileOutputStream(directory.resolve(fileName(firstLsn)).toFile(), true);
+        out = new DataOutputStream(new BufferedOutputStream(file));
+        size = file.getChannel().size();
+    }
+
+    /**
+     * Append record and make it durable (flushed, and forced to disk if fsync is on).
+     * If writing fails, whatever part of the record reached the file is cut off again,
+     * so a failed append never leaves garbage in front of later records.
+     */
+    void append(byte[] payload) throws IOException {
+        try {
+            out.writeInt(payload.length);
+            out.writeInt(crc(payload));
+            out.write(payload);
+            out.flush();
+            if (fsync) {
+                file.getChannel().force(false);
+            }
+            size += 8 + payload.length;
+        } catch (IOException e) {
+            file.getChannel().truncate(size);
+            out = new DataOutputStream(new BufferedOutputStream(file));
+            throw e;
+        }
+    }
+
+    /**
+     * Delete log files which start before given lsn, except the file currently written
+     */
+    void deleteFilesBefore(long lsn) throws IOException {
+        String current = fileName(lsn);
+        for (Path path : files()) {
+            if (path.getFileName().toString().compareTo(current) < 0) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (out != null) {
+            out.close();
+            out = null;
+            file = null;
+        }
+    }
+
+    interface RecordReader {
+        void read(DataInputStream payload) throws IOException;
+    }
+
+    private List<Path> files() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return new ArrayList<>();
+        }
+        try (Stream<Path> paths = Files.list(directory)) {
+            return paths
+                    .filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+                    })
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    //Zero padded, so names sort in lsn order
+    private static String fileName(long firstLsn) {
+        return String.format("%s%020d%s", PREFIX, firstLsn, SUFFIX);
+    }
+
+    private static int crc(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        return (int) crc.getValue();
+    }
+}
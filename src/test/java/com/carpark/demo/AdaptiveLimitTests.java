@@ -0,0 +1,110 @@
+package com.carpark.demo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveLimitTests {
+    private static final long LATENCY = TimeUnit.MILLISECONDS.toNanos(1);
+
+    //Take every slot, then complete one request
+    private static void saturatedSample(AdaptiveLimit limit, long latencyNanos, boolean failed) {
+        while (limit.tryAcquire()) {
+            //Fill up
+        }
+        limit.release(latencyNanos, failed);
+    }
+
+    private static void releaseAll(AdaptiveLimit limit) {
+        while (limit.getInFlight() > 0) {
+            limit.release(LATENCY, false);
+        }
+    }
+
+    @Test
+    void refusesAtLimit() {
+        AdaptiveLimit limit = new AdaptiveLimit(2, 1, 10, 1.0);
+        assertTrue(limit.tryAcquire());
+        assertTrue(limit.tryAcquire());
+        assertTrue(limit.saturated());
+        assertFalse(limit.tryAcquire());
+        assertEquals(2, limit.getInFlight());
+
+        limit.release(LATENCY, false);
+        assertTrue(limit.tryAcquire());
+    }
+
+    @Test
+    void growsWhileSaturatedAtSteadyLatency() {
+        AdaptiveLimit limit = new AdaptiveLimit(10, 1, 100, 1.0);
+        saturatedSample(limit, LATENCY, false);
+        //10 + sqrt(10)
+        assertEquals(13, limit.getLimit());
+
+        saturatedSample(limit, LATENCY, false);
+        assertTrue(limit.getLimit() > 13);
+    }
+
+    @Test
+    void doesNotGrowWhileMostlyIdle() {
+        AdaptiveLimit limit = new AdaptiveLimit(10, 1, 100, 1.0);
+        for (int i = 0; i < 100; i++) {
+            assertTrue(limit.tryAcquire());
+            limit.release(LATENCY, false);
+        }
+        assertEquals(10, limit.getLimit());
+    }
+
+    @Test
+    void shrinksWhenLatencyRises() {
+        AdaptiveLimit limit = new AdaptiveLimit(10, 1, 100, 1.0);
+        saturatedSample(limit, LATENCY, false);
+        int grown = limit.getLimit();
+
+        saturatedSample(limit, 10 * LATENCY, false);
+        assertTrue(limit.getLimit() < grown, "Limit " + limit.getLimit() + " did not shrink from " + grown);
+    }
+
+    @Test
+    void serverErrorBacksOff() {
+        AdaptiveLimit limit = new AdaptiveLimit(20, 4, 100, 0.2);
+        assertTrue(limit.tryAcquire());
+        limit.release(LATENCY, true);
+        assertEquals(18, limit.getLimit());
+    }
+
+    @Test
+    void clampedToMin() {
+        AdaptiveLimit limit = new AdaptiveLimit(20, 6, 100, 0.2);
+        for (int i = 0; i < 50; i++) {
+            saturatedSample(limit, LATENCY, true);
+        }
+        assertEquals(6, limit.getLimit());
+        releaseAll(limit);
+
+        //Gradient stays at 0.5, without min the limit would settle at 4 (limit / 2 + sqrt(limit))
+        saturatedSample(limit, LATENCY, false);
+        for (int i = 0; i < 50; i++) {
+            saturatedSample(limit, 1000 * LATENCY, false);
+        }
+        assertEquals(6, limit.getLimit());
+    }
+
+    @Test
+    void clampedToMax() {
+        AdaptiveLimit limit = new AdaptiveLimit(10, 1, 30, 1.0);
+        for (int i = 0; i < 50; i++) {
+            saturatedSample(limit, LATENCY, false);
+        }
+        assertEquals(30, limit.getLimit());
+        assertEquals(29, limit.getInFlight());
+    }
+
+    @Test
+    void initialLimitIsClamped() {
+        assertEquals(30, new AdaptiveLimit(50, 1, 30, 1.0).getLimit());
+        assertEquals(4, new AdaptiveLimit(2, 4, 30, 1.0).getLimit());
+    }
+}
@@ -0,0 +1,172 @@
+package com.carpark.demo;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CoalescingLoaderTests {
+    private static final int WAITERS = 4;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final AtomicInteger loads = new AtomicInteger();
+    private final CountDownLatch loading = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    //First load blocks until released, later ones return right away
+    private <V> Function<String, V> blockingFirst(Function<String, V> value) {
+        return key -> {
+            if (loads.incrementAndGet() == 1) {
+                loading.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            return value.apply(key);
+        };
+    }
+
+    private CoalescingLoader<String, List<String>> loader(Function<String, List<String>> load, long timeoutMillis) {
+        return new CoalescingLoader<>("test", load, ArrayList::new, timeoutMillis, registry);
+    }
+
+    private double count(String name) {
+        return registry.get(name).tag("loader", "test").counter().count();
+    }
+
+    private static Thread start(Runnable call) {
+        Thread thread = new Thread(call);
+        thread.start();
+        return thread;
+    }
+
+    //Callers waiting for a shared load are parked with a timeout, nothing else in a call waits that way
+    private static void awaitWaiting(List<Thread> threads) throws InterruptedException {
+        for (Thread thread : threads) {
+            while (thread.getState() != Thread.State.TIMED_WAITING) {
+                assertTrue(thread.isAlive(), "Caller returned before the shared load was done");
+                Thread.sleep(1);
+            }
+        }
+    }
+
+    private static void join(List<Thread> threads) throws InterruptedException {
+        for (Thread thread : threads) {
+            thread.join(TimeUnit.MINUTES.toMillis(1));
+        }
+    }
+
+    @Test
+    void concurrentCallersShareOneLoadAndGetOwnCopies() throws Exception {
+        CoalescingLoader<String, List<String>> loader =
+                loader(blockingFirst(key -> new ArrayList<>(Collections.singletonList(key))), 60000);
+        Map<Thread, List<String>> results = new ConcurrentHashMap<>();
+
+        Thread first = start(() -> results.put(Thread.currentThread(), loader.get("a")));
+        loading.await();
+        List<Thread> waiters = new ArrayList<>();
+        for (int i = 0; i < WAITERS; i++) {
+            waiters.add(start(() -> results.put(Thread.currentThread(), loader.get("a"))));
+        }
+        awaitWaiting(waiters);
+        release.countDown();
+        first.join();
+        join(waiters);
+
+        assertEquals(1, loads.get());
+        assertEquals(1, count("carpark.coalescing.queries"));
+        assertEquals(WAITERS, count("carpark.coalescing.saved"));
+
+        //Same value, but no two callers share an object
+        Set<List<String>> distinct = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (List<String> result : results.values()) {
+            assertEquals(Collections.singletonList("a"), result);
+            distinct.add(result);
+        }
+        assertEquals(WAITERS + 1, distinct.size());
+        results.get(first).add("changed by loading caller");
+        for (Thread waiter : waiters) {
+            assertEquals(Collections.singletonList("a"), results.get(waiter));
+        }
+    }
+
+    @Test
+    void differentKeysAreNotShared() {
+        CoalescingLoader<String, List<String>> loader = loader(key -> {
+            loads.incrementAndGet();
+            return Collections.singletonList(key);
+        }, 60000);
+        assertEquals(Collections.singletonList("a"), loader.get("a"));
+        assertEquals(Collections.singletonList("b"), loader.get("b"));
+        assertEquals(Collections.singletonList("a"), loader.get("a"));
+        assertEquals(3, loads.get());
+        assertEquals(0, count("carpark.coalescing.saved"));
+    }
+
+    @Test
+    void waiterLoadsByItselfAfterTimeout() throws Exception {
+        CoalescingLoader<String, List<String>> loader =
+                loader(blockingFirst(key -> Collections.singletonList(key + loads.get())), 50);
+
+        Thread first = start(() -> loader.get("a"));
+        loading.await();
+        try {
+            //Shared load is still blocked, so this is the result of an own load
+            assertEquals(Collections.singletonList("a2"), loader.get("a"));
+        } finally {
+            release.countDown();
+            first.join();
+        }
+
+        assertEquals(2, loads.get());
+        assertEquals(1, count("carpark.coalescing.timeouts"));
+        assertEquals(2, count("carpark.coalescing.queries"));
+        assertEquals(0, count("carpark.coalescing.saved"));
+    }
+
+    @Test
+    void failureReachesEveryWaiterAndIsNotKept() throws Exception {
+        IllegalStateException failure = new IllegalStateException("Database is down");
+        CoalescingLoader<String, List<String>> loader = loader(blockingFirst(key -> {
+            if (loads.get() == 1) {
+                throw failure;
+            }
+            return Collections.singletonList(key);
+        }), 60000);
+        Map<Thread, Throwable> thrown = new ConcurrentHashMap<>();
+        Runnable call = () -> {
+            try {
+                loader.get("a");
+            } catch (RuntimeException e) {
+                thrown.put(Thread.currentThread(), e);
+            }
+        };
+
+        Thread first = start(call);
+        loading.await();
+        List<Thread> waiters = new ArrayList<>();
+        for (int i = 0; i < WAITERS; i++) {
+            waiters.add(start(call));
+        }
+        awaitWaiting(waiters);
+        release.countDown();
+        first.join();
+        join(waiters);
+
+        assertEquals(WAITERS + 1, thrown.size());
+        for (Throwable e : thrown.values()) {
+            assertSame(failure, e);
+        }
+        //Failed load is no longer in flight, next call loads again
+        assertEquals(Collections.singletonList("a"), loader.get("a"));
+        assertEquals(2, loads.get());
+        assertEquals(2, count("carpark.coalescing.queries"));
+    }
+}
@@ -0,0 +1,94 @@
+package com.carpark.demo;
+
+import com.carpark.demo.ConcurrencyLimitFilter.Group;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.FilterChain;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrencyLimitFilterTests {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    //Every group admits one request at a time
+    private final ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(
+            new ErrorResponses(new ObjectMapper()), registry, 1, 1, 1, 1, 0.2, 7);
+
+    private static MockHttpServletRequest request(String method, String path) {
+        return new MockHttpServletRequest(method, path);
+    }
+
+    @Test
+    void classifiesRequests() {
+        MockHttpServletRequest multiGet = request("GET", "/drivers");
+        multiGet.setParameter("ids", "1,2,3");
+        assertEquals(Group.SCAN, ConcurrencyLimitFilter.group(multiGet));
+        assertEquals(Group.SCAN, ConcurrencyLimitFilter.group(request("GET", "/vehicles")));
+        assertEquals(Group.SCAN, ConcurrencyLimitFilter.group(request("POST", "/drivers/by-ids")));
+        assertEquals(Group.SCAN, ConcurrencyLimitFilter.group(request("POST", "/vehicles/by-ids")));
+        assertEquals(Group.SCAN, ConcurrencyLimitFilter.group(request("POST", "/drivers:bulkDelete")));
+        assertEquals(Group.SCAN, ConcurrencyLimitFilter.group(request("POST", "/vehicles:bulkDelete")));
+        assertEquals(Group.SCAN, ConcurrencyLimitFilter.group(request("GET", "/vehicles/no-driver")));
+
+        assertEquals(Group.POINT_READ, ConcurrencyLimitFilter.group(request("GET", "/drivers/1")));
+        assertEquals(Group.POINT_READ, ConcurrencyLimitFilter.group(request("GET", "/vehicles/1/telemetry")));
+        assertEquals(Group.WRITE, ConcurrencyLimitFilter.group(request("POST", "/drivers")));
+        assertEquals(Group.WRITE, ConcurrencyLimitFilter.group(request("DELETE", "/vehicles/1")));
+        assertEquals(Group.WRITE, ConcurrencyLimitFilter.group(request("PUT", "/vehicles/1")));
+    }
+
+    @Test
+    void shedsWith503AndRetryAfter() throws Exception {
+        MockHttpServletResponse shed = new MockHttpServletResponse();
+        //Second point read arrives while the first one holds the only slot
+        FilterChain firstRead = (request, response) ->
+                filter.doFilter(request("GET", "/drivers/2"), shed, (r, s) -> fail("Request over limit was admitted"));
+
+        MockHttpServletResponse admitted = new MockHttpServletResponse();
+        filter.doFilter(request("GET", "/drivers/1"), admitted, firstRead);
+
+        assertEquals(200, admitted.getStatus());
+        assertEquals(503, shed.getStatus());
+        assertEquals("7", shed.getHeader(HttpHeaders.RETRY_AFTER));
+        assertEquals("application/json", shed.getContentType());
+        assertTrue(shed.getContentAsString().contains("Server is overloaded, retry later"));
+        assertEquals(1, registry.get("carpark.limiter.rejected").tag("group", "POINT_READ").counter().count());
+
+        //Slot is free again once the first read completes
+        MockHttpServletResponse next = new MockHttpServletResponse();
+        AtomicReference<Boolean> called = new AtomicReference<>(false);
+        filter.doFilter(request("GET", "/drivers/2"), next, (r, s) -> called.set(true));
+        assertTrue(called.get());
+        assertEquals(200, next.getStatus());
+    }
+
+    @Test
+    void scanIsShedWhilePointReadsAreSaturated() throws Exception {
+        MockHttpServletResponse scan = new MockHttpServletResponse();
+        FilterChain pointRead = (request, response) ->
+                filter.doFilter(request("POST", "/vehicles:bulkDelete"), scan, (r, s) -> fail("Scan was admitted"));
+
+        filter.doFilter(request("GET", "/vehicles/1"), new MockHttpServletResponse(), pointRead);
+
+        assertEquals(503, scan.getStatus());
+        assertEquals(1, registry.get("carpark.limiter.rejected").tag("group", "SCAN").counter().count());
+        assertEquals(0, registry.get("carpark.limiter.inflight").tag("group", "SCAN").gauge().value());
+    }
+
+    @Test
+    void otherPathsAreNotLimited() throws Exception {
+        AtomicReference<Boolean> called = new AtomicReference<>(false);
+        FilterChain health = (request, response) ->
+                filter.doFilter(request("GET", "/actuator/health"), new MockHttpServletResponse(), (r, s) -> called.set(true));
+
+        filter.doFilter(request("GET", "/drivers/1"), new MockHttpServletResponse(), health);
+        assertTrue(called.get());
+    }
+}
@@ -0,0 +1,154 @@
+package com.carpark.demo;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * DELETE /drivers/{id} and both :bulkDelete endpoints through the controller, run against every storage:
+ * JpaDeleteEndpointTests (JdbcBulkDeleteRepository) and InMemoryDeleteEndpointTests (InMemoryBulkDeleteRepository).
+ *
+ * Every test uses drivers and vehicles of its own category or ids it created, seed data is not touched.
+ */
+abstract class DeleteEndpointTests {
+    //Never handed out by the sequences in tests
+    private static final long MISSING_ID = 999999;
+
+    @Autowired protected MockMvc mockMvc;
+    @Autowired protected DriverRepository driverRepository;
+    @Autowired protected VehicleRepository vehicleRepository;
+
+    private ResultActions bulkDelete(String entities, String body) throws Exception {
+        return mockMvc.perform(post("/" + entities + ":bulkDelete")
+                .contentType(MediaType.APPLICATION_JSON).content(body));
+    }
+
+    @Test
+    void idsAndFiltersTogetherAreRejected() throws Exception {
+        Vehicle vehicle = vehicleRepository.save(new Vehicle("06666TLR", Category.TRAILER));
+
+        bulkDelete("vehicles", "{\"ids\":[" + vehicle.getId() + "],\"category\":\"TRAILER\"}")
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.success").value(false))
+                .andExpect(jsonPath("$.description").value("Body should contain either ids or filters"));
+        bulkDelete("drivers", "{\"ids\":[" + MISSING_ID + "],\"unassigned\":true}")
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.description").value("Body should contain either ids or filters"));
+        bulkDelete("vehicles", "{}")
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.description").value("Body should contain ids or at least one filter"));
+
+        assertTrue(vehicleRepository.existsById(vehicle.getId()));
+        vehicleRepository.deleteById(vehicle.getId());
+    }
+
+    @Test
+    void missingIdsAreNotFound() throws Exception {
+        Vehicle vehicle = vehicleRepository.save(new Vehicle("07777TLR", Category.TRAILER));
+
+        bulkDelete("vehicles", "{\"ids\":[" + vehicle.getId() + "," + MISSING_ID + "]}")
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.deleted").value(1))
+                .andExpect(jsonPath("$.notFound").value(1))
+                .andExpect(jsonPath("$.unassigned").value(0))
+                .andExpect(jsonPath("$.results[0].id").value(vehicle.getId()))
+                .andExpect(jsonPath("$.results[0].outcome").value(BulkDeleteResult.DELETED))
+                .andExpect(jsonPath("$.results[1].id").value(MISSING_ID))
+                .andExpect(jsonPath("$.results[1].outcome").value(BulkDeleteResult.NOT_FOUND));
+        assertFalse(vehicleRepository.existsById(vehicle.getId()));
+
+        //Deleted a moment ago, now it is missing too
+        bulkDelete("vehicles", "{\"ids\":[" + vehicle.getId() + "]}")
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.deleted").value(0))
+                .andExpect(jsonPath("$.results[0].outcome").value(BulkDeleteResult.NOT_FOUND));
+    }
+
+    @Test
+    void repeatedIdsAreReportedOnce() throws Exception {
+        Driver driver = driverRepository.save(new Driver("Trailer driver", "TL0000002", Category.TRAILER));
+        long id = driver.getId();
+
+        bulkDelete("drivers", "{\"ids\":[" + id + "," + MISSING_ID + "," + id + "," + MISSING_ID + "]}")
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.deleted").value(1))
+                .andExpect(jsonPath("$.notFound").value(1))
+                .andExpect(jsonPath("$.results", hasSize(2)))
+                .andExpect(jsonPath("$.results[0].id").value(id))
+                .andExpect(jsonPath("$.results[1].id").value(MISSING_ID));
+        assertFalse(driverRepository.existsById(id));
+    }
+
+    @Test
+    void deletedDriversAreUnassigned() throws Exception {
+        Driver driver = driverRepository.save(new Driver("Trailer driver", "TL0000003", Category.TRAILER));
+        Vehicle first = vehicleRepository.save(new Vehicle("08888TLR", Category.TRAILER, driver));
+        Vehicle second = vehicleRepository.save(new Vehicle("09999TLR", Category.TRAILER, driver));
+
+        bulkDelete("drivers", "{\"ids\":[" + driver.getId() + "]}")
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.deleted").value(1))
+                .andExpect(jsonPath("$.unassigned").value(2));
+
+        assertFalse(driverRepository.existsById(driver.getId()));
+        assertNull(vehicleRepository.findById(first.getId()).get().getDriver());
+        assertNull(vehicleRepository.findById(second.getId()).get().getDriver());
+
+        //Both trailers are unassigned now, so the filter takes them
+        bulkDelete("vehicles", "{\"category\":\"TRAILER\",\"unassigned\":true}")
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.deleted").value(2))
+                .andExpect(jsonPath("$.unassigned").value(0));
+        assertFalse(vehicleRepository.existsById(first.getId()));
+        assertFalse(vehicleRepository.existsById(second.getId()));
+    }
+
+    @Test
+    void deletedVehiclesEndAssignment() throws Exception {
+        Driver driver = driverRepository.save(new Driver("Trailer driver", "TL0000004", Category.TRAILER));
+        Vehicle assigned = vehicleRepository.save(new Vehicle("01010TLR", Category.TRAILER, driver));
+        Vehicle spare = vehicleRepository.save(new Vehicle("02020TLR", Category.TRAILER));
+
+        //Only the spare one matches
+        bulkDelete("vehicles", "{\"category\":\"TRAILER\",\"unassigned\":true}")
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.deleted").value(1))
+                .andExpect(jsonPath("$.results[0].id").value(spare.getId()));
+        assertTrue(vehicleRepository.existsById(assigned.getId()));
+
+        bulkDelete("vehicles", "{\"ids\":[" + assigned.getId() + "]}")
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.deleted").value(1))
+                .andExpect(jsonPath("$.unassigned").value(1));
+        assertTrue(vehicleRepository.findByDriverId(driver.getId()).isEmpty());
+        driverRepository.deleteById(driver.getId());
+    }
+
+    @Test
+    void deleteDriverChecksPresenceThenAssignment() throws Exception {
+        mockMvc.perform(delete("/drivers/" + MISSING_ID))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.description").value("No driver with such id"));
+
+        Driver driver = driverRepository.save(new Driver("Trailer driver", "TL0000005", Category.TRAILER));
+        Vehicle vehicle = vehicleRepository.save(new Vehicle("03030TLR", Category.TRAILER, driver));
+        mockMvc.perform(delete("/drivers/" + driver.getId()))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.description").value("Driver is assigned to car"));
+        assertTrue(driverRepository.existsById(driver.getId()));
+
+        vehicleRepository.deleteById(vehicle.getId());
+        mockMvc.perform(delete("/drivers/" + driver.getId()))
+                .andExpect(status().isOk());
+        assertFalse(driverRepository.existsById(driver.getId()));
+    }
+}
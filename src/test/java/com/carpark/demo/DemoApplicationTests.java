@@ -3,7 +3,7 @@ package com.carpark.demo;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+@SpringBootTest(properties = "carpark.warmup.enabled=false")
 class DemoApplicationTests {
 
     @Test
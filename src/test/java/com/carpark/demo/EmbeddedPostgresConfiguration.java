@@ -0,0 +1,59 @@
+package com.carpark.demo;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * With profile "embedded-postgres" the JPA path runs on a PostgreSQL server started by the tests,
+ * no installed database is needed.
+ *
+ * One server is started per test JVM and every application context gets a database of its own,
+ * because each context recreates the schema (spring.jpa.hibernate.ddl-auto=create)
+ * and would otherwise wipe the data of contexts cached by other test classes.
+ */
+@Configuration
+@Profile("embedded-postgres")
+class EmbeddedPostgresConfiguration {
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+    private static EmbeddedPostgres server;
+
+    @Bean
+    DataSource dataSource() throws IOException, SQLException {
+        EmbeddedPostgres postgres = server();
+        String database = "carpark_" + DATABASES.incrementAndGet();
+        try (Connection connection = postgres.getPostgresDatabase().getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE DATABASE " + database);
+        }
+
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(postgres.getJdbcUrl("postgres", database));
+        dataSource.setUsername("postgres");
+        return dataSource;
+    }
+
+    private static synchronized EmbeddedPostgres server() throws IOException {
+        if (server == null) {
+            EmbeddedPostgres started = EmbeddedPostgres.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    started.close();
+                } catch (IOException e) {
+                    //Server process is gone with the JVM anyway
+                }
+            }));
+            server = started;
+        }
+        return server;
+    }
+}
@@ -0,0 +1,53 @@
+package com.carpark.demo;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileAssignmentHistoryTests {
+    private static final Instant MORNING = Instant.parse("2020-10-12T08:15:30Z");
+
+    @Test
+    void lineCutByCrashIsDroppedBeforeAppend(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("assignment-history").resolve("20201012.csv");
+        Files.createDirectories(file.getParent());
+        //Second line was cut inside changedAt, it still has four columns
+        String complete = "1,2,," + MORNING.toEpochMilli() + "\n";
+        String torn = "1,,2," + MORNING.plusSeconds(60).toEpochMilli() / 1000;
+        Files.write(file, (complete + torn).getBytes(StandardCharsets.UTF_8));
+
+        FileAssignmentHistory history = new FileAssignmentHistory(dir.toString());
+        assertEquals(1, history.byVehicle(1, MORNING, MORNING.plusSeconds(3600)).size());
+
+        history.append(Collections.singletonList(new AssignmentEvent(1, 3L, 2L, MORNING.plusSeconds(120))));
+        List<AssignmentEvent> events = history.byVehicle(1, MORNING, MORNING.plusSeconds(3600));
+        assertEquals(2, events.size());
+        assertEquals(Long.valueOf(3), events.get(1).getDriverId());
+        assertEquals(complete + "1,3,2," + MORNING.plusSeconds(120).toEpochMilli() + "\n",
+                new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void queriesReadOnlyDaysInRange(@TempDir Path dir) {
+        FileAssignmentHistory history = new FileAssignmentHistory(dir.toString());
+        Instant nextDay = MORNING.plusSeconds(24 * 3600);
+        history.append(Arrays.asList(
+                new AssignmentEvent(1, 2L, null, MORNING),
+                new AssignmentEvent(1, null, 2L, nextDay)));
+
+        assertEquals(1, history.byDriver(2, nextDay, nextDay.plusSeconds(1)).size());
+        assertEquals(2, history.byDriver(2, MORNING, nextDay.plusSeconds(1)).size());
+        assertEquals(1, history.dropBefore(AssignmentEvent.day(nextDay)));
+        assertEquals(1, history.byVehicle(1, MORNING, nextDay.plusSeconds(1)).size());
+    }
+}
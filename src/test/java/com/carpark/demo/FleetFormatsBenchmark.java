@@ -0,0 +1,104 @@
+package com.carpark.demo;
+
+import org.openjdk.jmh.annotations.*;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validation;
+import javax.validation.Validator;
+import javax.validation.ValidatorFactory;
+import javax.validation.constraints.Pattern;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Plate and license number validation: the @Pattern regexes Driver and Vehicle used before
+ * against @PlateNumber/@LicenseNumber with FleetFormats checks, for valid and invalid input.
+ *
+ * mvn test -Pbenchmark -Djmh.args="FleetFormatsBenchmark -prof gc"
+ *
+ * *Matcher benchmarks compare the checks alone, *Validator benchmarks the whole
+ * Bean Validation call a request body goes through.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FleetFormatsBenchmark {
+    private static final java.util.regex.Pattern LICENSE_NUM = java.util.regex.Pattern.compile("[A-Z]{2}\\d{7}");
+    private static final java.util.regex.Pattern PLATE_NUM =
+            java.util.regex.Pattern.compile("\\d{2}[A-Z]\\d{3}[A-Z]{2}|\\d{5}[A-Z]{3}");
+
+    @Param({"valid", "invalid"})
+    public String input;
+
+    private String licenseNum;
+    private String plateNum;
+    private ValidatorFactory validatorFactory;
+    private Validator validator;
+    private RegexFields regexFields;
+    private HandWrittenFields handWrittenFields;
+
+    @Setup
+    public void setUp() {
+        boolean valid = "valid".equals(input);
+        //Invalid values fail late, on the last character, which is the worst case for both
+        licenseNum = valid ? "AB1234567" : "AB123456X";
+        plateNum = valid ? "01454GTA" : "01454GT1";
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        validator = validatorFactory.getValidator();
+        regexFields = new RegexFields(licenseNum, plateNum);
+        handWrittenFields = new HandWrittenFields(licenseNum, plateNum);
+    }
+
+    @TearDown
+    public void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Benchmark
+    public boolean regexMatcher() {
+        return LICENSE_NUM.matcher(licenseNum).matches() & PLATE_NUM.matcher(plateNum).matches();
+    }
+
+    @Benchmark
+    public boolean handWrittenMatcher() {
+        return FleetFormats.isLicenseNum(licenseNum) & FleetFormats.isPlateNum(plateNum);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<RegexFields>> regexValidator() {
+        return validator.validate(regexFields);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<HandWrittenFields>> handWrittenValidator() {
+        return validator.validate(handWrittenFields);
+    }
+
+    //Fields as annotated on Driver and Vehicle before and after
+    static class RegexFields {
+        @Pattern(regexp = "[A-Z]{2}\\d{7}")
+        final String licenseNum;
+        @Pattern(regexp = "\\d{2}[A-Z]\\d{3}[A-Z]{2}|\\d{5}[A-Z]{3}")
+        final String plateNum;
+
+        RegexFields(String licenseNum, String plateNum) {
+            this.licenseNum = licenseNum;
+            this.plateNum = plateNum;
+        }
+    }
+
+    static class HandWrittenFields {
+        @LicenseNumber
+        final String licenseNum;
+        @PlateNumber
+        final String plateNum;
+
+        HandWrittenFields(String licenseNum, String plateNum) {
+            this.licenseNum = licenseNum;
+            this.plateNum = plateNum;
+        }
+    }
+}
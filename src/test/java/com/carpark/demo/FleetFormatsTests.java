@@ -0,0 +1,169 @@
+package com.carpark.demo;
+
+import org.junit.jupiter.api.Test;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validation;
+import javax.validation.Validator;
+import java.util.*;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FleetFormatsTests {
+    //Formats as they were checked with @Pattern before FleetFormats
+    private static final Pattern LICENSE_NUM = Pattern.compile("[A-Z]{2}\\d{7}");
+    private static final Pattern PLATE_NUM = Pattern.compile("\\d{2}[A-Z]\\d{3}[A-Z]{2}|\\d{5}[A-Z]{3}");
+    //Characters around the ASCII ranges and lookalikes from other scripts
+    private static final String ALPHABET = "AZaz09@[`{/: \t-_ÀÉßäАВ٣０５ＡＺ";
+
+    private final Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    @Test
+    void bothPlateLayoutsAreAccepted() {
+        assertTrue(FleetFormats.isPlateNum("01N877LA"));
+        assertTrue(FleetFormats.isPlateNum("01454GTA"));
+        assertTrue(FleetFormats.isPlateNum(new StringBuilder("99Z000ZZ")));
+
+        //Layouts mixed up
+        assertFalse(FleetFormats.isPlateNum("01N87LAA"));
+        assertFalse(FleetFormats.isPlateNum("014547TA"));
+        assertFalse(FleetFormats.isPlateNum("0N1877LA"));
+        assertFalse(FleetFormats.isPlateNum(null));
+    }
+
+    @Test
+    void wrongLengthsAreRejected() {
+        for (String license : Arrays.asList("", "AB", "AB123456", "AB12345678", "ABC1234567")) {
+            assertFalse(FleetFormats.isLicenseNum(license), license);
+        }
+        for (String plate : Arrays.asList("", "01", "01N877L", "01N877LAA", "01454GT", "01454GTAA", "001454GTA")) {
+            assertFalse(FleetFormats.isPlateNum(plate), plate);
+        }
+    }
+
+    @Test
+    void onlyAsciiLettersAndDigitsAreAccepted() {
+        assertTrue(FleetFormats.isLicenseNum("AB1234567"));
+        //Cyrillic А and В, Arabic-Indic three, fullwidth digits and letters
+        for (String license : Arrays.asList("АВ1234567", "AB12٣4567", "AB１234567", "ＡB1234567", "ÀB1234567")) {
+            assertFalse(FleetFormats.isLicenseNum(license), license);
+        }
+        for (String plate : Arrays.asList("01Н877LA", "0١454GTA", "01454GТA", "０1454GTA", "01454GTÉ")) {
+            assertFalse(FleetFormats.isPlateNum(plate), plate);
+        }
+    }
+
+    @Test
+    void whitespaceAndLowerCaseAreNormalized() {
+        assertEquals("AB1234567", FleetFormats.normalize(" ab 1234567"));
+        assertEquals("01N877LA", FleetFormats.normalize("01n\t877 la\n"));
+        assertNull(FleetFormats.normalize(null));
+        //Nothing to change, nothing allocated
+        String normalized = "01454GTA";
+        assertSame(normalized, FleetFormats.normalize(normalized));
+        //Only latin letters are upper-cased, others stay and fail the format check
+        assertEquals("ÄB1234567", FleetFormats.normalize("Äb1234567"));
+        assertEquals("äB1234567", FleetFormats.normalize("äb1234567"));
+        assertFalse(FleetFormats.isLicenseNum(FleetFormats.normalize("äb1234567")));
+
+        Driver driver = new Driver("Driver", " ab 1234567", Category.CAR);
+        assertEquals("AB1234567", driver.getLicenseNum());
+        driver.setLicenseNum("cd7654321 ");
+        assertEquals("CD7654321", driver.getLicenseNum());
+        Vehicle vehicle = new Vehicle("01n 877la", Category.CAR);
+        assertEquals("01N877LA", vehicle.getPlateNum());
+        vehicle.setPlateNum(" 01454 gta");
+        assertEquals("01454GTA", vehicle.getPlateNum());
+    }
+
+    @Test
+    void categoryNameHasToMatchExactly() {
+        assertEquals(Category.CAR, FleetFormats.category("CAR"));
+        assertEquals(Category.TRAILER, FleetFormats.category(new StringBuilder("TRAILER")));
+        assertNull(FleetFormats.category("car"));
+        assertNull(FleetFormats.category("CAR "));
+        assertNull(FleetFormats.category(null));
+    }
+
+    @Test
+    void validatorsUseFormatsAfterNormalizing() {
+        assertTrue(validator.validate(new Driver("Driver", "ab 1234567", Category.CAR)).isEmpty());
+        assertTrue(validator.validate(new Driver("Driver", null, Category.CAR)).isEmpty());
+        Set<ConstraintViolation<Driver>> driverViolations = validator.validate(new Driver("Driver", "AB123456", Category.CAR));
+        assertEquals(1, driverViolations.size());
+        assertEquals(FleetFormats.LICENSE_NUM_MESSAGE, driverViolations.iterator().next().getMessage());
+
+        assertTrue(validator.validate(new Vehicle("01454 gta", Category.BUS)).isEmpty());
+        Set<ConstraintViolation<Vehicle>> vehicleViolations = validator.validate(new Vehicle("01454GT", Category.BUS));
+        assertEquals(1, vehicleViolations.size());
+        assertEquals(FleetFormats.PLATE_NUM_MESSAGE, vehicleViolations.iterator().next().getMessage());
+    }
+
+    /**
+     * Every single-character change, insertion and removal of valid values, plus random strings,
+     * has to get the same answer as the regular expressions the checks replaced.
+     */
+    @Test
+    void sameAnswersAsRegularExpressions() {
+        Set<String> licenses = variants(Arrays.asList("AB1234567", "ZZ0000000"));
+        Set<String> plates = variants(Arrays.asList("01N877LA", "01454GTA", "99Z999ZZ", "00000AAA"));
+        Random random = new Random(42);
+        for (int i = 0; i < 20000; i++) {
+            String candidate = randomString(random);
+            licenses.add(candidate);
+            plates.add(candidate);
+        }
+
+        int validLicenses = 0;
+        for (String license : licenses) {
+            boolean expected = LICENSE_NUM.matcher(license).matches();
+            assertEquals(expected, FleetFormats.isLicenseNum(license), license);
+            validLicenses += expected ? 1 : 0;
+        }
+        int validPlates = 0;
+        for (String plate : plates) {
+            boolean expected = PLATE_NUM.matcher(plate).matches();
+            assertEquals(expected, FleetFormats.isPlateNum(plate), plate);
+            validPlates += expected ? 1 : 0;
+        }
+        //Table has both answers, not only rejections
+        assertTrue(validLicenses > 10);
+        assertTrue(validPlates > 10);
+    }
+
+    private static Set<String> variants(List<String> values) {
+        Set<String> variants = new LinkedHashSet<>(values);
+        for (String value : values) {
+            for (int i = 0; i <= value.length(); i++) {
+                if (i < value.length()) {
+                    variants.add(value.substring(0, i) + value.substring(i + 1));
+                }
+                for (char c : ALPHABET.toCharArray()) {
+                    variants.add(value.substring(0, i) + c + value.substring(i));
+                    if (i < value.length()) {
+                        variants.add(value.substring(0, i) + c + value.substring(i + 1));
+                    }
+                }
+            }
+        }
+        return variants;
+    }
+
+    //Mostly 8 and 9 characters of letters and digits, so some of them are valid
+    private static String randomString(Random random) {
+        int length = 7 + random.nextInt(4);
+        StringBuilder s = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            int kind = random.nextInt(10);
+            if (kind < 4) {
+                s.append((char) ('A' + random.nextInt(26)));
+            } else if (kind < 9) {
+                s.append((char) ('0' + random.nextInt(10)));
+            } else {
+                s.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+            }
+        }
+        return s.toString();
+    }
+}
@@ -0,0 +1,163 @@
+package com.carpark.demo;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Files are cut into 64 byte chunks, so every file with more than a couple of lines
+ * is parsed in several chunks at once.
+ */
+@SpringBootTest(properties = {"carpark.import.chunk-bytes=64", "carpark.import.parallelism=4", "carpark.warmup.enabled=false"})
+@ActiveProfiles("embedded-postgres")
+class FleetImporterTests {
+
+    @Autowired private FleetImporter importer;
+    @Autowired private DriverRepository driverRepository;
+    @Autowired private VehicleRepository vehicleRepository;
+
+    @TempDir Path dir;
+
+    private Path file(String name, String content) throws IOException {
+        return Files.write(dir.resolve(name), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<String> rejected(ImportReport report) {
+        List<String> rejected = new ArrayList<>();
+        for (ImportReport.RejectedRow row : report.getRejected()) {
+            rejected.add(row.toString());
+        }
+        return rejected;
+    }
+
+    @Test
+    void headerIsSkippedOnlyOnFirstLine() throws IOException {
+        ImportReport report = importer.importDrivers(file("drivers.csv",
+                "Name,licenseNum,category\n"
+                        + "Header driver,HD0000001,CAR\n"
+                        + "name,licenseNum,category\n"));
+
+        assertEquals(3, report.getLines());
+        assertEquals(1, report.getImported());
+        assertEquals(1, report.getRejected().size());
+        assertEquals("line 3: " + FleetFormats.LICENSE_NUM_MESSAGE, rejected(report).get(0));
+
+        report = importer.importVehicles(file("vehicles.csv",
+                "plateNum,category,licenseNum\n01101HDR,CAR,HD0000001\n"));
+        assertEquals(1, report.getImported());
+        assertTrue(report.getRejected().isEmpty());
+        assertEquals("HD0000001", vehicleRepository.findByPlateNum("01101HDR").get().getDriver().getLicenseNum());
+    }
+
+    @Test
+    void lineNumbersCountAcrossChunks() throws IOException {
+        StringBuilder content = new StringBuilder("name,licenseNum,category\r\n");
+        List<String> expected = new ArrayList<>();
+        for (int i = 2; i <= 60; i++) {
+            if (i % 7 == 0) {
+                content.append("Chunk driver ").append(i).append(",LN").append(String.format("%07d", i)).append(",PLANE\r\n");
+                expected.add("line " + i + ": Unknown category");
+            } else if (i % 11 == 0) {
+                //Empty lines are counted but not reported
+                content.append("\r\n");
+            } else {
+                content.append("Chunk driver ").append(i).append(",LN").append(String.format("%07d", i)).append(",TRUCK\r\n");
+            }
+        }
+        //Last line without line break
+        content.append("Chunk driver 61,LN0000061");
+        expected.add("line 61: Expected 3 fields");
+
+        ImportReport report = importer.importDrivers(file("chunks.csv", content.toString()));
+        assertTrue(content.length() > 64 * 10);
+        assertEquals(61, report.getLines());
+        assertEquals(expected, rejected(report));
+        assertEquals(59 - 8 - 5, report.getImported());
+        assertEquals(Category.TRUCK, driverRepository.findByLicenseNum("LN0000060").get().getCategory());
+        assertFalse(driverRepository.findByLicenseNum("LN0000014").isPresent());
+    }
+
+    @Test
+    void driverRowsAreRejectedWithReasons() throws IOException {
+        ImportReport report = importer.importDrivers(file("drivers.csv",
+                "Too few,RD0000001\n"
+                        + "Too many,RD0000002,CAR,extra\n"
+                        + "Bad license,R10000003,CAR\n"
+                        + "Cyrillic,РD0000004,CAR\n"
+                        + "Lower category,RD0000005,car\n"
+                        + "First,RD0000006,BUS\n"
+                        + "Second,rd 0000006,BUS\n"
+                        + "Seed driver copy,AD9948454,MOTORCYCLE\n"
+                        + "Valid,RD0000009,BUS\n"));
+
+        assertEquals(9, report.getLines());
+        assertEquals(2, report.getImported());
+        List<String> expected = new ArrayList<>();
+        expected.add("line 1: Expected 3 fields");
+        expected.add("line 2: Expected 3 fields");
+        expected.add("line 3: " + FleetFormats.LICENSE_NUM_MESSAGE);
+        expected.add("line 4: " + FleetFormats.LICENSE_NUM_MESSAGE);
+        expected.add("line 5: Unknown category");
+        expected.add("line 7: Same licence number appears earlier in file");
+        expected.add("line 8: There is a driver with same Licence number");
+        assertEquals(expected, rejected(report));
+        assertEquals("First", driverRepository.findByLicenseNum("RD0000006").get().getName());
+    }
+
+    @Test
+    void vehicleRowsAreRejectedWithReasons() throws IOException {
+        Driver busDriver = driverRepository.save(new Driver("Bus driver", "RV0000001", Category.BUS));
+
+        ImportReport report = importer.importVehicles(file("vehicles.csv",
+                "01N87LA,CAR,\n"
+                        + "02202RVX,PLANE,\n"
+                        + "03303RVX,BUS,RV000001\n"
+                        + "04404RVX,BUS,RV0000099\n"
+                        + "05505RVX,CAR,RV0000001\n"
+                        + "06606RVX,BUS,RV0000001\n"
+                        + "06606rvx,BUS,\n"
+                        + "01454GTA,BUS,\n"
+                        + "07707RVX,TRUCK,\n"));
+
+        assertEquals(2, report.getImported());
+        List<String> expected = new ArrayList<>();
+        expected.add("line 1: " + FleetFormats.PLATE_NUM_MESSAGE);
+        expected.add("line 2: Unknown category");
+        expected.add("line 3: " + FleetFormats.LICENSE_NUM_MESSAGE);
+        expected.add("line 4: There is no such driver");
+        expected.add("line 5: Driver not allowed to drive this vehicle");
+        expected.add("line 7: Same plate number appears earlier in file");
+        expected.add("line 8: There is a car with same Plate number");
+        assertEquals(expected, rejected(report));
+        assertEquals(busDriver.getId(), vehicleRepository.findByPlateNum("06606RVX").get().getDriver().getId());
+        assertNull(vehicleRepository.findByPlateNum("07707RVX").get().getDriver());
+    }
+
+    @Test
+    void numbersAreNormalized() throws IOException {
+        ImportReport report = importer.importDrivers(file("drivers.csv",
+                " Spaced name , nz 0000001 ,CAR\n"));
+        assertEquals(1, report.getImported());
+        Driver driver = driverRepository.findByLicenseNum("NZ0000001").get();
+        //Names are trimmed, but kept as written otherwise
+        assertEquals("Spaced name", driver.getName());
+
+        report = importer.importVehicles(file("vehicles.csv",
+                "01n 877nz,CAR,nz0000001\n"
+                        + " 02202 nzx ,CAR,\n"));
+        assertEquals(2, report.getImported());
+        assertEquals(driver.getId(), vehicleRepository.findByPlateNum("01N877NZ").get().getDriver().getId());
+        assertTrue(vehicleRepository.findByPlateNum("02202NZX").isPresent());
+    }
+}
@@ -0,0 +1,109 @@
+package com.carpark.demo;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Hand-written serializers and cached error bodies have to give exactly the bytes
+ * the default serialization gives.
+ */
+class FleetJsonSerializersTests {
+    //Quotes, backslash, line break, control character, non-ASCII and a surrogate pair
+    private static final String ESCAPED_NAME = "Ali \"Tank\" \\ Karimov\n\u0001 Ўзбек 🚗";
+
+    private final ObjectMapper defaultMapper = new ObjectMapper();
+    private final ObjectMapper customMapper = new ObjectMapper().registerModule(new SimpleModule()
+            .addSerializer(Driver.class, new FleetJsonSerializers.DriverSerializer())
+            .addSerializer(Vehicle.class, new FleetJsonSerializers.VehicleSerializer()));
+
+    private static Driver driver(Long id, String name, String licenseNum, Category category) {
+        Driver driver = new Driver(name, licenseNum, category);
+        driver.setId(id);
+        return driver;
+    }
+
+    private static Vehicle vehicle(Long id, String plateNum, Category category, Driver driver) {
+        Vehicle vehicle = new Vehicle(plateNum, category, driver);
+        vehicle.setId(id);
+        return vehicle;
+    }
+
+    private void assertSameJson(Object value) throws JsonProcessingException {
+        assertEquals(defaultMapper.writeValueAsString(value), customMapper.writeValueAsString(value));
+    }
+
+    @Test
+    void customSerializersAreUsed() throws JsonProcessingException {
+        assertTrue(customMapper.getSerializerProviderInstance().findValueSerializer(Driver.class)
+                instanceof FleetJsonSerializers.DriverSerializer);
+        assertTrue(customMapper.getSerializerProviderInstance().findValueSerializer(Vehicle.class)
+                instanceof FleetJsonSerializers.VehicleSerializer);
+    }
+
+    @Test
+    void driversAreSerializedAsByDefault() throws JsonProcessingException {
+        for (Category category : Category.values()) {
+            assertSameJson(driver(3L, "Ilkhom", "BC2954748", category));
+        }
+        assertSameJson(driver(Long.MAX_VALUE, ESCAPED_NAME, "AB1234567", Category.CAR));
+        //Not saved yet, or fields not set
+        assertSameJson(driver(null, null, null, null));
+        assertSameJson(Arrays.asList(driver(1L, "Artur", "AD9948454", Category.MOTORCYCLE), null));
+    }
+
+    @Test
+    void vehiclesAreSerializedAsByDefault() throws JsonProcessingException {
+        Driver driver = driver(3L, ESCAPED_NAME, "BC2954748", Category.CAR);
+        assertSameJson(vehicle(1L, "01N877LA", Category.CAR, driver));
+        assertSameJson(vehicle(2L, "01454GTA", Category.BUS, null));
+        assertSameJson(vehicle(null, null, null, null));
+
+        List<Vehicle> vehicles = Arrays.asList(vehicle(1L, "01N877LA", Category.CAR, driver),
+                vehicle(2L, "01454GTA", Category.BUS, null));
+        assertSameJson(vehicles);
+        assertEquals("{\"id\":2,\"plateNum\":\"01454GTA\",\"category\":\"BUS\",\"driver\":null}",
+                customMapper.writeValueAsString(vehicles.get(1)));
+    }
+
+    @Test
+    void cachedErrorBodiesAreSameAsFresh() throws JsonProcessingException {
+        ErrorResponses errorResponses = new ErrorResponses(defaultMapper);
+        for (String description : Arrays.asList("No such vehicle", ESCAPED_NAME, "", null)) {
+            byte[] fresh = defaultMapper.writeValueAsBytes(new CustomResponse(false, description));
+            byte[] first = errorResponses.body(false, description);
+            assertArrayEquals(fresh, first);
+            assertArrayEquals(fresh, errorResponses.body(false, description));
+        }
+        //Failures are encoded once, successes every time
+        assertSame(errorResponses.body(false, "No such vehicle"), errorResponses.body(false, "No such vehicle"));
+        assertNotSame(errorResponses.body(true, "Done"), errorResponses.body(true, "Done"));
+        assertArrayEquals(defaultMapper.writeValueAsBytes(new CustomResponse(true, "Done")),
+                errorResponses.body(true, "Done"));
+
+        ResponseEntity<Object> response = errorResponses.response(false, "No such driver", HttpStatus.BAD_REQUEST);
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertEquals(MediaType.APPLICATION_JSON, response.getHeaders().getContentType());
+        assertArrayEquals(defaultMapper.writeValueAsBytes(new CustomResponse(false, "No such driver")),
+                (byte[]) response.getBody());
+    }
+
+    @Test
+    void bodiesPastCacheLimitAreStillCorrect() throws JsonProcessingException {
+        ErrorResponses errorResponses = new ErrorResponses(defaultMapper);
+        for (int i = 0; i < 1000; i++) {
+            String description = "Unknown field " + i;
+            assertArrayEquals(defaultMapper.writeValueAsBytes(new CustomResponse(false, description)),
+                    errorResponses.body(false, description));
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.carpark.demo;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+@SpringBootTest(properties = {"carpark.memory.data-dir=target/memory-multi-get-endpoint-test", "carpark.warmup.enabled=false"})
+@AutoConfigureMockMvc
+@ActiveProfiles("memory")
+class InMemoryMultiGetEndpointTests extends MultiGetEndpointTests {
+
+    @BeforeAll
+    static void cleanDataDir() throws IOException {
+        FileSystemUtils.deleteRecursively(Paths.get("target/memory-multi-get-endpoint-test"));
+    }
+}
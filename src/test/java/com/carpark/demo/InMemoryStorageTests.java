@@ -0,0 +1,79 @@
+package com.carpark.demo;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {"carpark.memory.data-dir=target/memory-storage-test", "carpark.warmup.enabled=false"})
+@AutoConfigureMockMvc
+@ActiveProfiles("memory")
+class InMemoryStorageTests extends StorageTests {
+
+    @BeforeAll
+    static void cleanDataDir() throws IOException {
+        FileSystemUtils.deleteRecursively(Paths.get("target/memory-storage-test"));
+    }
+
+    @Test
+    void changesSurviveRestart(@TempDir Path dir) throws IOException {
+        InMemoryStore store = new InMemoryStore(dir.toString(), false);
+        Driver driver = store.saveDriver(new Driver("Truck driver", "TR1234567", Category.TRUCK));
+        store.saveVehicle(new Vehicle("01T123TR", Category.TRUCK, driver));
+        store.snapshot();
+        store.saveVehicle(new Vehicle("02345TRK", Category.TRUCK));
+        store.close();
+
+        InMemoryStore reopened = new InMemoryStore(dir.toString(), false);
+        assertEquals(1, reopened.countDrivers());
+        assertEquals(2, reopened.countVehicles());
+        assertEquals(driver.getId(), reopened.findVehicleByPlateNum("01T123TR").get().getDriver().getId());
+        assertEquals(1, reopened.findVehiclesByDriverId(null).size());
+        reopened.close();
+    }
+
+    @Test
+    void bulkDeleteSurvivesRestart(@TempDir Path dir) throws IOException {
+        InMemoryStore store = new InMemoryStore(dir.toString(), false);
+        Driver driver = store.saveDriver(new Driver("Bus driver", "BU1234567", Category.BUS));
+        Vehicle assigned = store.saveVehicle(new Vehicle("01B123BU", Category.BUS, driver));
+        Vehicle spare = store.saveVehicle(new Vehicle("02345BUS", Category.BUS));
+
+        BulkDeletion drivers = store.deleteDrivers(Arrays.asList(driver.getId(), 999L), null, false);
+        assertEquals(Collections.singletonList(driver.getId()), drivers.getDeleted());
+        assertEquals(driver.getId(), drivers.getUnassigned().get(assigned.getId()));
+        BulkDeletion vehicles = store.deleteVehicles(null, Category.BUS, true);
+        assertEquals(2, vehicles.getDeleted().size());
+        //Not closed, as after a crash: restart has to replay batch records of the log, there is no snapshot
+
+        InMemoryStore reopened = new InMemoryStore(dir.toString(), false);
+        assertEquals(0, reopened.countDrivers());
+        assertFalse(reopened.findVehicle(spare.getId()).isPresent());
+        assertFalse(reopened.findVehicle(assigned.getId()).isPresent());
+        reopened.close();
+    }
+
+    @Test
+    void filterDeleteTakesAtMostMaxIds(@TempDir Path dir) throws IOException {
+        InMemoryStore store = new InMemoryStore(dir.toString(), false);
+        for (int i = 0; i < BulkDeleteRepository.MAX_IDS + 5; i++) {
+            store.saveVehicle(new Vehicle(String.format("%05d", i % 100000) + (i < 100000 ? "LMA" : "LMB"), Category.TRAILER));
+        }
+
+        assertEquals(BulkDeleteRepository.MAX_IDS, store.deleteVehicles(null, Category.TRAILER, true).getDeleted().size());
+        assertEquals(5, store.deleteVehicles(null, Category.TRAILER, true).getDeleted().size());
+        assertEquals(0, store.countVehicles());
+        store.close();
+    }
+}
@@ -0,0 +1,54 @@
+package com.carpark.demo;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TimeZone;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "carpark.warmup.enabled=false")
+@ActiveProfiles("embedded-postgres")
+class JdbcAssignmentHistoryTests {
+    private static final Instant BEFORE_MIDNIGHT = Instant.parse("2020-10-12T23:59:59.500Z");
+    private static final Instant AFTER_MIDNIGHT = Instant.parse("2020-10-13T00:00:00.250Z");
+
+    @Autowired private JdbcAssignmentHistory history;
+    @Autowired private JdbcTemplate jdbcTemplate;
+
+    //Written by an instance in one time zone, read by an instance in another
+    @Test
+    void instantsDoNotDependOnJvmTimeZone() {
+        TimeZone zone = TimeZone.getDefault();
+        try {
+            TimeZone.setDefault(TimeZone.getTimeZone("Asia/Tashkent"));
+            history.append(Arrays.asList(
+                    new AssignmentEvent(9001, 2L, null, BEFORE_MIDNIGHT),
+                    new AssignmentEvent(9001, null, 2L, AFTER_MIDNIGHT)));
+            TimeZone.setDefault(TimeZone.getTimeZone("America/New_York"));
+
+            List<AssignmentEvent> events = history.byVehicle(9001, BEFORE_MIDNIGHT, AFTER_MIDNIGHT.plusMillis(1));
+            assertEquals(2, events.size());
+            assertEquals(BEFORE_MIDNIGHT, events.get(0).getChangedAt());
+            assertEquals(AFTER_MIDNIGHT, events.get(1).getChangedAt());
+            //Range starts a millisecond after the first event
+            assertEquals(1, history.byDriver(2, BEFORE_MIDNIGHT.plusMillis(1), AFTER_MIDNIGHT.plusMillis(1)).size());
+        } finally {
+            TimeZone.setDefault(zone);
+        }
+
+        //Each event is in the partition of its UTC day, stored as the same instant
+        assertEquals(Integer.valueOf(1), jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM assignment_history_20201012 WHERE changed_at = TIMESTAMPTZ '2020-10-12 23:59:59.5+00'",
+                Integer.class));
+        assertEquals(Integer.valueOf(1), jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM assignment_history_20201013 WHERE changed_at = TIMESTAMPTZ '2020-10-13 00:00:00.25+00'",
+                Integer.class));
+    }
+}
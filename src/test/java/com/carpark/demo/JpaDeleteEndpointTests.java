@@ -0,0 +1,11 @@
+package com.carpark.demo;
+
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+@SpringBootTest(properties = "carpark.warmup.enabled=false")
+@AutoConfigureMockMvc
+@ActiveProfiles("embedded-postgres")
+class JpaDeleteEndpointTests extends DeleteEndpointTests {
+}
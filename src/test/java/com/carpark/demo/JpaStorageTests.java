@@ -0,0 +1,40 @@
+package com.carpark.demo;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {"carpark.warmup.enabled=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=warn"})
+@AutoConfigureMockMvc
+@ActiveProfiles("embedded-postgres")
+class JpaStorageTests extends StorageTests {
+
+    @Autowired private EntityManagerFactory entityManagerFactory;
+
+    //Executed queries are listed by statistics as JPQL
+    @Test
+    void driverIsJoinedOnlyWhenRequested() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        statistics.clear();
+        projectionRepository.allVehicles(Arrays.asList("id", "plateNum", "category"));
+        assertEquals(1, statistics.getQueries().length);
+        assertFalse(statistics.getQueries()[0].contains("JOIN"), statistics.getQueries()[0]);
+
+        statistics.clear();
+        projectionRepository.allVehicles(Arrays.asList("id", "driver"));
+        assertEquals(1, statistics.getQueries().length);
+        assertTrue(statistics.getQueries()[0].contains("LEFT JOIN v.driver d"), statistics.getQueries()[0]);
+    }
+}
@@ -0,0 +1,93 @@
+package com.carpark.demo;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one response body: reflective Jackson serialization of Driver, Vehicle and
+ * a new CustomResponse per error as before, against FleetJsonSerializers and
+ * pre-encoded ErrorResponses bodies. Run with the gc profiler to see allocation per request
+ * (gc.alloc.rate.norm, bytes per operation) next to the time per request:
+ *
+ * mvn test -Pbenchmark -Djmh.args="JsonResponsesBenchmark -prof gc"
+ *
+ * Bodies are written to a reused stream, as they are written to the response output.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class JsonResponsesBenchmark {
+    private static final String NO_SUCH_VEHICLE = "No such vehicle";
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream(1024);
+    private ObjectMapper reflectiveMapper;
+    private ObjectMapper handWrittenMapper;
+    private ErrorResponses errorResponses;
+    private Driver driver;
+    private Vehicle vehicle;
+
+    @Setup
+    public void setUp() {
+        reflectiveMapper = new ObjectMapper();
+        handWrittenMapper = new ObjectMapper().registerModule(new SimpleModule()
+                .addSerializer(Driver.class, new FleetJsonSerializers.DriverSerializer())
+                .addSerializer(Vehicle.class, new FleetJsonSerializers.VehicleSerializer()));
+        errorResponses = new ErrorResponses(handWrittenMapper);
+
+        driver = new Driver("Benchmark driver", "AB1234567", Category.CAR);
+        driver.setId(42L);
+        vehicle = new Vehicle("01454GTA", Category.CAR, driver);
+        vehicle.setId(7L);
+    }
+
+    @Benchmark
+    public int reflectiveVehicle() throws IOException {
+        out.reset();
+        reflectiveMapper.writeValue(out, vehicle);
+        return out.size();
+    }
+
+    @Benchmark
+    public int handWrittenVehicle() throws IOException {
+        out.reset();
+        handWrittenMapper.writeValue(out, vehicle);
+        return out.size();
+    }
+
+    @Benchmark
+    public int reflectiveDriver() throws IOException {
+        out.reset();
+        reflectiveMapper.writeValue(out, driver);
+        return out.size();
+    }
+
+    @Benchmark
+    public int handWrittenDriver() throws IOException {
+        out.reset();
+        handWrittenMapper.writeValue(out, driver);
+        return out.size();
+    }
+
+    //generateCustomResponse before ErrorResponses
+    @Benchmark
+    public int newCustomResponse() throws IOException {
+        out.reset();
+        reflectiveMapper.writeValue(out, new CustomResponse(false, NO_SUCH_VEHICLE));
+        return out.size();
+    }
+
+    @Benchmark
+    public int preEncodedResponse() throws IOException {
+        out.reset();
+        out.write(errorResponses.body(false, NO_SUCH_VEHICLE));
+        return out.size();
+    }
+}
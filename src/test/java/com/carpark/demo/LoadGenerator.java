@@ -0,0 +1,210 @@
+package com.carpark.demo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * HTTP load against a running application.
+ *
+ * Load is an open model: requests are started at their arrival times whether or not earlier
+ * ones have finished, as real clients do, and latency is counted from the arrival time, so
+ * a stalled server shows up as latency instead of as fewer requests (no coordinated omission).
+ * Arrivals are either Poisson at a fixed rate or the start times of an access log recorded
+ * by AccessLogRecorder.
+ */
+class LoadGenerator {
+    static class Request {
+        //Name in report, e.g. "GET /drivers/{id}"
+        final String endpoint;
+        final String method;
+        final String path;
+        final String body;
+
+        Request(String endpoint, String method, String path, String body) {
+            this.endpoint = endpoint;
+            this.method = method;
+            this.path = path;
+            this.body = body;
+        }
+    }
+
+    static class Response {
+        //0 if the request failed without response
+        final int status;
+        final String body;
+
+        Response(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+
+    static class Recorded {
+        final long startedMillis;
+        //Status of the response when recorded
+        final int status;
+        final Request request;
+
+        Recorded(long startedMillis, int status, Request request) {
+            this.startedMillis = startedMillis;
+            this.status = status;
+            this.request = request;
+        }
+    }
+
+    private final String baseUrl;
+    private final int maxConcurrency;
+
+    LoadGenerator(String baseUrl, int maxConcurrency) {
+        this.baseUrl = baseUrl;
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    /**
+     * Start requests from mix with Poisson arrivals at ratePerSecond for durationSeconds
+     */
+    LoadReport runOpen(Supplier<Request> mix, double ratePerSecond, double durationSeconds) throws InterruptedException {
+        Random random = new Random();
+        List<Long> offsets = new ArrayList<>();
+        List<Request> requests = new ArrayList<>();
+        double offset = 0;
+        while (offset < durationSeconds) {
+            offsets.add((long) (offset * 1e9));
+            requests.add(mix.get());
+            offset += -Math.log(1 - random.nextDouble()) / ratePerSecond;
+        }
+        return run(offsets, requests);
+    }
+
+    /**
+     * Requests of access log recorded by AccessLogRecorder, in order of start time
+     */
+    static List<Recorded> readAccessLog(Path accessLog) throws IOException {
+        List<Recorded> log = new ArrayList<>();
+        for (String line : Files.readAllLines(accessLog, StandardCharsets.UTF_8)) {
+            String[] columns = line.split("\t", 6);
+            if (columns.length < 4) {
+                continue;
+            }
+            String body = columns.length == 6 && !columns[5].isEmpty() ? columns[5] : null;
+            log.add(new Recorded(Long.parseLong(columns[0]), Integer.parseInt(columns[3]),
+                    new Request(endpoint(columns[1], columns[2]), columns[1], columns[2], body)));
+        }
+        //Lines are written as requests complete
+        log.sort(Comparator.comparingLong(recorded -> recorded.startedMillis));
+        return log;
+    }
+
+    /**
+     * Start requests of access log at recorded times, speed 2 replays twice as fast
+     */
+    LoadReport replay(List<Recorded> log, double speed) throws InterruptedException {
+        List<Long> offsets = new ArrayList<>();
+        List<Request> requests = new ArrayList<>();
+        int clientErrors = 0;
+        for (Recorded recorded : log) {
+            offsets.add((long) ((recorded.startedMillis - log.get(0).startedMillis) * 1e6 / speed));
+            requests.add(recorded.request);
+            if (recorded.status >= 400 && recorded.status < 500) {
+                clientErrors++;
+            }
+        }
+        LoadReport report = run(offsets, requests);
+        report.setRecorded(log.size(), clientErrors);
+        return report;
+    }
+
+    //Numeric path segments become {id}, so requests for different ids are one endpoint
+    static String endpoint(String method, String uri) {
+        int query = uri.indexOf('?');
+        String path = query >= 0 ? uri.substring(0, query) : uri;
+        String name = method + " " + path.replaceAll("/\\d+(?=/|$)", "/{id}");
+        if (query >= 0 && uri.indexOf("ids=", query) >= 0) {
+            name += "?ids";
+        }
+        return name;
+    }
+
+    private LoadReport run(List<Long> offsets, List<Request> requests) throws InterruptedException {
+        LoadReport report = new LoadReport();
+        ThreadPoolExecutor workers = new ThreadPoolExecutor(0, maxConcurrency,
+                30, TimeUnit.SECONDS, new SynchronousQueue<>());
+
+        long start = System.nanoTime();
+        for (int i = 0; i < requests.size(); i++) {
+            long arrival = start + offsets.get(i);
+            long wait;
+            while ((wait = arrival - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+
+            Request request = requests.get(i);
+            try {
+                workers.execute(() -> {
+                    Response response = send(request);
+                    report.record(request.endpoint, System.nanoTime() - arrival, response.status);
+                });
+            } catch (RejectedExecutionException e) {
+                //Client itself can not keep up, counted as failed request
+                report.record(request.endpoint, System.nanoTime() - arrival, 0);
+            }
+        }
+
+        workers.shutdown();
+        workers.awaitTermination(5, TimeUnit.MINUTES);
+        report.setDurationNanos(System.nanoTime() - start);
+        return report;
+    }
+
+    Response send(Request request) {
+        try {
+            HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + request.path).openConnection();
+            connection.setRequestMethod(request.method);
+            connection.setConnectTimeout(5000);
+            connection.setReadTimeout(30000);
+            if (request.body != null) {
+                connection.setDoOutput(true);
+                connection.setRequestProperty("Content-Type", "application/json");
+                try (OutputStream out = connection.getOutputStream()) {
+                    out.write(request.body.getBytes(StandardCharsets.UTF_8));
+                }
+            }
+
+            int status = connection.getResponseCode();
+            //Body is read to the end, so the connection goes back to keep-alive pool
+            InputStream in = status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+            String body = "";
+            if (in != null) {
+                try (InputStream stream = in) {
+                    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                    byte[] buffer = new byte[8192];
+                    int read;
+                    while ((read = stream.read(buffer)) > 0) {
+                        bytes.write(buffer, 0, read);
+                    }
+                    body = new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+                }
+            }
+            return new Response(status, body);
+        } catch (IOException e) {
+            return new Response(0, e.toString());
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.carpark.demo;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Latencies and outcomes per endpoint collected by LoadGenerator
+ */
+class LoadReport {
+    private final Map<String, Endpoint> endpoints = new TreeMap<>();
+    private long durationNanos;
+    //Requests of replayed access log and how many were answered with 4xx when recorded, 0 if not a replay
+    private int recordedCount;
+    private int recordedClientErrors;
+
+    synchronized void record(String endpoint, long latencyNanos, int status) {
+        endpoints.computeIfAbsent(endpoint, e -> new Endpoint()).record(latencyNanos, status);
+    }
+
+    synchronized void setDurationNanos(long durationNanos) {
+        this.durationNanos = durationNanos;
+    }
+
+    synchronized void setRecorded(int count, int clientErrors) {
+        this.recordedCount = count;
+        this.recordedClientErrors = clientErrors;
+    }
+
+    synchronized Map<String, Endpoint> getEndpoints() {
+        return endpoints;
+    }
+
+    /**
+     * Endpoints breaking p99 latency or error rate threshold, empty when SLO is met.
+     * A replay also breaks it under "replay" when its share of 4xx is above the recorded one
+     * by more than max4xxIncrease: requests did not find the data they found when recorded,
+     * so latencies are those of cheap 400 responses.
+     */
+    synchronized Map<String, String> violations(double p99Millis, double maxErrorRate, double max4xxIncrease) {
+        Map<String, String> violations = new TreeMap<>();
+        for (Map.Entry<String, Endpoint> entry : endpoints.entrySet()) {
+            Endpoint endpoint = entry.getValue();
+            double p99 = endpoint.percentileMillis(0.99);
+            if (p99 > p99Millis) {
+                violations.put(entry.getKey(), String.format("p99 %.1f ms > %.1f ms", p99, p99Millis));
+            } else if (endpoint.errorRate() > maxErrorRate) {
+                violations.put(entry.getKey(), String.format("error rate %.4f > %.4f", endpoint.errorRate(), maxErrorRate));
+            }
+        }
+        if (recordedCount > 0 && clientErrorRate() - recordedClientErrorRate() > max4xxIncrease) {
+            violations.put("replay", String.format("4xx rate %.4f, recorded %.4f", clientErrorRate(), recordedClientErrorRate()));
+        }
+        return violations;
+    }
+
+    private double clientErrorRate() {
+        int count = 0;
+        int clientErrors = 0;
+        for (Endpoint endpoint : endpoints.values()) {
+            count += endpoint.count;
+            clientErrors += endpoint.clientErrors;
+        }
+        return count > 0 ? (double) clientErrors / count : 0;
+    }
+
+    private double recordedClientErrorRate() {
+        return recordedCount > 0 ? (double) recordedClientErrors / recordedCount : 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        double seconds = durationNanos / 1e9;
+        StringBuilder report = new StringBuilder(String.format("%-36s %8s %9s %9s %9s %9s %7s %7s %7s%n",
+                "endpoint", "requests", "req/s", "p50 ms", "p99 ms", "p999 ms", "4xx", "errors", "shed"));
+        for (Map.Entry<String, Endpoint> entry : endpoints.entrySet()) {
+            Endpoint e = entry.getValue();
+            report.append(String.format("%-36s %8d %9.1f %9.2f %9.2f %9.2f %7d %7d %7d%n",
+                    entry.getKey(), e.count, seconds > 0 ? e.count / seconds : 0,
+                    e.percentileMillis(0.5), e.percentileMillis(0.99), e.percentileMillis(0.999),
+                    e.clientErrors, e.errors, e.shed));
+        }
+        if (recordedCount > 0) {
+            report.append(String.format("4xx rate %.4f, recorded %.4f%n", clientErrorRate(), recordedClientErrorRate()));
+        }
+        return report.toString();
+    }
+
+    static class Endpoint {
+        private long[] latencies = new long[1024];
+        private int count;
+        private int clientErrors;
+        //5xx, including shed, and failed connections (status 0)
+        private int errors;
+        //503 from load shedding
+        private int shed;
+        private boolean sorted;
+
+        private void record(long latencyNanos, int status) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = latencyNanos;
+            sorted = false;
+            if (status >= 400 && status < 500) {
+                clientErrors++;
+            } else if (status >= 500 || status == 0) {
+                errors++;
+                if (status == 503) {
+                    shed++;
+                }
+            }
+        }
+
+        double percentileMillis(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            if (!sorted) {
+                Arrays.sort(latencies, 0, count);
+                sorted = true;
+            }
+            int index = (int) Math.ceil(percentile * count) - 1;
+            return latencies[Math.max(0, Math.min(count - 1, index))] / 1e6;
+        }
+
+        double errorRate() {
+            return count > 0 ? (double) errors / count : 0;
+        }
+
+        int getCount() {
+            return count;
+        }
+    }
+}
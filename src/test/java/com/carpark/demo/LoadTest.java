@@ -0,0 +1,186 @@
+package com.carpark.demo;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ActiveProfilesResolver;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Load test of the whole application. Excluded from normal builds, run with
+ *
+ * mvn test -Pload-test -Dload.rate=500 -Dload.duration=60
+ *
+ * System properties:
+ * load.storage         – "jpa" (default) runs on PostgreSQL started by the test (see EmbeddedPostgresConfiguration),
+ *                        "memory" on in-memory storage
+ * load.rate            – arrivals per second (Poisson), default 200
+ * load.duration        – seconds, default 30
+ * load.mix             – weights of operations, default "dispatch=40,read=25,assign=15,onboard=10,scan=10"
+ *                        dispatch – GET /vehicles/no-driver, read – GET /drivers/{id},
+ *                        assign – POST or DELETE /vehicles/{id}/driver, onboard – POST /drivers,
+ *                        scan – GET /drivers or GET /vehicles
+ * load.replay          – access log recorded with carpark.access-log.path, replayed instead of the mix
+ *                        after drivers and vehicles it refers to are created (see ReplaySeed)
+ * load.replay.speed    – replay speed factor, default 1
+ * load.replay.max-4xx-increase – how much the share of 4xx of a replay may exceed the recorded share, default 0.01
+ * load.max-concurrency – most requests in flight from the client, default 1000
+ * load.slo.p99-ms      – p99 latency every endpoint has to meet, default 100
+ * load.slo.error-rate  – share of 5xx and failed requests every endpoint has to stay under, default 0.01
+ *
+ * Report with throughput, p50/p99/p999 and errors per endpoint is printed, test fails if SLO is not met.
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"carpark.memory.data-dir=target/load-test", "spring.jpa.show-sql=false"})
+@ActiveProfiles(resolver = LoadTest.Storage.class)
+class LoadTest {
+    static class Storage implements ActiveProfilesResolver {
+        @Override
+        public String[] resolve(Class<?> testClass) {
+            String storage = System.getProperty("load.storage", "jpa");
+            switch (storage) {
+                case "jpa":
+                    return new String[]{"embedded-postgres"};
+                case "memory":
+                    return new String[]{"memory"};
+                default:
+                    throw new IllegalArgumentException("load.storage should be jpa or memory, not " + storage);
+            }
+        }
+    }
+
+    private static final int DRIVERS = 200;
+    private static final int VEHICLES = 200;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicInteger licenses = new AtomicInteger();
+
+    @LocalServerPort private int port;
+
+    @BeforeAll
+    static void cleanDataDir() throws IOException {
+        FileSystemUtils.deleteRecursively(Paths.get("target/load-test"));
+    }
+
+    @Test
+    void meetsSlo() throws Exception {
+        LoadGenerator generator = new LoadGenerator("http://localhost:" + port,
+                Integer.getInteger("load.max-concurrency", 1000));
+
+        LoadReport report;
+        String replay = System.getProperty("load.replay");
+        if (replay != null) {
+            List<LoadGenerator.Recorded> log = new ReplaySeed(generator, objectMapper)
+                    .seed(LoadGenerator.readAccessLog(Paths.get(replay)));
+            report = generator.replay(log, Double.parseDouble(System.getProperty("load.replay.speed", "1")));
+        } else {
+            report = generator.runOpen(mix(generator),
+                    Double.parseDouble(System.getProperty("load.rate", "200")),
+                    Double.parseDouble(System.getProperty("load.duration", "30")));
+        }
+
+        double p99Millis = Double.parseDouble(System.getProperty("load.slo.p99-ms", "100"));
+        double errorRate = Double.parseDouble(System.getProperty("load.slo.error-rate", "0.01"));
+        double max4xxIncrease = Double.parseDouble(System.getProperty("load.replay.max-4xx-increase", "0.01"));
+        Map<String, String> violations = report.violations(p99Millis, errorRate, max4xxIncrease);
+        System.out.println(report);
+        System.out.println(violations.isEmpty() ? "SLO PASS" : "SLO FAIL " + violations);
+        assertTrue(violations.isEmpty(), "SLO violated: " + violations);
+    }
+
+    private Supplier<LoadGenerator.Request> mix(LoadGenerator generator) throws IOException {
+        List<Long> driverIds = new ArrayList<>();
+        for (int i = 0; i < DRIVERS; i++) {
+            driverIds.add(id(generator.send(onboard())));
+        }
+        List<Long> vehicleIds = new ArrayList<>();
+        for (int i = 0; i < VEHICLES; i++) {
+            String body = "{\"plateNum\":\"" + String.format("%05dLDT", i) + "\",\"category\":\"CAR\"}";
+            vehicleIds.add(id(generator.send(new LoadGenerator.Request("setup", "POST", "/vehicles", body))));
+        }
+
+        Map<String, Integer> weights = weights(System.getProperty("load.mix",
+                "dispatch=40,read=25,assign=15,onboard=10,scan=10"));
+        int total = 0;
+        for (int weight : weights.values()) {
+            total += weight;
+        }
+        int totalWeight = total;
+
+        return () -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int pick = random.nextInt(totalWeight);
+            String operation = null;
+            for (Map.Entry<String, Integer> weight : weights.entrySet()) {
+                operation = weight.getKey();
+                pick -= weight.getValue();
+                if (pick < 0) {
+                    break;
+                }
+            }
+
+            long vehicleId = vehicleIds.get(random.nextInt(vehicleIds.size()));
+            long driverId = driverIds.get(random.nextInt(driverIds.size()));
+            switch (operation) {
+                case "dispatch":
+                    return new LoadGenerator.Request("GET /vehicles/no-driver", "GET", "/vehicles/no-driver", null);
+                case "read":
+                    return new LoadGenerator.Request("GET /drivers/{id}", "GET", "/drivers/" + driverId, null);
+                case "assign":
+                    if (random.nextBoolean()) {
+                        return new LoadGenerator.Request("POST /vehicles/{id}/driver", "POST",
+                                "/vehicles/" + vehicleId + "/driver", "{\"id\":" + driverId + "}");
+                    }
+                    return new LoadGenerator.Request("DELETE /vehicles/{id}/driver", "DELETE",
+                            "/vehicles/" + vehicleId + "/driver", null);
+                case "onboard":
+                    return onboard();
+                case "scan":
+                    return random.nextBoolean()
+                            ? new LoadGenerator.Request("GET /drivers", "GET", "/drivers", null)
+                            : new LoadGenerator.Request("GET /vehicles", "GET", "/vehicles", null);
+                default:
+                    throw new IllegalArgumentException("Unknown operation in load.mix: " + operation);
+            }
+        };
+    }
+
+    private LoadGenerator.Request onboard() {
+        String body = "{\"name\":\"Load driver\",\"licenseNum\":\"" + String.format("LT%07d", licenses.incrementAndGet())
+                + "\",\"category\":\"CAR\"}";
+        return new LoadGenerator.Request("POST /drivers", "POST", "/drivers", body);
+    }
+
+    private long id(LoadGenerator.Response response) throws IOException {
+        if (response.status != 200) {
+            throw new IllegalStateException("Setup request failed with " + response.status + ": " + response.body);
+        }
+        return objectMapper.readTree(response.body).get("id").asLong();
+    }
+
+    private static Map<String, Integer> weights(String mix) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split("=");
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight > 0) {
+                weights.put(parts[0].trim(), weight);
+            }
+        }
+        return weights;
+    }
+}
@@ -0,0 +1,140 @@
+package com.carpark.demo;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.util.StringJoiner;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * GET /drivers?ids=, /vehicles?ids= and POST /drivers/by-ids, /vehicles/by-ids through the controller,
+ * run against every storage: JpaMultiGetEndpointTests and InMemoryMultiGetEndpointTests.
+ *
+ * Every test uses drivers and vehicles it created, seed data is not touched.
+ */
+abstract class MultiGetEndpointTests {
+    //Never handed out by the sequences in tests
+    private static final long MISSING_ID = 999999;
+
+    @Autowired protected MockMvc mockMvc;
+    @Autowired protected DriverRepository driverRepository;
+    @Autowired protected VehicleRepository vehicleRepository;
+
+    private ResultActions byIds(String entities, String body) throws Exception {
+        return mockMvc.perform(post("/" + entities + "/by-ids")
+                .contentType(MediaType.APPLICATION_JSON).content(body));
+    }
+
+    @Test
+    void entriesFollowRequestOrder() throws Exception {
+        Driver first = driverRepository.save(new Driver("First", "MG0000001", Category.CAR));
+        Driver second = driverRepository.save(new Driver("Second", "MG0000002", Category.CAR));
+        String ids = second.getId() + "," + MISSING_ID + "," + first.getId() + "," + second.getId();
+
+        for (ResultActions result : new ResultActions[]{
+                mockMvc.perform(get("/drivers?ids=" + ids)), byIds("drivers", "[" + ids + "]")}) {
+            result.andExpect(status().isOk())
+                    .andExpect(jsonPath("$", hasSize(4)))
+                    .andExpect(jsonPath("$[0].id").value(second.getId()))
+                    .andExpect(jsonPath("$[0].found").value(true))
+                    .andExpect(jsonPath("$[0].item.licenseNum").value("MG0000002"))
+                    .andExpect(jsonPath("$[1].id").value(MISSING_ID))
+                    .andExpect(jsonPath("$[1].found").value(false))
+                    .andExpect(jsonPath("$[1].item").doesNotExist())
+                    .andExpect(jsonPath("$[2].item.licenseNum").value("MG0000001"))
+                    //Repeated id is answered at every position
+                    .andExpect(jsonPath("$[3].id").value(second.getId()))
+                    .andExpect(jsonPath("$[3].item.licenseNum").value("MG0000002"));
+        }
+
+        driverRepository.deleteById(first.getId());
+        driverRepository.deleteById(second.getId());
+    }
+
+    @Test
+    void vehiclesComeWithDrivers() throws Exception {
+        Driver driver = driverRepository.save(new Driver("Multi-get driver", "MG0000003", Category.TRUCK));
+        Vehicle assigned = vehicleRepository.save(new Vehicle("01001MGT", Category.TRUCK, driver));
+        Vehicle spare = vehicleRepository.save(new Vehicle("02002MGT", Category.TRUCK));
+
+        byIds("vehicles", "[" + spare.getId() + "," + assigned.getId() + "]")
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].item.plateNum").value("02002MGT"))
+                .andExpect(jsonPath("$[0].item.driver").doesNotExist())
+                .andExpect(jsonPath("$[1].item.plateNum").value("01001MGT"))
+                .andExpect(jsonPath("$[1].item.driver.licenseNum").value("MG0000003"));
+
+        //Sparse fieldset without id still keeps the entry id
+        mockMvc.perform(get("/vehicles?ids=" + assigned.getId() + "," + MISSING_ID + "&fields=plateNum"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(assigned.getId()))
+                .andExpect(jsonPath("$[0].item.plateNum").value("01001MGT"))
+                .andExpect(jsonPath("$[0].item.id").doesNotExist())
+                .andExpect(jsonPath("$[1].found").value(false));
+
+        vehicleRepository.deleteById(assigned.getId());
+        vehicleRepository.deleteById(spare.getId());
+        driverRepository.deleteById(driver.getId());
+    }
+
+    @Test
+    void nullAndMalformedIds() throws Exception {
+        Vehicle vehicle = vehicleRepository.save(new Vehicle("03003MGT", Category.TRUCK));
+
+        byIds("vehicles", "[null," + vehicle.getId() + "]")
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].id").doesNotExist())
+                .andExpect(jsonPath("$[0].found").value(false))
+                .andExpect(jsonPath("$[1].found").value(true));
+
+        mockMvc.perform(get("/vehicles?ids=" + vehicle.getId() + ",abc"))
+                .andExpect(status().isBadRequest());
+        byIds("vehicles", "[\"abc\"]")
+                .andExpect(status().isBadRequest());
+        byIds("drivers", "{\"ids\":[" + vehicle.getId() + "]}")
+                .andExpect(status().isBadRequest());
+
+        vehicleRepository.deleteById(vehicle.getId());
+    }
+
+    @Test
+    void idsAreLimited() throws Exception {
+        Vehicle vehicle = vehicleRepository.save(new Vehicle("04004MGT", Category.TRUCK));
+
+        //Largest allowed request spans several chunks, the vehicle is found in the first and the last one
+        StringJoiner ids = new StringJoiner(",", "[", "]");
+        ids.add(Long.toString(vehicle.getId()));
+        for (int i = 1; i < CarParkController.MAX_MULTI_GET_IDS - 1; i++) {
+            ids.add(Long.toString(MISSING_ID + i));
+        }
+        ids.add(Long.toString(vehicle.getId()));
+        byIds("vehicles", ids.toString())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(CarParkController.MAX_MULTI_GET_IDS)))
+                .andExpect(jsonPath("$[0].found").value(true))
+                .andExpect(jsonPath("$[" + MultiGetEntry.CHUNK_SIZE + "].found").value(false))
+                .andExpect(jsonPath("$[" + (CarParkController.MAX_MULTI_GET_IDS - 1) + "].item.plateNum").value("04004MGT"));
+
+        StringJoiner tooMany = new StringJoiner(",", "[", "]");
+        for (int i = 0; i <= CarParkController.MAX_MULTI_GET_IDS; i++) {
+            tooMany.add(Long.toString(MISSING_ID + i));
+        }
+        byIds("drivers", tooMany.toString())
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.description").value("Too many ids"));
+        byIds("vehicles", tooMany.toString())
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.description").value("Too many ids"));
+
+        vehicleRepository.deleteById(vehicle.getId());
+    }
+}
@@ -0,0 +1,91 @@
+package com.carpark.demo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MultiGetEntryTests {
+    //Chunks passed to the loader
+    private final List<List<Long>> chunks = new ArrayList<>();
+
+    //Even ids exist, item is the id as text
+    private List<String> load(List<Long> chunk) {
+        chunks.add(new ArrayList<>(chunk));
+        List<String> found = new ArrayList<>();
+        for (Long id : chunk) {
+            if (id % 2 == 0) {
+                found.add(Long.toString(id));
+            }
+        }
+        return found;
+    }
+
+    private List<MultiGetEntry<String>> resolve(List<Long> ids) {
+        return MultiGetEntry.resolve(ids, this::load, Long::valueOf);
+    }
+
+    @Test
+    void entriesFollowRequestOrder() {
+        List<MultiGetEntry<String>> entries = resolve(Arrays.asList(8L, 3L, 2L, 8L, null, 5L));
+
+        assertEquals(6, entries.size());
+        assertEquals(Arrays.asList(8L, 3L, 2L, 8L, null, 5L), ids(entries));
+        assertEquals(Arrays.asList("8", null, "2", "8", null, null), items(entries));
+        assertTrue(entries.get(0).isFound());
+        assertFalse(entries.get(1).isFound());
+        assertFalse(entries.get(4).isFound());
+        //Repeated id and null are not loaded
+        assertEquals(Collections.singletonList(Arrays.asList(8L, 3L, 2L, 5L)), chunks);
+    }
+
+    @Test
+    void longListsAreLoadedInChunks() {
+        List<Long> ids = new ArrayList<>();
+        for (long id = 2 * MultiGetEntry.CHUNK_SIZE + 10; id > 0; id--) {
+            ids.add(id);
+        }
+        ids.add(2L);
+
+        List<MultiGetEntry<String>> entries = resolve(ids);
+        assertEquals(ids, ids(entries));
+        for (MultiGetEntry<String> entry : entries) {
+            assertEquals(entry.getId() % 2 == 0, entry.isFound());
+        }
+        assertEquals(3, chunks.size());
+        assertEquals(MultiGetEntry.CHUNK_SIZE, chunks.get(0).size());
+        assertEquals(MultiGetEntry.CHUNK_SIZE, chunks.get(1).size());
+        assertEquals(10, chunks.get(2).size());
+    }
+
+    @Test
+    void itemsWithoutIdAreMatchedByLoaderKeys() {
+        List<MultiGetEntry<String>> entries = MultiGetEntry.resolve(Arrays.asList(4L, 1L, 4L),
+                chunk -> Collections.singletonMap(4L, "four"));
+        assertEquals(Arrays.asList("four", null, "four"), items(entries));
+    }
+
+    @Test
+    void emptyRequestLoadsNothing() {
+        assertTrue(resolve(Collections.emptyList()).isEmpty());
+        assertEquals(1, resolve(Collections.singletonList(null)).size());
+        assertTrue(chunks.isEmpty());
+    }
+
+    private static List<Long> ids(List<MultiGetEntry<String>> entries) {
+        List<Long> ids = new ArrayList<>();
+        for (MultiGetEntry<String> entry : entries) {
+            ids.add(entry.getId());
+        }
+        return ids;
+    }
+
+    private static List<String> items(List<MultiGetEntry<String>> entries) {
+        List<String> items = new ArrayList<>();
+        for (MultiGetEntry<String> entry : entries) {
+            items.add(entry.getItem());
+        }
+        return items;
+    }
+}
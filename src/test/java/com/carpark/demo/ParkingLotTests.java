@@ -0,0 +1,121 @@
+package com.carpark.demo;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParkingLotTests {
+    private static final int VEHICLES = 4;
+    private static final int GATES = 8;
+    private static final int ROUNDS = 20000;
+
+    //Occupancy kept in a map, as a table keyed by vehicle would keep it
+    static class MapOccupancy implements ParkingOccupancy {
+        final Map<Long, ParkingSpot> spots = new HashMap<>();
+
+        @Override
+        public synchronized List<ParkingSpot> load() {
+            return new ArrayList<>(spots.values());
+        }
+
+        @Override
+        public synchronized void write(Collection<ParkingSpot> parked, Collection<Long> left) {
+            for (ParkingSpot spot : parked) {
+                spots.put(spot.getVehicleId(), spot);
+            }
+            for (Long vehicleId : left) {
+                spots.remove(vehicleId);
+            }
+        }
+    }
+
+    private static ParkingLot lot(ParkingOccupancy occupancy) {
+        ParkingProperties.Zone zone = new ParkingProperties.Zone();
+        zone.setName("C1");
+        zone.setCategory(Category.CAR);
+        zone.setSlots(VEHICLES);
+        ParkingProperties properties = new ParkingProperties();
+        properties.setZones(Collections.singletonList(zone));
+        return new ParkingLot(properties, occupancy, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void parkAndLeaveAreWrittenAndRestored() {
+        MapOccupancy occupancy = new MapOccupancy();
+        ParkingLot lot = lot(occupancy);
+        assertEquals(1, lot.park(10, Category.CAR, null).getSlot());
+        assertEquals(2, lot.park(11, Category.CAR, null).getSlot());
+        assertEquals(1, lot.leave(10).getSlot());
+        assertNull(lot.leave(10));
+        lot.flush();
+        assertEquals(Collections.singleton(11L), occupancy.spots.keySet());
+
+        ParkingLot restarted = lot(occupancy);
+        assertEquals(2, restarted.spotOf(11).getSlot());
+        assertEquals(1, restarted.park(12, Category.CAR, null).getSlot());
+    }
+
+    /**
+     * Gates park and release the same few vehicles at once, with flushes in between.
+     * What is written must be what is in memory, otherwise a restart hands out a slot twice.
+     */
+    @Test
+    void concurrentParkAndLeaveKeepOccupancyInStep() throws Exception {
+        MapOccupancy occupancy = new MapOccupancy();
+        ParkingLot lot = lot(occupancy);
+        CyclicBarrier start = new CyclicBarrier(GATES + 1);
+        ExecutorService executor = Executors.newFixedThreadPool(GATES + 1);
+
+        List<Future<?>> gates = new ArrayList<>();
+        for (int g = 0; g < GATES; g++) {
+            gates.add(executor.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                start.await();
+                for (int round = 0; round < ROUNDS; round++) {
+                    long vehicleId = random.nextInt(VEHICLES);
+                    if (random.nextBoolean()) {
+                        lot.park(vehicleId, Category.CAR, null);
+                    } else {
+                        lot.leave(vehicleId);
+                    }
+                }
+                return null;
+            }));
+        }
+        Future<?> flusher = executor.submit(() -> {
+            start.await();
+            while (!gates.stream().allMatch(Future::isDone)) {
+                lot.flush();
+            }
+            return null;
+        });
+
+        try {
+            for (Future<?> gate : gates) {
+                gate.get(1, TimeUnit.MINUTES);
+            }
+            flusher.get(1, TimeUnit.MINUTES);
+        } finally {
+            executor.shutdownNow();
+        }
+        lot.flush();
+
+        for (long vehicleId = 0; vehicleId < VEHICLES; vehicleId++) {
+            ParkingSpot inMemory = lot.spotOf(vehicleId);
+            ParkingSpot written = occupancy.spots.get(vehicleId);
+            if (inMemory == null) {
+                assertNull(written, "Vehicle " + vehicleId + " left but is written as parked");
+            } else {
+                assertNotNull(written, "Vehicle " + vehicleId + " is parked but written as left");
+                assertEquals(inMemory.getSlot(), written.getSlot());
+            }
+        }
+        //Restart takes every written slot once
+        ParkingLot restarted = lot(occupancy);
+        assertEquals(occupancy.spots.size(), VEHICLES - restarted.zone("C1").getBitmap().free());
+    }
+}
@@ -0,0 +1,174 @@
+package com.carpark.demo;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.util.*;
+import java.util.function.LongUnaryOperator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Data an access log needs before it can be replayed against a fresh application.
+ *
+ * Ids in a recorded log belong to the database it was recorded against. Every driver and vehicle id
+ * referenced by a request which succeeded when recorded gets a new entity (category CAR, so assigning
+ * any of them works), and requests are rewritten to the new ids: in path, in "ids" query parameter
+ * and in bodies of multi-gets, bulk deletes, driver assignment and telemetry batches.
+ * Ids referenced only by failed requests become negative, so they fail again.
+ */
+class ReplaySeed {
+    private static final Pattern ENTITY_ID = Pattern.compile("/(drivers|vehicles)/(\\d+)(?=/|$)");
+    private static final Pattern ASSIGN_DRIVER = Pattern.compile("/vehicles/\\d+/driver");
+
+    private final LoadGenerator generator;
+    private final ObjectMapper objectMapper;
+    private final Map<Long, Long> drivers = new HashMap<>();
+    private final Map<Long, Long> vehicles = new HashMap<>();
+
+    ReplaySeed(LoadGenerator generator, ObjectMapper objectMapper) {
+        this.generator = generator;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Create entities for recorded ids and return the log with requests using them
+     */
+    List<LoadGenerator.Recorded> seed(List<LoadGenerator.Recorded> log) throws IOException {
+        Set<Long> driverIds = new TreeSet<>();
+        Set<Long> vehicleIds = new TreeSet<>();
+        for (LoadGenerator.Recorded recorded : log) {
+            if (recorded.status < 400) {
+                rewrite(recorded.request, id -> {
+                    driverIds.add(id);
+                    return id;
+                }, id -> {
+                    vehicleIds.add(id);
+                    return id;
+                });
+            }
+        }
+
+        for (long id : driverIds) {
+            String body = "{\"name\":\"Replay driver\",\"licenseNum\":\"" + String.format("RP%07d", drivers.size())
+                    + "\",\"category\":\"CAR\"}";
+            drivers.put(id, created(new LoadGenerator.Request("setup", "POST", "/drivers", body)));
+        }
+        for (long id : vehicleIds) {
+            String body = "{\"plateNum\":\"" + String.format("%05dRPL", vehicles.size()) + "\",\"category\":\"CAR\"}";
+            vehicles.put(id, created(new LoadGenerator.Request("setup", "POST", "/vehicles", body)));
+        }
+
+        List<LoadGenerator.Recorded> seeded = new ArrayList<>();
+        for (LoadGenerator.Recorded recorded : log) {
+            LoadGenerator.Request request = rewrite(recorded.request,
+                    id -> drivers.getOrDefault(id, -id), id -> vehicles.getOrDefault(id, -id));
+            seeded.add(new LoadGenerator.Recorded(recorded.startedMillis, recorded.status, request));
+        }
+        return seeded;
+    }
+
+    private long created(LoadGenerator.Request request) throws IOException {
+        LoadGenerator.Response response = generator.send(request);
+        if (response.status != 200) {
+            throw new IllegalStateException("Seed request failed with " + response.status + ": " + response.body);
+        }
+        return objectMapper.readTree(response.body).get("id").asLong();
+    }
+
+    private LoadGenerator.Request rewrite(LoadGenerator.Request request,
+                                          LongUnaryOperator driverIds, LongUnaryOperator vehicleIds) {
+        int queryStart = request.path.indexOf('?');
+        String path = queryStart >= 0 ? request.path.substring(0, queryStart) : request.path;
+        String query = queryStart >= 0 ? request.path.substring(queryStart + 1) : null;
+        //Ids listed in query or body are of the entity the path starts with
+        LongUnaryOperator listed = path.startsWith("/drivers") ? driverIds : vehicleIds;
+
+        StringBuffer rewritten = new StringBuffer();
+        Matcher matcher = ENTITY_ID.matcher(path);
+        while (matcher.find()) {
+            LongUnaryOperator ids = matcher.group(1).equals("drivers") ? driverIds : vehicleIds;
+            matcher.appendReplacement(rewritten,
+                    "/" + matcher.group(1) + "/" + ids.applyAsLong(Long.parseLong(matcher.group(2))));
+        }
+        matcher.appendTail(rewritten);
+
+        if (query != null) {
+            StringJoiner parameters = new StringJoiner("&");
+            for (String parameter : query.split("&")) {
+                parameters.add(parameter.startsWith("ids=") ? "ids=" + idList(parameter.substring(4), listed) : parameter);
+            }
+            rewritten.append('?').append(parameters);
+        }
+
+        String body = request.body;
+        if (body != null) {
+            try {
+                JsonNode tree = objectMapper.readTree(body);
+                if (tree.isArray()) {
+                    rewriteIds((ArrayNode) tree, listed);
+                } else if (tree.isObject()) {
+                    ObjectNode object = (ObjectNode) tree;
+                    if (object.path("ids").isArray()) {
+                        rewriteIds((ArrayNode) object.get("ids"), listed);
+                    }
+                    if (ASSIGN_DRIVER.matcher(path).matches()) {
+                        rewriteId(object, "id", driverIds);
+                    }
+                    if (object.path("driver").isObject()) {
+                        rewriteId((ObjectNode) object.get("driver"), "id", driverIds);
+                    }
+                    if (object.path("reports").isArray()) {
+                        for (JsonNode report : object.get("reports")) {
+                            if (report.isObject()) {
+                                rewriteId((ObjectNode) report, "vehicleId", vehicleIds);
+                            }
+                        }
+                    }
+                }
+                body = objectMapper.writeValueAsString(tree);
+            } catch (IOException e) {
+                //Not JSON, replayed as recorded
+            }
+        }
+        return new LoadGenerator.Request(request.endpoint, request.method, rewritten.toString(), body);
+    }
+
+    private static String idList(String value, LongUnaryOperator ids) {
+        String decoded;
+        try {
+            decoded = URLDecoder.decode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new UncheckedIOException(e);
+        }
+        StringJoiner list = new StringJoiner(",");
+        for (String id : decoded.split(",")) {
+            try {
+                list.add(Long.toString(ids.applyAsLong(Long.parseLong(id.trim()))));
+            } catch (NumberFormatException e) {
+                list.add(id);
+            }
+        }
+        return list.toString();
+    }
+
+    private static void rewriteIds(ArrayNode array, LongUnaryOperator ids) {
+        for (int i = 0; i < array.size(); i++) {
+            if (array.get(i).canConvertToLong()) {
+                array.set(i, array.numberNode(ids.applyAsLong(array.get(i).asLong())));
+            }
+        }
+    }
+
+    private static void rewriteId(ObjectNode object, String field, LongUnaryOperator ids) {
+        if (object.path(field).canConvertToLong()) {
+            object.put(field, ids.applyAsLong(object.get(field).asLong()));
+        }
+    }
+}
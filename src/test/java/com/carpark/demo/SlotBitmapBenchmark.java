@@ -0,0 +1,80 @@
+package com.carpark.demo;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.BitSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Many gates parking and leaving in one zone at once: each operation takes the lowest free slot
+ * and frees it again. The lock-free SlotBitmap is compared with the same allocation on a BitSet
+ * behind a lock, with the zone empty and nine tenths full (occupied from the entrance, so every
+ * allocation scans past full words).
+ *
+ * mvn test -Pbenchmark -Djmh.args="SlotBitmapBenchmark -t 16"
+ *
+ * -t sets the number of gates (threads). The number of compare-and-set retries
+ * (what the carpark.parking.contention metric counts) is printed after each trial.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SlotBitmapBenchmark {
+
+    @Param({"300"})
+    public int slots;
+
+    @Param({"0", "0.9"})
+    public double occupied;
+
+    private Counter contention;
+    private SlotBitmap bitmap;
+    private BitSet lockedBitmap;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        contention = new SimpleMeterRegistry().counter("carpark.parking.contention");
+        bitmap = new SlotBitmap(slots, contention);
+        lockedBitmap = new BitSet(slots);
+        int prefilled = (int) (slots * occupied);
+        for (int i = 0; i < prefilled; i++) {
+            bitmap.allocate();
+            lockedBitmap.set(i);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void report() {
+        System.out.println("CAS retries: " + (long) contention.count());
+    }
+
+    @Benchmark
+    public int lockFree() {
+        int slot = bitmap.allocate();
+        if (slot >= 0) {
+            bitmap.release(slot);
+        }
+        return slot;
+    }
+
+    @Benchmark
+    public int locked() {
+        int slot;
+        synchronized (lockedBitmap) {
+            slot = lockedBitmap.nextClearBit(0);
+            if (slot >= slots) {
+                return -1;
+            }
+            lockedBitmap.set(slot);
+        }
+        synchronized (lockedBitmap) {
+            lockedBitmap.clear(slot);
+        }
+        return slot;
+    }
+}
@@ -0,0 +1,108 @@
+package com.carpark.demo;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SlotBitmapTests {
+    //Not a multiple of 64, so the last word has padding bits
+    private static final int SLOTS = 200;
+    private static final int GATES = 16;
+    private static final int ROUNDS = 20000;
+
+    private static SlotBitmap bitmap(int slots) {
+        return new SlotBitmap(slots, new SimpleMeterRegistry().counter("contention"));
+    }
+
+    @Test
+    void allocatesLowestFreeSlot() {
+        SlotBitmap bitmap = bitmap(SLOTS);
+        for (int i = 0; i < 130; i++) {
+            assertEquals(i, bitmap.allocate());
+        }
+        assertTrue(bitmap.release(70));
+        assertTrue(bitmap.release(5));
+        assertFalse(bitmap.release(5));
+
+        assertEquals(5, bitmap.allocate());
+        assertEquals(70, bitmap.allocate());
+        assertEquals(130, bitmap.allocate());
+        assertEquals(SLOTS - 131, bitmap.free());
+    }
+
+    @Test
+    void paddingIsNeverAllocated() {
+        SlotBitmap bitmap = bitmap(SLOTS);
+        for (int i = 0; i < SLOTS; i++) {
+            assertEquals(i, bitmap.allocate());
+        }
+        assertEquals(-1, bitmap.allocate());
+        assertEquals(0, bitmap.free());
+    }
+
+    /**
+     * Gates park and release at once. Each gate keeps some of its slots to the end,
+     * so the bitmap is neither empty nor full while they run.
+     */
+    @Test
+    void gatesNeverShareSlot() throws Exception {
+        SlotBitmap bitmap = bitmap(SLOTS);
+        //Gate holding each slot plus one, 0 if slot is free as far as gates know
+        AtomicIntegerArray holders = new AtomicIntegerArray(SLOTS);
+        CyclicBarrier start = new CyclicBarrier(GATES);
+        ExecutorService executor = Executors.newFixedThreadPool(GATES);
+
+        List<Future<List<Integer>>> gates = new ArrayList<>();
+        for (int g = 1; g <= GATES; g++) {
+            int gate = g;
+            gates.add(executor.submit(() -> {
+                List<Integer> held = new ArrayList<>();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                start.await();
+                for (int round = 0; round < ROUNDS; round++) {
+                    if (held.size() < 8 && random.nextBoolean()) {
+                        int slot = bitmap.allocate();
+                        if (slot >= 0) {
+                            assertTrue(slot < SLOTS, "Padding slot " + slot + " allocated");
+                            assertTrue(holders.compareAndSet(slot, 0, gate),
+                                    "Slot " + slot + " handed to gate " + gate + " while gate " + holders.get(slot) + " holds it");
+                            held.add(slot);
+                        }
+                    } else if (!held.isEmpty()) {
+                        int slot = held.remove(random.nextInt(held.size()));
+                        assertTrue(holders.compareAndSet(slot, gate, 0));
+                        assertTrue(bitmap.release(slot), "Slot " + slot + " was not occupied");
+                    }
+                }
+                return held;
+            }));
+        }
+
+        BitSet held = new BitSet(SLOTS);
+        try {
+            for (Future<List<Integer>> gate : gates) {
+                for (int slot : gate.get(1, TimeUnit.MINUTES)) {
+                    assertFalse(held.get(slot));
+                    held.set(slot);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(SLOTS - held.cardinality(), bitmap.free());
+        //Lowest free slots are taken first, in order, until the lot is full
+        for (int slot = held.nextClearBit(0); slot < SLOTS; slot = held.nextClearBit(slot + 1)) {
+            assertEquals(slot, bitmap.allocate());
+        }
+        assertEquals(-1, bitmap.allocate());
+        assertEquals(0, bitmap.free());
+    }
+}
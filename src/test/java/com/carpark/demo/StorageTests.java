@@ -0,0 +1,194 @@
+package com.carpark.demo;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Contract of DriverRepository and VehicleRepository the controller relies on,
+ * run against every storage: JpaStorageTests (carpark.storage=jpa) and InMemoryStorageTests (memory).
+ *
+ * Tests remove what they add, contexts with the seed data of DemoApplication are shared.
+ * Projection rows are compared with the same literal rows on every storage, so both return identical rows.
+ */
+abstract class StorageTests {
+
+    @Autowired protected DriverRepository driverRepository;
+    @Autowired protected VehicleRepository vehicleRepository;
+    @Autowired protected ProjectionRepository projectionRepository;
+    @Autowired protected MockMvc mockMvc;
+
+    @Test
+    void contextLoads() {
+        assertEquals(3, driverRepository.count());
+        assertEquals(2, vehicleRepository.count());
+        assertEquals("BC2954748", vehicleRepository.findByPlateNum("01N877LA").get().getDriver().getLicenseNum());
+    }
+
+    @Test
+    void licenseNumberIsUnique() {
+        assertThrows(DataIntegrityViolationException.class,
+                () -> driverRepository.save(new Driver("Copy", "AD9948454", Category.CAR)));
+    }
+
+    @Test
+    void plateNumberIsUnique() {
+        assertThrows(DataIntegrityViolationException.class,
+                () -> vehicleRepository.save(new Vehicle("01454GTA", Category.BUS)));
+    }
+
+    //The rule deleteDriver depends on
+    @Test
+    void assignedDriverCannotBeDeleted() {
+        Driver driver = driverRepository.save(new Driver("Bus driver", "ZZ0000001", Category.BUS));
+        Vehicle vehicle = vehicleRepository.save(new Vehicle("99999ZZZ", Category.BUS, driver));
+
+        assertThrows(DataIntegrityViolationException.class, () -> driverRepository.deleteById(driver.getId()));
+
+        vehicleRepository.deleteById(vehicle.getId());
+        driverRepository.deleteById(driver.getId());
+        assertThrows(EmptyResultDataAccessException.class, () -> driverRepository.deleteById(driver.getId()));
+    }
+
+    @Test
+    void unassignedDriverCanBeDeleted() {
+        Driver driver = driverRepository.save(new Driver("Trailer driver", "TL0000001", Category.TRAILER));
+        Vehicle vehicle = vehicleRepository.save(new Vehicle("03333TLR", Category.TRAILER, driver));
+        assertFalse(ids(driverRepository.noCars()).contains(driver.getId()));
+
+        vehicle.setDriver(null);
+        vehicleRepository.save(vehicle);
+        assertTrue(vehicleRepository.findByDriverId(driver.getId()).isEmpty());
+        assertTrue(ids(driverRepository.noCars()).contains(driver.getId()));
+
+        //Nothing cascades, deleting the driver keeps its former vehicle
+        driverRepository.deleteById(driver.getId());
+        assertTrue(vehicleRepository.findById(vehicle.getId()).isPresent());
+        vehicleRepository.deleteById(vehicle.getId());
+        assertFalse(vehicleRepository.existsById(vehicle.getId()));
+    }
+
+    @Test
+    void queriesByCategoryAndDriver() {
+        Driver driver = driverRepository.save(new Driver("Truck driver", "TQ0000001", Category.TRUCK));
+        Vehicle truck = vehicleRepository.save(new Vehicle("04444TRQ", Category.TRUCK, driver));
+        Vehicle spare = vehicleRepository.save(new Vehicle("05555TRQ", Category.TRUCK));
+
+        assertTrue(ids(driverRepository.findByCategory(Category.TRUCK)).contains(driver.getId()));
+        assertFalse(ids(driverRepository.findByCategory(Category.BUS)).contains(driver.getId()));
+        assertEquals(driver.getId(), driverRepository.findByLicenseNum("TQ0000001").get().getId());
+
+        assertEquals(Collections.singletonList(truck.getId()), vehicleIds(vehicleRepository.findByDriverId(driver.getId())));
+        assertEquals(Collections.singletonList(truck.getId()), vehicleIds(vehicleRepository.findByDriver(driver)));
+        List<Long> withoutDriver = vehicleIds(vehicleRepository.findByDriver(null));
+        assertTrue(withoutDriver.contains(spare.getId()));
+        assertFalse(withoutDriver.contains(truck.getId()));
+        assertEquals(driver.getId(), vehicleRepository.findByPlateNum("04444TRQ").get().getDriver().getId());
+
+        vehicleRepository.deleteById(truck.getId());
+        vehicleRepository.deleteById(spare.getId());
+        driverRepository.deleteById(driver.getId());
+    }
+
+    //Multi-get of vehicles, drivers have to be usable without a persistence context
+    @Test
+    void vehiclesAreFoundWithDrivers() {
+        Driver driver = driverRepository.save(new Driver("Bus driver", "MB0000001", Category.BUS));
+        Vehicle bus = vehicleRepository.save(new Vehicle("08888MBS", Category.BUS, driver));
+        Long seedBus = vehicleRepository.findByPlateNum("01454GTA").get().getId();
+
+        Map<Long, Vehicle> found = new HashMap<>();
+        for (Vehicle vehicle : vehicleRepository.findAllWithDriverByIdIn(Arrays.asList(seedBus, 999999L, bus.getId(), bus.getId()))) {
+            assertNull(found.put(vehicle.getId(), vehicle));
+        }
+        assertEquals(new HashSet<>(Arrays.asList(seedBus, bus.getId())), found.keySet());
+        assertEquals("MB0000001", found.get(bus.getId()).getDriver().getLicenseNum());
+        assertNull(found.get(seedBus).getDriver());
+        assertTrue(vehicleRepository.findAllWithDriverByIdIn(Collections.singletonList(999999L)).isEmpty());
+
+        vehicleRepository.deleteById(bus.getId());
+        driverRepository.deleteById(driver.getId());
+    }
+
+    @Test
+    void projectionsContainSelectedFieldsOnly() {
+        Driver driver = driverRepository.save(new Driver("Projected driver", "PJ0000001", Category.TRAILER));
+        Vehicle assigned = vehicleRepository.save(new Vehicle("06666PRJ", Category.TRAILER, driver));
+        Vehicle spare = vehicleRepository.save(new Vehicle("07777PRJ", Category.TRAILER));
+
+        //Selected in entity order, whatever order they are listed in
+        List<String> idName = ProjectionRepository.parseFields("name, id", ProjectionRepository.DRIVER_FIELDS);
+        assertEquals(Arrays.asList("id", "name"), idName);
+        Map<String, Object> projected = projectionRepository.driverById(driver.getId(), idName).get();
+        assertEquals(row("id", driver.getId(), "name", "Projected driver"), projected);
+        assertEquals(idName, new ArrayList<>(projected.keySet()));
+        assertEquals(Collections.singletonList(projected), projectionRepository.driversByCategory(Category.TRAILER, idName));
+        assertEquals(Collections.singletonMap(driver.getId(), row("name", "Projected driver")),
+                projectionRepository.driversByIds(Arrays.asList(driver.getId(), 999999L), Collections.singletonList("name")));
+
+        List<String> plateNum = ProjectionRepository.parseFields("plateNum,id", ProjectionRepository.VEHICLE_FIELDS);
+        assertEquals(Collections.singletonList(row("id", assigned.getId(), "plateNum", "06666PRJ")),
+                projectionRepository.vehiclesByDriverId(driver.getId(), plateNum));
+
+        //Driver is a map with all driver fields, or null
+        List<String> withDriver = ProjectionRepository.parseFields("driver,plateNum", ProjectionRepository.VEHICLE_FIELDS);
+        Map<Long, Map<String, Object>> vehicles = projectionRepository.vehiclesByIds(
+                Arrays.asList(assigned.getId(), spare.getId()), withDriver);
+        assertEquals(row("plateNum", "06666PRJ", "driver",
+                row("id", driver.getId(), "name", "Projected driver", "licenseNum", "PJ0000001", "category", Category.TRAILER)),
+                vehicles.get(assigned.getId()));
+        assertEquals(withDriver, new ArrayList<>(vehicles.get(assigned.getId()).keySet()));
+        assertEquals(row("plateNum", "07777PRJ", "driver", null), vehicles.get(spare.getId()));
+
+        vehicleRepository.deleteById(assigned.getId());
+        vehicleRepository.deleteById(spare.getId());
+        driverRepository.deleteById(driver.getId());
+    }
+
+    @Test
+    void unknownFieldsAreRejected() throws Exception {
+        assertNull(ProjectionRepository.parseFields("id,password", ProjectionRepository.DRIVER_FIELDS));
+        assertNull(ProjectionRepository.parseFields("driver", ProjectionRepository.DRIVER_FIELDS));
+        assertNull(ProjectionRepository.parseFields(" , ", ProjectionRepository.VEHICLE_FIELDS));
+
+        for (String path : Arrays.asList("/drivers?fields=id,password", "/drivers/1?fields=driver",
+                "/drivers/3/cars?fields=name", "/vehicles?fields=licenseNum", "/vehicles/1?fields=")) {
+            mockMvc.perform(get(path))
+                    .andExpect(status().isBadRequest())
+                    .andExpect(jsonPath("$.description").value("Unknown field in fields parameter"));
+        }
+    }
+
+    static Map<String, Object> row(Object... fieldsAndValues) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        for (int i = 0; i < fieldsAndValues.length; i += 2) {
+            row.put((String) fieldsAndValues[i], fieldsAndValues[i + 1]);
+        }
+        return row;
+    }
+
+    private static List<Long> ids(List<Driver> drivers) {
+        List<Long> ids = new ArrayList<>();
+        for (Driver driver : drivers) {
+            ids.add(driver.getId());
+        }
+        return ids;
+    }
+
+    private static List<Long> vehicleIds(List<Vehicle> vehicles) {
+        List<Long> ids = new ArrayList<>();
+        for (Vehicle vehicle : vehicles) {
+            ids.add(vehicle.getId());
+        }
+        return ids;
+    }
+}
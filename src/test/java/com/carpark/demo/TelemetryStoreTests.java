@@ -0,0 +1,164 @@
+package com.carpark.demo;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validation;
+import javax.validation.Validator;
+import java.time.Instant;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class TelemetryStoreTests {
+    private static final Instant MORNING = Instant.parse("2020-10-12T08:15:30Z");
+    private static final long MINUTE = 60000;
+
+    private final VehicleRepository vehicleRepository = mock(VehicleRepository.class);
+    private final List<TelemetryState> history = new ArrayList<>();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private TelemetryStore store(int maxPending) {
+        return new TelemetryStore(vehicleRepository, history::addAll, registry, 100, MINUTE, 2, maxPending);
+    }
+
+    private static TelemetryReport report(Long vehicleId, Instant recordedAt) {
+        return new TelemetryReport(vehicleId, 41.3, 69.2, null, recordedAt);
+    }
+
+    //Vehicles 1 and 2 exist
+    private void vehicles() {
+        when(vehicleRepository.existsById(anyLong())).thenAnswer(call -> call.<Long>getArgument(0) <= 2);
+        when(vehicleRepository.findIdsByIdIn(anyCollection())).thenAnswer(call -> {
+            List<Long> existing = new ArrayList<>();
+            for (Object id : call.<Collection<?>>getArgument(0)) {
+                if ((Long) id <= 2) {
+                    existing.add((Long) id);
+                }
+            }
+            return existing;
+        });
+    }
+
+    @Test
+    void staleUpdateIsIgnored() {
+        vehicles();
+        TelemetryStore store = store(100);
+        assertTrue(store.update(1, report(null, MORNING.plusSeconds(10))));
+        assertTrue(store.update(1, report(null, MORNING)));
+
+        assertEquals(MORNING.plusSeconds(10), store.get(1).getRecordedAt());
+        assertEquals(1, registry.get("carpark.telemetry.stale").counter().count());
+        assertEquals(1, registry.get("carpark.telemetry.updates").counter().count());
+    }
+
+    @Test
+    void historyIsDownsampled() {
+        vehicles();
+        TelemetryStore store = store(100);
+        for (int seconds : new int[]{0, 30, 59, 60, 61, 119, 120}) {
+            store.update(1, report(null, MORNING.plusSeconds(seconds)));
+        }
+        store.flush();
+
+        List<Instant> samples = new ArrayList<>();
+        for (TelemetryState state : history) {
+            samples.add(state.getRecordedAt());
+        }
+        assertEquals(Arrays.asList(MORNING, MORNING.plusSeconds(60), MORNING.plusSeconds(120)), samples);
+        assertEquals(3, registry.get("carpark.telemetry.history.written").counter().count());
+    }
+
+    @Test
+    void historyOverMaxPendingIsDropped() {
+        vehicles();
+        TelemetryStore store = store(2);
+        for (int minutes = 0; minutes < 3; minutes++) {
+            store.update(1, report(null, MORNING.plusSeconds(minutes * 60)));
+        }
+        store.flush();
+        assertEquals(2, history.size());
+        assertEquals(1, registry.get("carpark.telemetry.history.dropped").counter().count());
+    }
+
+    @Test
+    void unknownVehicleIsNotStored() {
+        vehicles();
+        TelemetryStore store = store(100);
+        assertFalse(store.update(3, report(null, MORNING)));
+        assertNull(store.get(3));
+    }
+
+    @Test
+    void evictedVehicleIsCheckedAgain() {
+        vehicles();
+        TelemetryStore store = store(100);
+        store.update(1, report(null, MORNING));
+        store.update(1, report(null, MORNING.plusSeconds(1)));
+        //Checked before and after the entry is created, not again once it exists
+        verify(vehicleRepository, times(2)).existsById(1L);
+
+        store.evict(1);
+        assertNull(store.get(1));
+        when(vehicleRepository.existsById(1L)).thenReturn(false);
+        assertFalse(store.update(1, report(null, MORNING.plusSeconds(2))));
+        assertNull(store.get(1));
+    }
+
+    @Test
+    void batchChecksNewVehiclesWithTwoQueries() {
+        vehicles();
+        TelemetryStore store = store(100);
+        store.update(1, report(null, MORNING));
+
+        List<TelemetryReport> reports = new ArrayList<>();
+        for (long id = 1; id <= TelemetryBatch.MAX_REPORTS; id++) {
+            reports.add(report(id, MORNING.plusSeconds(1)));
+        }
+        reports.add(report(null, MORNING));
+        TelemetryBatch.Result result = store.updateAll(reports);
+
+        assertEquals(2, result.getAccepted());
+        assertEquals(TelemetryBatch.MAX_REPORTS - 1, result.getUnknownVehicleIds().size());
+        assertNull(result.getUnknownVehicleIds().get(result.getUnknownVehicleIds().size() - 1));
+        assertEquals(MORNING.plusSeconds(1), store.get(2).getRecordedAt());
+        //Before and after entry of vehicle 2 is created, vehicle 1 already has one
+        verify(vehicleRepository, times(2)).findIdsByIdIn(anyCollection());
+        verify(vehicleRepository, times(2)).existsById(anyLong());
+        assertFalse(store.updateAll(reports).getUnknownVehicleIds().contains(2L));
+        verify(vehicleRepository, times(3)).findIdsByIdIn(anyCollection());
+    }
+
+    @Test
+    void batchDropsEntryOfVehicleDeletedMeanwhile() {
+        TelemetryStore store = store(100);
+        //Exists on first check, deleted and evicted before the second
+        when(vehicleRepository.findIdsByIdIn(anyCollection()))
+                .thenReturn(Collections.singletonList(1L))
+                .thenReturn(Collections.emptyList());
+
+        TelemetryBatch.Result result = store.updateAll(Collections.singletonList(report(1L, MORNING)));
+        assertEquals(0, result.getAccepted());
+        assertEquals(Collections.singletonList(1L), result.getUnknownVehicleIds());
+        assertNull(store.get(1));
+    }
+
+    @Test
+    void batchIsLimited() {
+        Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+        TelemetryBatch batch = new TelemetryBatch();
+        batch.setReports(new ArrayList<>(Collections.nCopies(TelemetryBatch.MAX_REPORTS, report(1L, MORNING))));
+        assertTrue(validator.validate(batch).isEmpty());
+
+        batch.getReports().add(report(1L, MORNING));
+        Set<ConstraintViolation<TelemetryBatch>> violations = validator.validate(batch);
+        assertEquals(1, violations.size());
+        assertEquals("At most " + TelemetryBatch.MAX_REPORTS + " reports are allowed", violations.iterator().next().getMessage());
+
+        batch.setReports(Collections.singletonList(null));
+        assertEquals("Report can not be null", validator.validate(batch).iterator().next().getMessage());
+    }
+}
@@ -0,0 +1,93 @@
+package com.carpark.demo;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"carpark.warmup.rounds=2", "carpark.warmup.requests=20", "carpark.warmup.writes=5",
+                "carpark.access-log.path=target/warmup-test-access.log"})
+@ActiveProfiles("embedded-postgres")
+class WarmupRunnerTests {
+    private static final Path ACCESS_LOG = Paths.get("target/warmup-test-access.log");
+    //Readiness state at the time each warm-up request arrived
+    private static final List<ReadinessState> SEEN = new CopyOnWriteArrayList<>();
+
+    @TestConfiguration
+    static class Recorder {
+        @Bean
+        OncePerRequestFilter warmupReadinessRecorder(ApplicationAvailability availability) {
+            return new OncePerRequestFilter() {
+                @Override
+                protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+                        throws ServletException, IOException {
+                    if (WarmupRunner.isWarmup(request)) {
+                        SEEN.add(availability.getReadinessState());
+                    }
+                    chain.doFilter(request, response);
+                }
+            };
+        }
+    }
+
+    @Autowired private ApplicationAvailability availability;
+    @Autowired private AccessLogRecorder accessLogRecorder;
+    @Autowired private DriverRepository driverRepository;
+    @Autowired private VehicleRepository vehicleRepository;
+
+    @BeforeAll
+    static void cleanAccessLog() throws IOException {
+        Files.deleteIfExists(ACCESS_LOG);
+    }
+
+    @Test
+    void trafficIsRefusedDuringWarmupAndAcceptedAfter() {
+        assertEquals(2 * 20, SEEN.size());
+        for (ReadinessState state : SEEN) {
+            assertEquals(ReadinessState.REFUSING_TRAFFIC, state);
+        }
+        assertEquals(ReadinessState.ACCEPTING_TRAFFIC, availability.getReadinessState());
+    }
+
+    @Test
+    void warmupRequestsAreNotRecorded() throws IOException {
+        accessLogRecorder.flush();
+        assertEquals(0, Files.size(ACCESS_LOG));
+    }
+
+    @Test
+    void warmupLeavesNoDataAndUsesNoIds() {
+        assertEquals(3, driverRepository.count());
+        assertEquals(2, vehicleRepository.count());
+        assertTrue(driverRepository.findByLicenseNum("AD9948454").isPresent());
+        assertTrue(vehicleRepository.findByPlateNum("01N877LA").get().getDriver() != null);
+
+        //Seed data took ids 1-3 and 1-2
+        Driver driver = driverRepository.save(new Driver("Warm-up check", "WC0000001", Category.CAR));
+        Vehicle vehicle = vehicleRepository.save(new Vehicle("01001WCK", Category.CAR));
+        assertEquals(4L, driver.getId());
+        assertEquals(3L, vehicle.getId());
+        vehicleRepository.deleteById(vehicle.getId());
+        driverRepository.deleteById(driver.getId());
+    }
+}